@@ -0,0 +1,93 @@
+package Backend;
+
+import java.time.LocalDate;
+
+/**
+ * Group identity produced by {@link SpendingAggregator}. Dimensions that were
+ * not grouped on are reported as null.
+ */
+public class AggregateKey {
+    static final int NOT_GROUPED = Integer.MIN_VALUE;
+    static final byte TYPE_NOT_GROUPED = -1;
+    static final long PERIOD_NOT_GROUPED = Long.MIN_VALUE;
+
+    // Mutable so the aggregator can probe its maps without allocating per row
+    private int categoryId = NOT_GROUPED;
+    private int accountId = NOT_GROUPED;
+    private byte type = TYPE_NOT_GROUPED;
+    private long periodEpochDay = PERIOD_NOT_GROUPED;
+
+    AggregateKey() {
+    }
+
+    void set(int categoryId, int accountId, byte type, long periodEpochDay) {
+        this.categoryId = categoryId;
+        this.accountId = accountId;
+        this.type = type;
+        this.periodEpochDay = periodEpochDay;
+    }
+
+    AggregateKey copy() {
+        AggregateKey key = new AggregateKey();
+        key.set(categoryId, accountId, type, periodEpochDay);
+        return key;
+    }
+
+    // Getters
+    public Integer getCategoryId() {
+        return categoryId == NOT_GROUPED ? null : categoryId;
+    }
+
+    public Integer getAccountId() {
+        return accountId == NOT_GROUPED ? null : accountId;
+    }
+
+    /**
+     * Gets the transaction type of the group.
+     *
+     * @return "INCOME", "EXPENSE", or null if not grouped by type
+     */
+    public String getType() {
+        if (type == TYPE_NOT_GROUPED) {
+            return null;
+        }
+        return type == TransactionLedger.TYPE_INCOME ? "INCOME" : "EXPENSE";
+    }
+
+    /**
+     * Gets the first day of the group's time bucket.
+     *
+     * @return the bucket start date, or null if not grouped by time
+     */
+    public LocalDate getPeriodStart() {
+        return periodEpochDay == PERIOD_NOT_GROUPED ? null : LocalDate.ofEpochDay(periodEpochDay);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AggregateKey)) {
+            return false;
+        }
+        AggregateKey other = (AggregateKey) o;
+        return categoryId == other.categoryId && accountId == other.accountId
+                && type == other.type && periodEpochDay == other.periodEpochDay;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = categoryId;
+        hash = 31 * hash + accountId;
+        hash = 31 * hash + type;
+        hash = 31 * hash + Long.hashCode(periodEpochDay);
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "AggregateKey [categoryId=" + getCategoryId() + ", accountId=" + getAccountId() +
+                ", type=" + getType() + ", periodStart=" + getPeriodStart() + "]";
+    }
+}
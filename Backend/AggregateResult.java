@@ -0,0 +1,69 @@
+package Backend;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Count, sum, minimum, maximum and average of the amounts in one group.
+ * Amounts are unsigned, as stored in the Transactions table.
+ */
+public class AggregateResult {
+    /**
+     * Scale of averages. MySQL's AVG over DECIMAL(10, 2) adds div_precision_increment
+     * (4 by default) to the column scale and rounds half up.
+     */
+    public static final int AVERAGE_SCALE = 6;
+
+    private long count;
+    private long sumCents;
+    private long minCents = Long.MAX_VALUE;
+    private long maxCents = Long.MIN_VALUE;
+
+    AggregateResult() {
+    }
+
+    void add(long cents) {
+        count++;
+        sumCents += cents;
+        if (cents < minCents) minCents = cents;
+        if (cents > maxCents) maxCents = cents;
+    }
+
+    void merge(AggregateResult other) {
+        count += other.count;
+        sumCents += other.sumCents;
+        minCents = Math.min(minCents, other.minCents);
+        maxCents = Math.max(maxCents, other.maxCents);
+    }
+
+    // Getters
+    public long getCount() {
+        return count;
+    }
+
+    public long getSumCents() {
+        return sumCents;
+    }
+
+    public BigDecimal getSum() {
+        return TransactionLedger.fromCents(sumCents);
+    }
+
+    public BigDecimal getMin() {
+        return TransactionLedger.fromCents(minCents);
+    }
+
+    public BigDecimal getMax() {
+        return TransactionLedger.fromCents(maxCents);
+    }
+
+    public BigDecimal getAverage() {
+        return getSum().divide(BigDecimal.valueOf(count), AVERAGE_SCALE, RoundingMode.HALF_UP);
+    }
+
+    @Override
+    public String toString() {
+        return "AggregateResult [count=" + count + ", sum=" + getSum() + ", min=" + getMin() +
+                ", max=" + getMax() + ", avg=" + getAverage() + "]";
+    }
+}
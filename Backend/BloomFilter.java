@@ -0,0 +1,139 @@
+package Backend;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over strings.
+ *
+ * {@link #mightContain} never returns false for a string that was added; it
+ * returns true for a string that was not added with a probability that grows
+ * as the filter fills up, approximately {@link #getExpectedFalsePositiveRate()}.
+ * Strings cannot be removed.
+ */
+public class BloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long expectedInsertions;
+    private final double targetFalsePositiveRate;
+    private final AtomicLong insertions = new AtomicLong();
+
+    /**
+     * Creates a filter sized for a number of strings and a false positive rate.
+     *
+     * @param expectedInsertions how many strings the filter is sized for
+     * @param falsePositiveRate the false positive rate when that many strings
+     *        have been added, between 0 and 1 exclusive
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1 || !(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("Invalid Bloom filter sizing: expectedInsertions=" +
+                    expectedInsertions + ", falsePositiveRate=" + falsePositiveRate);
+        }
+        long m = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        m = Math.max(64, Math.min(m, (long) Integer.MAX_VALUE * 64));
+        this.bits = new AtomicLongArray((int) ((m + 63) / 64));
+        this.bitCount = (long) bits.length() * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        this.expectedInsertions = expectedInsertions;
+        this.targetFalsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * Adds a string.
+     *
+     * @param value the string
+     */
+    public void put(String value) {
+        long hash = hash(value);
+        long h1 = hash;
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = bits.get(word)) & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                // retry: another bit in this word was set concurrently
+            }
+        }
+        insertions.incrementAndGet();
+    }
+
+    /**
+     * Checks whether a string may have been added.
+     *
+     * @param value the string
+     * @return false if the string was definitely never added
+     */
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        long h1 = hash;
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimates the current false positive rate from the number of strings
+     * added so far (counting duplicates).
+     *
+     * @return the estimated probability that mightContain is true for a string never added
+     */
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * insertions.get() / bitCount), hashCount);
+    }
+
+    // Getters
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    public double getTargetFalsePositiveRate() {
+        return targetFalsePositiveRate;
+    }
+
+    public long getInsertions() {
+        return insertions.get();
+    }
+
+    private static long hash(String value) {
+        // FNV-1a over the UTF-16 chars, then a 64-bit finalizer to spread the bits
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "BloomFilter [bits=" + bitCount + ", hashes=" + hashCount + ", insertions=" + insertions.get() +
+                ", expectedInsertions=" + expectedInsertions + ", targetFpp=" + targetFalsePositiveRate +
+                ", estimatedFpp=" + getExpectedFalsePositiveRate() + "]";
+    }
+}
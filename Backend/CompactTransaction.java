@@ -0,0 +1,136 @@
+package Backend;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Immutable, memory-lean counterpart of {@link Transaction} for large reports.
+ *
+ * The amount is held as a long number of cents, the type as an enum and the
+ * date as an int epoch day, and the account and category names are references
+ * to shared dictionary strings rather than per-row copies. An instance takes
+ * roughly a quarter of the heap of an equivalent Transaction.
+ */
+public final class CompactTransaction {
+    private final int id;
+    private final int userId;
+    private final int accountId;
+    private final int categoryId;
+    private final long amountCents;
+    private final TransactionType type;
+    private final int epochDay;
+    private final String description;
+    private final String accountName;
+    private final String categoryName;
+
+    public CompactTransaction(int id, int userId, int accountId, int categoryId, long amountCents,
+                              TransactionType type, LocalDate date, String description,
+                              String accountName, String categoryName) {
+        this.id = id;
+        this.userId = userId;
+        this.accountId = accountId;
+        this.categoryId = categoryId;
+        this.amountCents = amountCents;
+        this.type = type;
+        this.epochDay = Math.toIntExact(date.toEpochDay());
+        this.description = description;
+        this.accountName = accountName;
+        this.categoryName = categoryName;
+    }
+
+    /**
+     * Converts from the standard model. Dates are read in the system time zone,
+     * as the DAO creates them.
+     *
+     * @param transaction the Transaction to convert
+     * @return CompactTransaction object
+     */
+    public static CompactTransaction from(Transaction transaction) {
+        LocalDate date = Instant.ofEpochMilli(transaction.getDate().getTime())
+                .atZone(ZoneId.systemDefault()).toLocalDate();
+        return new CompactTransaction(transaction.getId(), transaction.getUserId(),
+                transaction.getAccountId(), transaction.getCategoryId(),
+                TransactionLedger.toCents(transaction.getAmount()),
+                TransactionType.fromString(transaction.getType()),
+                date, transaction.getDescription(),
+                transaction.getAccountName(), transaction.getCategoryName());
+    }
+
+    /**
+     * Converts to the standard model for existing callers.
+     *
+     * @return a new Transaction with the same values, dated at local midnight
+     */
+    public Transaction toTransaction() {
+        Transaction transaction = new Transaction(id, userId, accountId, categoryId, getAmount(),
+                type.name(), description,
+                Date.from(getDate().atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        transaction.setAccountName(accountName);
+        transaction.setCategoryName(categoryName);
+        return transaction;
+    }
+
+    // Getters
+    public int getId() {
+        return id;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    public BigDecimal getAmount() {
+        return TransactionLedger.fromCents(amountCents);
+    }
+
+    /**
+     * Gets the amount's effect on the account balance.
+     *
+     * @return cents, positive for income and negative for expenses
+     */
+    public long getSignedAmountCents() {
+        return type == TransactionType.INCOME ? amountCents : -amountCents;
+    }
+
+    public TransactionType getType() {
+        return type;
+    }
+
+    public LocalDate getDate() {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getAccountName() {
+        return accountName;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactTransaction [id=" + id + ", userId=" + userId + ", accountId=" + accountId +
+                ", categoryId=" + categoryId + ", amount=" + getAmount() + ", type=" + type +
+                ", description=" + description + ", date=" + getDate() + "]";
+    }
+}
@@ -0,0 +1,98 @@
+package Backend;
+
+/**
+ * Maps the columns of a bank's CSV export to transaction fields. Columns are
+ * named by their header text, matched case-insensitively.
+ *
+ * Without a type column, the sign of the amount decides the type: negative
+ * amounts are expenses and positive amounts income.
+ */
+public class CsvColumnMapping {
+    private String dateColumn = "Date";
+    private String amountColumn = "Amount";
+    private String descriptionColumn = "Description";
+    private String typeColumn;
+    private String accountColumn;
+    private String categoryColumn;
+    private String datePattern = "yyyy-MM-dd";
+    private char delimiter = ',';
+
+    public CsvColumnMapping() {
+    }
+
+    // Getters and Setters
+    public String getDateColumn() {
+        return dateColumn;
+    }
+
+    public void setDateColumn(String dateColumn) {
+        this.dateColumn = dateColumn;
+    }
+
+    public String getAmountColumn() {
+        return amountColumn;
+    }
+
+    public void setAmountColumn(String amountColumn) {
+        this.amountColumn = amountColumn;
+    }
+
+    public String getDescriptionColumn() {
+        return descriptionColumn;
+    }
+
+    public void setDescriptionColumn(String descriptionColumn) {
+        this.descriptionColumn = descriptionColumn;
+    }
+
+    public String getTypeColumn() {
+        return typeColumn;
+    }
+
+    /**
+     * Sets the column holding the transaction type. Values such as "income",
+     * "credit" or "deposit" are income; anything else is an expense.
+     *
+     * @param typeColumn the header of the type column, or null to use the amount's sign
+     */
+    public void setTypeColumn(String typeColumn) {
+        this.typeColumn = typeColumn;
+    }
+
+    public String getAccountColumn() {
+        return accountColumn;
+    }
+
+    public void setAccountColumn(String accountColumn) {
+        this.accountColumn = accountColumn;
+    }
+
+    public String getCategoryColumn() {
+        return categoryColumn;
+    }
+
+    public void setCategoryColumn(String categoryColumn) {
+        this.categoryColumn = categoryColumn;
+    }
+
+    public String getDatePattern() {
+        return datePattern;
+    }
+
+    /**
+     * Sets the date format, as a java.time.format.DateTimeFormatter pattern.
+     *
+     * @param datePattern the pattern, e.g. "MM/dd/yyyy"
+     */
+    public void setDatePattern(String datePattern) {
+        this.datePattern = datePattern;
+    }
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    public void setDelimiter(char delimiter) {
+        this.delimiter = delimiter;
+    }
+}
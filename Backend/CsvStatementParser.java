@@ -0,0 +1,228 @@
+package Backend;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads a CSV bank statement one record at a time. The first record must be
+ * a header naming the columns; see {@link CsvColumnMapping}. A header lacking
+ * a required column fails every call with a fatal StatementFormatException. Quoted fields may
+ * contain delimiters, doubled quotes and line breaks, as in RFC 4180.
+ */
+public class CsvStatementParser implements StatementParser {
+    private static final String[] INCOME_WORDS = {"income", "credit", "deposit", "cr"};
+
+    private final BufferedReader reader;
+    private final CsvColumnMapping mapping;
+    private final DateTimeFormatter dateFormat;
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+
+    private long lineNumber = 1;
+    private long recordLine;
+    private boolean headerRead;
+    private StatementFormatException headerError;
+    private int dateIndex;
+    private int amountIndex;
+    private int descriptionIndex;
+    private int typeIndex = -1;
+    private int accountIndex = -1;
+    private int categoryIndex = -1;
+
+    /**
+     * @param reader the statement text; it is buffered internally
+     * @param mapping the column mapping for this bank's format
+     */
+    public CsvStatementParser(Reader reader, CsvColumnMapping mapping) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        this.mapping = mapping;
+        this.dateFormat = DateTimeFormatter.ofPattern(mapping.getDatePattern(), Locale.ROOT);
+    }
+
+    @Override
+    public StatementRow next() throws StatementFormatException, IOException {
+        if (headerError != null) {
+            throw headerError;
+        }
+        if (!headerRead) {
+            try {
+                readHeader();
+            } catch (StatementFormatException e) {
+                // Without the header no column can be located, so no row can be read
+                headerError = e;
+                throw e;
+            }
+        }
+
+        do {
+            if (!readRecord()) {
+                return null;
+            }
+        } while (fields.size() == 1 && fields.get(0).trim().isEmpty()); // blank line
+
+        return toRow();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readHeader() throws StatementFormatException, IOException {
+        headerRead = true;
+        if (!readRecord()) {
+            throw new StatementFormatException(recordLine, "Statement is empty", true);
+        }
+        List<String> header = new ArrayList<>(fields);
+        if (!header.isEmpty() && header.get(0).startsWith("\uFEFF")) {
+            header.set(0, header.get(0).substring(1));
+        }
+        dateIndex = requiredColumn(header, mapping.getDateColumn());
+        amountIndex = requiredColumn(header, mapping.getAmountColumn());
+        descriptionIndex = requiredColumn(header, mapping.getDescriptionColumn());
+        typeIndex = columnIndex(header, mapping.getTypeColumn());
+        accountIndex = columnIndex(header, mapping.getAccountColumn());
+        categoryIndex = columnIndex(header, mapping.getCategoryColumn());
+    }
+
+    private int requiredColumn(List<String> header, String name) throws StatementFormatException {
+        int index = columnIndex(header, name);
+        if (index < 0) {
+            throw new StatementFormatException(recordLine, "Missing column \"" + name + "\" in header " + header, true);
+        }
+        return index;
+    }
+
+    private static int columnIndex(List<String> header, String name) {
+        if (name == null) {
+            return -1;
+        }
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).trim().equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private StatementRow toRow() throws StatementFormatException {
+        StatementRow row = new StatementRow();
+        row.setLineNumber(recordLine);
+
+        String dateText = field(dateIndex);
+        String amountText = field(amountIndex);
+        if (dateText == null || amountText == null) {
+            throw new StatementFormatException(recordLine, "Missing date or amount");
+        }
+        try {
+            row.setDate(LocalDate.parse(dateText, dateFormat));
+        } catch (DateTimeParseException e) {
+            throw new StatementFormatException(recordLine, "Bad date \"" + dateText + "\"", e);
+        }
+        BigDecimal amount;
+        try {
+            amount = StatementValues.parseAmount(amountText);
+        } catch (NumberFormatException e) {
+            throw new StatementFormatException(recordLine, "Bad amount \"" + amountText + "\"", e);
+        }
+
+        if (typeIndex >= 0) {
+            row.setType(isIncome(field(typeIndex)) ? TransactionType.INCOME : TransactionType.EXPENSE);
+            row.setAmount(amount.abs());
+        } else {
+            StatementValues.setSignedAmount(row, amount);
+        }
+
+        row.setDescription(field(descriptionIndex));
+        row.setAccountName(accountIndex >= 0 ? field(accountIndex) : null);
+        row.setCategoryName(categoryIndex >= 0 ? field(categoryIndex) : null);
+        return row;
+    }
+
+    private static boolean isIncome(String type) {
+        if (type != null) {
+            for (String word : INCOME_WORDS) {
+                if (word.equalsIgnoreCase(type)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private String field(int index) {
+        return index < fields.size() ? StatementValues.emptyToNull(fields.get(index)) : null;
+    }
+
+    /**
+     * Reads the next record into fields.
+     *
+     * @return false at the end of the input
+     */
+    private boolean readRecord() throws StatementFormatException, IOException {
+        fields.clear();
+        field.setLength(0);
+        recordLine = lineNumber;
+        char delimiter = mapping.getDelimiter();
+        boolean quoted = false;
+        boolean any = false;
+
+        int c;
+        while ((c = reader.read()) != -1) {
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int following = reader.read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (following != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                lineNumber++;
+                fields.add(field.toString());
+                return true;
+            } else {
+                field.append((char) c);
+            }
+        }
+
+        if (quoted) {
+            throw new StatementFormatException(recordLine, "Unterminated quoted field");
+        }
+        if (!any) {
+            return false;
+        }
+        fields.add(field.toString());
+        return true;
+    }
+}
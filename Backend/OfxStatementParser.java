@@ -0,0 +1,156 @@
+package Backend;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Reads the transactions (STMTTRN records) of an OFX bank statement one at a
+ * time. Handles both OFX 1.x SGML, where leaf elements have no closing tag,
+ * and OFX 2.x XML. The description is the NAME element, or MEMO if there is
+ * no NAME; OFX carries no account or category names.
+ */
+public class OfxStatementParser implements StatementParser {
+    private final BufferedReader reader;
+    private final StringBuilder text = new StringBuilder();
+    private long lineNumber = 1;
+
+    /**
+     * @param reader the statement text; it is buffered internally
+     */
+    public OfxStatementParser(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    @Override
+    public StatementRow next() throws StatementFormatException, IOException {
+        String tag;
+        while ((tag = readTag()) != null) {
+            if (tag.equals("STMTTRN")) {
+                return readTransaction();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private StatementRow readTransaction() throws StatementFormatException, IOException {
+        long startLine = lineNumber;
+        String posted = null;
+        String amount = null;
+        String name = null;
+        String memo = null;
+
+        String tag;
+        while ((tag = readTag()) != null && !tag.equals("/STMTTRN")) {
+            switch (tag) {
+                case "DTPOSTED":
+                    posted = readValue();
+                    break;
+                case "TRNAMT":
+                    amount = readValue();
+                    break;
+                case "NAME":
+                    name = readValue();
+                    break;
+                case "MEMO":
+                    memo = readValue();
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (tag == null) {
+            throw new StatementFormatException(startLine, "Unterminated STMTTRN record");
+        }
+
+        StatementRow row = new StatementRow();
+        row.setLineNumber(startLine);
+        if (posted == null || posted.length() < 8) {
+            throw new StatementFormatException(startLine, "Missing or bad DTPOSTED \"" + posted + "\"");
+        }
+        try {
+            row.setDate(LocalDate.of(Integer.parseInt(posted.substring(0, 4)),
+                    Integer.parseInt(posted.substring(4, 6)), Integer.parseInt(posted.substring(6, 8))));
+        } catch (NumberFormatException | DateTimeException e) {
+            throw new StatementFormatException(startLine, "Bad DTPOSTED \"" + posted + "\"", e);
+        }
+        if (amount == null) {
+            throw new StatementFormatException(startLine, "Missing TRNAMT");
+        }
+        BigDecimal signed;
+        try {
+            signed = StatementValues.parseAmount(amount);
+        } catch (NumberFormatException e) {
+            throw new StatementFormatException(startLine, "Bad TRNAMT \"" + amount + "\"", e);
+        }
+        StatementValues.setSignedAmount(row, signed);
+        row.setDescription(name != null ? name : memo);
+        return row;
+    }
+
+    /**
+     * Skips to the next tag and returns its name, upper-cased, with a leading
+     * '/' for closing tags. Processing instructions are skipped.
+     *
+     * @return the tag name, or null at the end of the input
+     */
+    private String readTag() throws IOException {
+        int c;
+        while (true) {
+            while ((c = reader.read()) != -1 && c != '<') {
+                if (c == '\n') {
+                    lineNumber++;
+                }
+            }
+            if (c == -1) {
+                return null;
+            }
+            text.setLength(0);
+            while ((c = reader.read()) != -1 && c != '>') {
+                text.append((char) c);
+            }
+            if (text.length() > 0 && text.charAt(0) != '?' && text.charAt(0) != '!') {
+                return text.toString().trim().toUpperCase(Locale.ROOT);
+            }
+        }
+    }
+
+    /**
+     * Reads the text after a tag up to the next tag, leaving that tag unread.
+     *
+     * @return the trimmed, entity-decoded value, or null if empty
+     */
+    private String readValue() throws IOException {
+        text.setLength(0);
+        while (true) {
+            reader.mark(1);
+            int c = reader.read();
+            if (c == -1) {
+                break;
+            }
+            if (c == '<') {
+                reader.reset();
+                break;
+            }
+            if (c == '\n') {
+                lineNumber++;
+            }
+            text.append((char) c);
+        }
+        String value = StatementValues.emptyToNull(text.toString());
+        if (value == null || value.indexOf('&') < 0) {
+            return value;
+        }
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&apos;", "'").replace("&nbsp;", " ").replace("&amp;", "&");
+    }
+}
@@ -0,0 +1,218 @@
+package Backend;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Groups the rows of a {@link TransactionLedger} by any combination of
+ * category, account, type and time bucket and computes count, sum, min, max
+ * and average per group.
+ *
+ * Results match the equivalent SQL, for example grouping by category and month:
+ * <pre>
+ * SELECT categoryId, DATE_FORMAT(date, '%Y-%m-01'), COUNT(*), SUM(amount),
+ *        MIN(amount), MAX(amount), AVG(amount)
+ * FROM Transactions WHERE userId = ? AND NOT transfer GROUP BY 1, 2
+ * </pre>
+ * Transfer legs are left out: moving money between a user's own accounts is
+ * neither spending nor income.
+ * Large ledgers are split into ranges aggregated in parallel on a fork-join
+ * pool and the partial groups merged. Benchmark.AggregationParityCheck compares
+ * every grouping against the database's GROUP BY.
+ */
+public class SpendingAggregator {
+
+    /**
+     * Attributes a ledger can be grouped by, besides time.
+     */
+    public enum Dimension {
+        CATEGORY, ACCOUNT, TYPE
+    }
+
+    /**
+     * Time buckets, each identified by its first day.
+     */
+    public enum TimeBucket {
+        /** No time grouping. */
+        NONE,
+        /** The transaction date itself. */
+        DAY,
+        /** Monday-based week, as DATE_SUB(date, INTERVAL WEEKDAY(date) DAY). */
+        WEEK,
+        /** Calendar month, as DATE_FORMAT(date, '%Y-%m-01'). */
+        MONTH,
+        /** Calendar year, as MAKEDATE(YEAR(date), 1). */
+        YEAR;
+
+        long startOf(long epochDay) {
+            switch (this) {
+                case DAY:
+                    return epochDay;
+                case WEEK:
+                    // 1970-01-01 was a Thursday, three days after a Monday
+                    return epochDay - Math.floorMod(epochDay + 3, 7);
+                case MONTH:
+                    return LocalDate.ofEpochDay(epochDay).withDayOfMonth(1).toEpochDay();
+                case YEAR:
+                    return LocalDate.ofEpochDay(epochDay).withDayOfYear(1).toEpochDay();
+                default:
+                    return AggregateKey.PERIOD_NOT_GROUPED;
+            }
+        }
+    }
+
+    /**
+     * Rows per leaf task; smaller ranges are aggregated sequentially.
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 16_384;
+
+    private final ForkJoinPool pool;
+    private final ZoneId zone;
+
+    /**
+     * Creates an aggregator running on the common fork-join pool and bucketing
+     * dates in the system time zone, as java.util.Date values from the DAO are.
+     */
+    public SpendingAggregator() {
+        this(ForkJoinPool.commonPool(), ZoneId.systemDefault());
+    }
+
+    public SpendingAggregator(ForkJoinPool pool, ZoneId zone) {
+        this.pool = pool;
+        this.zone = zone;
+    }
+
+    /**
+     * Aggregates every row of the ledger except transfers.
+     *
+     * @param ledger the ledger to aggregate
+     * @param dimensions the dimensions to group by; empty for one overall group
+     * @param bucket the time bucket to group by
+     * @return unmodifiable map of group to result
+     */
+    public Map<AggregateKey, AggregateResult> aggregate(TransactionLedger ledger, Set<Dimension> dimensions,
+                                                        TimeBucket bucket) {
+        return aggregate(ledger, dimensions, bucket, null);
+    }
+
+    /**
+     * Aggregates the rows of one type, e.g. EXPENSE for spending reports.
+     *
+     * @param ledger the ledger to aggregate
+     * @param dimensions the dimensions to group by; empty for one overall group
+     * @param bucket the time bucket to group by
+     * @param type the type of rows to aggregate, or null for all rows
+     * @return unmodifiable map of group to result
+     */
+    public Map<AggregateKey, AggregateResult> aggregate(TransactionLedger ledger, Set<Dimension> dimensions,
+                                                        TimeBucket bucket, TransactionType type) {
+        byte typeFilter = type == null ? AggregateKey.TYPE_NOT_GROUPED
+                : type == TransactionType.INCOME ? TransactionLedger.TYPE_INCOME : TransactionLedger.TYPE_EXPENSE;
+        Set<Dimension> grouped = dimensions.isEmpty() ? EnumSet.noneOf(Dimension.class) : EnumSet.copyOf(dimensions);
+        AggregationTask task = new AggregationTask(ledger, 0, ledger.size(),
+                grouped.contains(Dimension.CATEGORY), grouped.contains(Dimension.ACCOUNT),
+                grouped.contains(Dimension.TYPE), bucket, typeFilter);
+        Map<AggregateKey, AggregateResult> groups = ledger.size() <= SEQUENTIAL_THRESHOLD
+                ? task.compute() : pool.invoke(task);
+        return Collections.unmodifiableMap(groups);
+    }
+
+    private final class AggregationTask extends RecursiveTask<Map<AggregateKey, AggregateResult>> {
+        private static final long serialVersionUID = 1L;
+
+        private final TransactionLedger ledger;
+        private final int from;
+        private final int to;
+        private final boolean byCategory;
+        private final boolean byAccount;
+        private final boolean byType;
+        private final TimeBucket bucket;
+        private final byte typeFilter;
+
+        private AggregationTask(TransactionLedger ledger, int from, int to, boolean byCategory, boolean byAccount,
+                                boolean byType, TimeBucket bucket, byte typeFilter) {
+            this.ledger = ledger;
+            this.from = from;
+            this.to = to;
+            this.byCategory = byCategory;
+            this.byAccount = byAccount;
+            this.byType = byType;
+            this.bucket = bucket;
+            this.typeFilter = typeFilter;
+        }
+
+        @Override
+        protected Map<AggregateKey, AggregateResult> compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                return aggregateRange();
+            }
+
+            int mid = (from + to) >>> 1;
+            AggregationTask left = new AggregationTask(ledger, from, mid, byCategory, byAccount, byType, bucket, typeFilter);
+            AggregationTask right = new AggregationTask(ledger, mid, to, byCategory, byAccount, byType, bucket, typeFilter);
+            left.fork();
+            Map<AggregateKey, AggregateResult> merged = right.compute();
+            Map<AggregateKey, AggregateResult> other = left.join();
+            if (other.size() > merged.size()) {
+                Map<AggregateKey, AggregateResult> swap = merged;
+                merged = other;
+                other = swap;
+            }
+            for (Map.Entry<AggregateKey, AggregateResult> group : other.entrySet()) {
+                AggregateResult existing = merged.putIfAbsent(group.getKey(), group.getValue());
+                if (existing != null) {
+                    existing.merge(group.getValue());
+                }
+            }
+            return merged;
+        }
+
+        private Map<AggregateKey, AggregateResult> aggregateRange() {
+            Map<AggregateKey, AggregateResult> groups = new HashMap<>();
+            AggregateKey probe = new AggregateKey();
+            boolean byTime = bucket != TimeBucket.NONE;
+
+            // Ledgers are date ordered, so consecutive rows usually share a date
+            long lastMillis = Long.MIN_VALUE;
+            long period = AggregateKey.PERIOD_NOT_GROUPED;
+
+            for (int row = from; row < to; row++) {
+                if (ledger.isTransfer(row)) {
+                    continue;
+                }
+                byte type = ledger.getType(row);
+                if (typeFilter != AggregateKey.TYPE_NOT_GROUPED && type != typeFilter) {
+                    continue;
+                }
+                if (byTime) {
+                    long millis = ledger.getDateMillis(row);
+                    if (millis != lastMillis) {
+                        lastMillis = millis;
+                        long epochDay = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate().toEpochDay();
+                        period = bucket.startOf(epochDay);
+                    }
+                }
+
+                probe.set(byCategory ? ledger.getCategoryId(row) : AggregateKey.NOT_GROUPED,
+                        byAccount ? ledger.getAccountId(row) : AggregateKey.NOT_GROUPED,
+                        byType ? type : AggregateKey.TYPE_NOT_GROUPED,
+                        period);
+                AggregateResult result = groups.get(probe);
+                if (result == null) {
+                    result = new AggregateResult();
+                    groups.put(probe.copy(), result);
+                }
+                result.add(ledger.getAmountCents(row));
+            }
+            return groups;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package Backend;
+
+/**
+ * Thrown when one row of a bank statement cannot be parsed, or, if
+ * {@link #isFatal()}, when the statement as a whole cannot be (such as a
+ * CSV header that lacks a required column).
+ */
+public class StatementFormatException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final long lineNumber;
+    private final boolean fatal;
+
+    public StatementFormatException(long lineNumber, String message) {
+        this(lineNumber, message, false);
+    }
+
+    public StatementFormatException(long lineNumber, String message, boolean fatal) {
+        super("Line " + lineNumber + ": " + message);
+        this.lineNumber = lineNumber;
+        this.fatal = fatal;
+    }
+
+    public StatementFormatException(long lineNumber, String message, Throwable cause) {
+        super("Line " + lineNumber + ": " + message, cause);
+        this.lineNumber = lineNumber;
+        this.fatal = false;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Checks whether no further rows can be read from the statement.
+     *
+     * @return true if the parser throws this again on every later call
+     */
+    public boolean isFatal() {
+        return fatal;
+    }
+}
@@ -0,0 +1,22 @@
+package Backend;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads a bank statement file one transaction at a time, so that files of any
+ * size can be imported in bounded memory.
+ */
+public interface StatementParser extends Closeable {
+
+    /**
+     * Reads the next transaction.
+     *
+     * @return the next row, or null at the end of the file
+     * @throws StatementFormatException if the next row is malformed; the parser
+     *         has already moved past it, so reading can continue, unless the
+     *         exception {@link StatementFormatException#isFatal() is fatal}
+     * @throws IOException if the file cannot be read
+     */
+    StatementRow next() throws StatementFormatException, IOException;
+}
@@ -0,0 +1,111 @@
+package Backend;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One transaction read from a bank statement file, before it is matched to
+ * the user's accounts and categories.
+ */
+public class StatementRow {
+    private long lineNumber;
+    private LocalDate date;
+    private BigDecimal amount;
+    private TransactionType type;
+    private String description;
+    private String accountName;
+    private String categoryName;
+
+    public StatementRow() {
+    }
+
+    public StatementRow(long lineNumber, LocalDate date, BigDecimal amount, TransactionType type,
+                        String description, String accountName, String categoryName) {
+        this.lineNumber = lineNumber;
+        this.date = date;
+        this.amount = amount;
+        this.type = type;
+        this.description = description;
+        this.accountName = accountName;
+        this.categoryName = categoryName;
+    }
+
+    // Getters and Setters
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public void setLineNumber(long lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    /**
+     * Gets the unsigned amount; the direction is given by the type.
+     *
+     * @return the amount, never negative
+     */
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public TransactionType getType() {
+        return type;
+    }
+
+    public void setType(TransactionType type) {
+        this.type = type;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Gets the account named in the file, if the format carries one.
+     *
+     * @return the account name, or null
+     */
+    public String getAccountName() {
+        return accountName;
+    }
+
+    public void setAccountName(String accountName) {
+        this.accountName = accountName;
+    }
+
+    /**
+     * Gets the category named in the file, if the format carries one.
+     *
+     * @return the category name, or null
+     */
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    public void setCategoryName(String categoryName) {
+        this.categoryName = categoryName;
+    }
+
+    @Override
+    public String toString() {
+        return "StatementRow [line=" + lineNumber + ", date=" + date + ", amount=" + amount +
+                ", type=" + type + ", description=" + description + ", accountName=" + accountName +
+                ", categoryName=" + categoryName + "]";
+    }
+}
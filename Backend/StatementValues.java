@@ -0,0 +1,55 @@
+package Backend;
+
+import java.math.BigDecimal;
+
+/**
+ * Value parsing shared by the statement parsers.
+ */
+final class StatementValues {
+
+    private StatementValues() {
+    }
+
+    /**
+     * Parses an amount as banks write it: currency symbols, spaces and
+     * thousands separators are ignored, and "(12.00)" means -12.00.
+     *
+     * @param text the amount text
+     * @return the signed amount
+     * @throws NumberFormatException if no number can be read
+     */
+    static BigDecimal parseAmount(String text) {
+        StringBuilder digits = new StringBuilder(text.length());
+        boolean negative = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c >= '0' && c <= '9') || c == '.') {
+                digits.append(c);
+            } else if (c == '-' || c == '(') {
+                negative = true;
+            }
+        }
+        if (digits.length() == 0) {
+            throw new NumberFormatException("No amount in \"" + text + "\"");
+        }
+        BigDecimal amount = new BigDecimal(digits.toString());
+        return negative ? amount.negate() : amount;
+    }
+
+    /**
+     * Sets the row's amount and type from a signed amount: negative is an
+     * expense, anything else income.
+     */
+    static void setSignedAmount(StatementRow row, BigDecimal signed) {
+        row.setType(signed.signum() < 0 ? TransactionType.EXPENSE : TransactionType.INCOME);
+        row.setAmount(signed.abs());
+    }
+
+    static String emptyToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
@@ -15,6 +15,7 @@ public class Transaction {
     private String type; // "INCOME" or "EXPENSE"
     private String description;
     private Date date;
+    private boolean transfer; // true for either leg of a transfer between the user's accounts
 
     // Additional fields for joining with other tables
     private String accountName;
@@ -100,6 +101,14 @@ public class Transaction {
         this.date = date;
     }
 
+    public boolean isTransfer() {
+        return transfer;
+    }
+
+    public void setTransfer(boolean transfer) {
+        this.transfer = transfer;
+    }
+
     public String getAccountName() {
         return accountName;
     }
@@ -120,6 +129,6 @@ public class Transaction {
     public String toString() {
         return "Transaction [id=" + id + ", userId=" + userId + ", accountId=" + accountId +
                 ", categoryId=" + categoryId + ", amount=" + amount + ", type=" + type +
-                ", description=" + description + ", date=" + date + "]";
+                ", description=" + description + ", date=" + date + ", transfer=" + transfer + "]";
     }
 }
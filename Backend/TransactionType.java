@@ -0,0 +1,20 @@
+package Backend;
+
+/**
+ * Kind of a transaction: money coming into or going out of an account.
+ */
+public enum TransactionType {
+    INCOME,
+    EXPENSE;
+
+    /**
+     * Parses the type as stored in the database or in Transaction.getType().
+     *
+     * @param type "INCOME" or "EXPENSE", in any case
+     * @return the matching TransactionType; anything other than income is an expense,
+     *         as balance calculations have always treated it
+     */
+    public static TransactionType fromString(String type) {
+        return "INCOME".equalsIgnoreCase(type) ? INCOME : EXPENSE;
+    }
+}
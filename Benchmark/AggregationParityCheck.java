@@ -0,0 +1,267 @@
+package Benchmark;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import Backend.Account;
+import Backend.AggregateKey;
+import Backend.AggregateResult;
+import Backend.Category;
+import Backend.SpendingAggregator;
+import Backend.SpendingAggregator.Dimension;
+import Backend.SpendingAggregator.TimeBucket;
+import Backend.Transaction;
+import Backend.TransactionLedger;
+import Backend.TransactionType;
+import Backend.User;
+import Database.AccountDAO;
+import Database.CategoryDAO;
+import Database.DBConnection;
+import Database.TransactionDAO;
+import Database.UserDAO;
+
+/**
+ * Checks that {@link SpendingAggregator} returns the same groups as SQL GROUP BY.
+ *
+ * Seeds a throwaway user with random transactions, then for every combination
+ * of dimensions, time bucket and type filter compares count, sum, min, max and
+ * average of each group with the equivalent query. The seeded data is removed
+ * afterwards. The time buckets use MySQL date functions, so point DBConnection
+ * at MySQL, and run with the JVM in the database session's time zone:
+ * <pre>
+ * java -cp mysql-connector-j.jar:. -Duser.timezone=UTC \
+ *      -Dpfinance.jdbc.url=jdbc:mysql://localhost:3306/pfinance_test \
+ *      Benchmark.AggregationParityCheck --transactions 50000
+ * </pre>
+ *
+ * Options: --transactions N (default 20000). Exits with status 1 if any
+ * grouping differs.
+ */
+public class AggregationParityCheck {
+
+    private final UserDAO userDAO = new UserDAO();
+    private final AccountDAO accountDAO = new AccountDAO();
+    private final CategoryDAO categoryDAO = new CategoryDAO();
+    private final TransactionDAO transactionDAO = new TransactionDAO();
+    private final SpendingAggregator aggregator = new SpendingAggregator();
+    private final Random random = new Random(42);
+
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private int userId = -1;
+
+    public static void main(String[] args) throws Exception {
+        int transactions = 20_000;
+        for (int i = 0; i < args.length - 1; i += 2) {
+            switch (args[i]) {
+                case "--transactions": transactions = Integer.parseInt(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        AggregationParityCheck check = new AggregationParityCheck();
+        int mismatches;
+        try {
+            check.seed(transactions);
+            mismatches = check.run();
+        } finally {
+            check.cleanUp();
+            DBConnection.shutdown();
+        }
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    private void seed(int transactions) throws SQLException {
+        User user = new User(0, "parity_" + runId, "parity-password", "parity_" + runId + "@example.com", "Parity", "Check");
+        userId = userDAO.createUser(user);
+        if (userId < 0) {
+            throw new IllegalStateException("Could not create parity check user");
+        }
+
+        List<Integer> accountIds = new ArrayList<>();
+        List<Integer> categoryIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            accountIds.add(accountDAO.createAccount(new Account(0, userId, "Account " + i)));
+        }
+        for (int i = 0; i < 6; i++) {
+            categoryIds.add(categoryDAO.createCategory(new Category(0, userId, "Category " + i)).getId());
+        }
+
+        long day = 24L * 60 * 60 * 1000;
+        long today = System.currentTimeMillis() / day * day;
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < transactions; i++) {
+            batch.add(new Transaction(0, userId,
+                    accountIds.get(random.nextInt(accountIds.size())),
+                    categoryIds.get(random.nextInt(categoryIds.size())),
+                    BigDecimal.valueOf(1 + random.nextInt(500_000), 2),
+                    i % 4 == 0 ? "INCOME" : "EXPENSE",
+                    "Parity transaction " + i,
+                    new Date(today - random.nextInt(1500) * day)));
+        }
+        if (transactionDAO.createTransactions(batch) != transactions) {
+            throw new IllegalStateException("Could not seed parity check transactions");
+        }
+    }
+
+    private int run() throws SQLException {
+        TransactionLedger ledger = transactionDAO.loadLedger(userId);
+        int checked = 0;
+        int mismatches = 0;
+        for (Set<Dimension> dimensions : dimensionSets()) {
+            for (TimeBucket bucket : TimeBucket.values()) {
+                for (TransactionType type : new TransactionType[] {null, TransactionType.INCOME, TransactionType.EXPENSE}) {
+                    String grouping = dimensions + " by " + bucket + (type != null ? " where " + type : "");
+                    Map<String, String> expected = queryGroups(dimensions, bucket, type);
+                    Map<String, String> actual = new HashMap<>();
+                    for (Map.Entry<AggregateKey, AggregateResult> group
+                            : aggregator.aggregate(ledger, dimensions, bucket, type).entrySet()) {
+                        AggregateKey key = group.getKey();
+                        AggregateResult result = group.getValue();
+                        actual.put(groupKey(key.getCategoryId(), key.getAccountId(), key.getType(), key.getPeriodStart()),
+                                values(result.getCount(), result.getSum(), result.getMin(), result.getMax(),
+                                        result.getAverage()));
+                    }
+                    checked++;
+                    if (!expected.equals(actual)) {
+                        mismatches++;
+                        report(grouping, expected, actual);
+                    }
+                }
+            }
+        }
+        System.out.printf("%d of %d groupings match SQL GROUP BY over %,d transactions%n",
+                checked - mismatches, checked, ledger.size());
+        return mismatches;
+    }
+
+    /**
+     * Runs the GROUP BY equivalent of one aggregation.
+     */
+    private Map<String, String> queryGroups(Set<Dimension> dimensions, TimeBucket bucket, TransactionType type)
+            throws SQLException {
+        String category = dimensions.contains(Dimension.CATEGORY) ? "categoryId" : "NULL";
+        String account = dimensions.contains(Dimension.ACCOUNT) ? "accountId" : "NULL";
+        String typeColumn = dimensions.contains(Dimension.TYPE) ? "UPPER(type)" : "NULL";
+        String sql = "SELECT " + category + ", " + account + ", " + typeColumn + ", " + periodExpression(bucket) + ", " +
+                "COUNT(*), SUM(amount), MIN(amount), MAX(amount), AVG(amount) " +
+                "FROM Transactions WHERE userId = ? AND NOT transfer" +
+                (type != null ? " AND UPPER(type) = ?" : "") +
+                " GROUP BY 1, 2, 3, 4";
+
+        Map<String, String> groups = new HashMap<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            if (type != null) {
+                stmt.setString(2, type.name());
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String period = rs.getString(4);
+                    groups.put(groupKey(rs.getObject(1, Integer.class), rs.getObject(2, Integer.class),
+                                    rs.getString(3), period != null ? LocalDate.parse(period.substring(0, 10)) : null),
+                            values(rs.getLong(5), rs.getBigDecimal(6), rs.getBigDecimal(7), rs.getBigDecimal(8),
+                                    rs.getBigDecimal(9)));
+                }
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Gets the SQL for a time bucket, as documented on {@link TimeBucket}.
+     */
+    private static String periodExpression(TimeBucket bucket) {
+        switch (bucket) {
+            case DAY:
+                return "DATE(date)";
+            case WEEK:
+                return "DATE_SUB(DATE(date), INTERVAL WEEKDAY(date) DAY)";
+            case MONTH:
+                return "DATE_FORMAT(date, '%Y-%m-01')";
+            case YEAR:
+                return "MAKEDATE(YEAR(date), 1)";
+            default:
+                return "NULL";
+        }
+    }
+
+    private static List<Set<Dimension>> dimensionSets() {
+        List<Set<Dimension>> sets = new ArrayList<>();
+        Dimension[] all = Dimension.values();
+        for (int mask = 0; mask < 1 << all.length; mask++) {
+            Set<Dimension> set = EnumSet.noneOf(Dimension.class);
+            for (int i = 0; i < all.length; i++) {
+                if ((mask & 1 << i) != 0) {
+                    set.add(all[i]);
+                }
+            }
+            sets.add(set);
+        }
+        return sets;
+    }
+
+    private static String groupKey(Integer categoryId, Integer accountId, String type, LocalDate period) {
+        return categoryId + "|" + accountId + "|" + type + "|" + period;
+    }
+
+    /**
+     * Formats a group's values so that equal amounts compare equal whatever their scale.
+     */
+    private static String values(long count, BigDecimal sum, BigDecimal min, BigDecimal max, BigDecimal average) {
+        return "count=" + count + ", sum=" + sum.setScale(2, RoundingMode.UNNECESSARY) +
+                ", min=" + min.setScale(2, RoundingMode.UNNECESSARY) +
+                ", max=" + max.setScale(2, RoundingMode.UNNECESSARY) +
+                ", avg=" + average.setScale(AggregateResult.AVERAGE_SCALE, RoundingMode.HALF_UP);
+    }
+
+    private static void report(String grouping, Map<String, String> expected, Map<String, String> actual) {
+        System.out.println("MISMATCH " + grouping + ": " + expected.size() + " SQL groups, " +
+                actual.size() + " aggregator groups");
+        int shown = 0;
+        for (Map.Entry<String, String> group : expected.entrySet()) {
+            String other = actual.get(group.getKey());
+            if (!group.getValue().equals(other) && shown++ < 5) {
+                System.out.println("  " + group.getKey() + "  SQL: " + group.getValue() + "  aggregator: " + other);
+            }
+        }
+        for (String key : actual.keySet()) {
+            if (!expected.containsKey(key) && shown++ < 10) {
+                System.out.println("  " + key + "  SQL: none  aggregator: " + actual.get(key));
+            }
+        }
+    }
+
+    private void cleanUp() throws SQLException {
+        if (userId < 0) {
+            return;
+        }
+        try (Connection conn = DBConnection.getConnection()) {
+            for (String table : new String[] {"Transactions", "Accounts", "Categories"}) {
+                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + table + " WHERE userId = ?")) {
+                    stmt.setInt(1, userId);
+                    stmt.executeUpdate();
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM Users WHERE id = ?")) {
+                stmt.setInt(1, userId);
+                stmt.executeUpdate();
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package Benchmark;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import Backend.Transaction;
+import Database.DBConnection;
+import Database.TransactionDAO;
+
+/**
+ * Compares inserting transactions one at a time with TransactionDAO.createTransaction
+ * against the batched TransactionDAO.createTransactions path.
+ *
+ * Usage: java Benchmark.BulkInsertBenchmark userId accountId categoryId [rows] [batchSize]
+ *
+ * Rows are written to the configured database and removed again afterwards.
+ */
+public class BulkInsertBenchmark {
+    private static final String DESCRIPTION_PREFIX = "bulk-insert-benchmark ";
+
+    public static void main(String[] args) throws SQLException {
+        if (args.length < 3) {
+            System.err.println("Usage: BulkInsertBenchmark userId accountId categoryId [rows] [batchSize]");
+            System.exit(1);
+        }
+        int userId = Integer.parseInt(args[0]);
+        int accountId = Integer.parseInt(args[1]);
+        int categoryId = Integer.parseInt(args[2]);
+        int rows = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+        int batchSize = args.length > 4 ? Integer.parseInt(args[4]) : TransactionDAO.DEFAULT_BATCH_SIZE;
+
+        TransactionDAO dao = new TransactionDAO();
+        try {
+            // Warm up the pool and the server-side statement paths
+            dao.createTransactions(generate(userId, accountId, categoryId, Math.min(rows, 1000)), batchSize);
+            cleanUp(userId);
+
+            long start = System.nanoTime();
+            for (Transaction transaction : generate(userId, accountId, categoryId, rows)) {
+                dao.createTransaction(transaction);
+            }
+            report("per-row createTransaction", rows, System.nanoTime() - start);
+            cleanUp(userId);
+
+            start = System.nanoTime();
+            int inserted = dao.createTransactions(generate(userId, accountId, categoryId, rows), batchSize);
+            report("createTransactions (batch " + batchSize + ")", inserted, System.nanoTime() - start);
+        } finally {
+            cleanUp(userId);
+            DBConnection.shutdown();
+        }
+    }
+
+    private static List<Transaction> generate(int userId, int accountId, int categoryId, int rows) {
+        List<Transaction> transactions = new ArrayList<>(rows);
+        long day = 24L * 60 * 60 * 1000;
+        long today = System.currentTimeMillis() / day * day;
+        for (int i = 0; i < rows; i++) {
+            transactions.add(new Transaction(0, userId, accountId, categoryId,
+                    BigDecimal.valueOf(100 + i % 10_000, 2),
+                    i % 5 == 0 ? "INCOME" : "EXPENSE",
+                    DESCRIPTION_PREFIX + i,
+                    new Date(today - (i % 3650) * day)));
+        }
+        return transactions;
+    }
+
+    private static void report(String label, int rows, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%-40s %,10d rows in %8.3f s = %,12.0f rows/s%n", label, rows, seconds, rows / seconds);
+    }
+
+    private static void cleanUp(int userId) throws SQLException {
+        String sql = "DELETE FROM Transactions WHERE userId = ? AND description LIKE ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            stmt.setString(2, DESCRIPTION_PREFIX + "%");
+            stmt.executeUpdate();
+        }
+    }
+}
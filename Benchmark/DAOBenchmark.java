@@ -0,0 +1,296 @@
+package Benchmark;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import Backend.Account;
+import Backend.Category;
+import Backend.Transaction;
+import Backend.User;
+import Database.AccountDAO;
+import Database.CategoryDAO;
+import Database.DBConnection;
+import Database.TransactionDAO;
+import Database.UserDAO;
+
+/**
+ * Benchmark suite for every operation of the DAO layer.
+ *
+ * Seeds a throwaway user with a configurable number of transactions, runs each
+ * DAO operation through warmup and measurement iterations, and reports
+ * throughput plus latency percentiles per operation. The seeded data is removed
+ * afterwards.
+ *
+ * The database is whatever DBConnection points at; use the pfinance.jdbc.*
+ * system properties to target an embedded MySQL-compatible database, e.g.
+ * <pre>
+ * java -cp h2.jar:. -Dpfinance.jdbc.driver=org.h2.Driver \
+ *      -Dpfinance.jdbc.url="jdbc:h2:mem:pfinance;MODE=MySQL;DB_CLOSE_DELAY=-1" \
+ *      -Dpfinance.stream.fetchSize=1000 \
+ *      Benchmark.DAOBenchmark --transactions 1000000
+ * </pre>
+ *
+ * Options: --transactions N (default 10000), --warmup N (default 100),
+ * --iterations N (default 1000), --only name-substring.
+ * Full-history operations run a twentieth of the iterations.
+ */
+public class DAOBenchmark {
+
+    /**
+     * One benchmarked call; the iteration number lets writes use distinct values.
+     */
+    private interface Operation {
+        void run(int iteration) throws Exception;
+    }
+
+    private static final class Benchmark {
+        private final String name;
+        private final boolean fullHistory;
+        private final Operation operation;
+
+        private Benchmark(String name, boolean fullHistory, Operation operation) {
+            this.name = name;
+            this.fullHistory = fullHistory;
+            this.operation = operation;
+        }
+    }
+
+    private final UserDAO userDAO = new UserDAO();
+    private final AccountDAO accountDAO = new AccountDAO();
+    private final CategoryDAO categoryDAO = new CategoryDAO();
+    private final TransactionDAO transactionDAO = new TransactionDAO();
+    private final Random random = new Random(42);
+
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private User user;
+    private final List<Integer> accountIds = new ArrayList<>();
+    private final List<Integer> categoryIds = new ArrayList<>();
+    private final List<Integer> transactionIds = new ArrayList<>();
+    private final List<Integer> benchmarkUserIds = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        int transactions = 10_000;
+        int warmup = 100;
+        int iterations = 1000;
+        String only = null;
+        for (int i = 0; i < args.length - 1; i += 2) {
+            switch (args[i]) {
+                case "--transactions": transactions = Integer.parseInt(args[i + 1]); break;
+                case "--warmup": warmup = Integer.parseInt(args[i + 1]); break;
+                case "--iterations": iterations = Integer.parseInt(args[i + 1]); break;
+                case "--only": only = args[i + 1]; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        DAOBenchmark benchmark = new DAOBenchmark();
+        try {
+            benchmark.seed(transactions);
+            benchmark.run(warmup, iterations, only);
+        } finally {
+            benchmark.cleanUp();
+            DBConnection.shutdown();
+        }
+    }
+
+    private void seed(int transactions) throws SQLException {
+        long start = System.nanoTime();
+        user = new User(0, "bench_" + runId, "bench-password", "bench_" + runId + "@example.com", "Bench", "User");
+        user.setId(userDAO.createUser(user));
+        if (user.getId() < 0) {
+            throw new IllegalStateException("Could not create benchmark user");
+        }
+        benchmarkUserIds.add(user.getId());
+
+        for (int i = 0; i < 5; i++) {
+            accountIds.add(accountDAO.createAccount(new Account(0, user.getId(), "Account " + i)));
+        }
+        for (int i = 0; i < 10; i++) {
+            categoryIds.add(categoryDAO.createCategory(new Category(0, user.getId(), "Category " + i)).getId());
+        }
+
+        int chunk = 100_000;
+        for (int from = 0; from < transactions; from += chunk) {
+            List<Transaction> batch = new ArrayList<>();
+            for (int i = from; i < Math.min(from + chunk, transactions); i++) {
+                batch.add(newTransaction(i));
+            }
+            transactionDAO.createTransactions(batch);
+            for (Transaction transaction : batch) {
+                transactionIds.add(transaction.getId());
+            }
+        }
+        System.out.printf("Seeded %,d transactions in %.1f s%n%n", transactions, (System.nanoTime() - start) / 1e9);
+    }
+
+    private List<Benchmark> benchmarks() {
+        int userId = user.getId();
+        Deque<Integer> createdAccounts = new ArrayDeque<>();
+        Deque<Integer> createdCategories = new ArrayDeque<>();
+        Deque<Integer> createdTransactions = new ArrayDeque<>();
+        List<Benchmark> list = new ArrayList<>();
+
+        // UserDAO
+        list.add(new Benchmark("UserDAO.authenticate", false, i -> userDAO.authenticate(user.getUsername(), user.getPassword())));
+        list.add(new Benchmark("UserDAO.getUser", false, i -> userDAO.getUser(userId)));
+        list.add(new Benchmark("UserDAO.usernameExists", false, i -> userDAO.usernameExists("bench_missing_" + i)));
+        // A null password keeps the stored hash, so this measures a profile update, not hashing
+        list.add(new Benchmark("UserDAO.updateUser", false, i -> userDAO.updateUser(new User(userId,
+                user.getUsername(), null, user.getEmail(), user.getFirstName(), "User" + (i % 10)))));
+        list.add(new Benchmark("UserDAO.createUser", false, i -> benchmarkUserIds.add(userDAO.createUser(
+                new User(0, "bench_" + runId + "_" + i, "pw", "bench_" + runId + "_" + i + "@example.com", "B", "U")))));
+
+        // AccountDAO
+        list.add(new Benchmark("AccountDAO.createAccount", false,
+                i -> createdAccounts.push(accountDAO.createAccount(new Account(0, userId, "Temp " + i)))));
+        list.add(new Benchmark("AccountDAO.getAccount", false, i -> accountDAO.getAccount(pick(accountIds))));
+        list.add(new Benchmark("AccountDAO.getUserAccounts", false, i -> accountDAO.getUserAccounts(userId)));
+        list.add(new Benchmark("AccountDAO.updateAccount", false,
+                i -> accountDAO.updateAccount(new Account(accountIds.get(0), userId, "Account 0"))));
+        list.add(new Benchmark("AccountDAO.deleteAccount", false, i -> accountDAO.deleteAccount(next(createdAccounts), userId)));
+
+        // CategoryDAO
+        list.add(new Benchmark("CategoryDAO.createCategory", false,
+                i -> createdCategories.push(categoryDAO.createCategory(new Category(0, userId, "Temp " + i)).getId())));
+        list.add(new Benchmark("CategoryDAO.getCategoryById", false, i -> categoryDAO.getCategoryById(pick(categoryIds))));
+        list.add(new Benchmark("CategoryDAO.getCategoriesByUserId", false, i -> categoryDAO.getCategoriesByUserId(userId)));
+        list.add(new Benchmark("CategoryDAO.updateCategory", false,
+                i -> categoryDAO.updateCategory(new Category(categoryIds.get(0), userId, "Category 0"))));
+        list.add(new Benchmark("CategoryDAO.deleteCategory", false, i -> categoryDAO.deleteCategory(next(createdCategories), userId)));
+
+        // TransactionDAO
+        list.add(new Benchmark("TransactionDAO.createTransaction", false,
+                i -> createdTransactions.push(transactionDAO.createTransaction(newTransaction(i)))));
+        list.add(new Benchmark("TransactionDAO.createTransactions(100)", false, i -> {
+            List<Transaction> batch = new ArrayList<>();
+            for (int j = 0; j < 100; j++) {
+                batch.add(newTransaction(j));
+            }
+            transactionDAO.createTransactions(batch);
+            for (Transaction transaction : batch) {
+                createdTransactions.push(transaction.getId());
+            }
+        }));
+        list.add(new Benchmark("TransactionDAO.getTransaction", false, i -> transactionDAO.getTransaction(pick(transactionIds), userId)));
+        list.add(new Benchmark("TransactionDAO.getUserTransactionsPage", false,
+                i -> transactionDAO.getUserTransactionsPage(userId, null, 50)));
+        list.add(new Benchmark("TransactionDAO.getAccountBalance", false, i -> transactionDAO.getAccountBalance(pick(accountIds), userId)));
+        list.add(new Benchmark("TransactionDAO.updateTransaction", false, i -> {
+            Transaction transaction = newTransaction(i);
+            transaction.setId(pick(transactionIds));
+            transactionDAO.updateTransaction(transaction);
+        }));
+        list.add(new Benchmark("TransactionDAO.deleteTransaction", false,
+                i -> transactionDAO.deleteTransaction(next(createdTransactions), userId)));
+        list.add(new Benchmark("TransactionDAO.getUserTransactions", true, i -> transactionDAO.getUserTransactions(userId)));
+        list.add(new Benchmark("TransactionDAO.getAccountTransactions", true,
+                i -> transactionDAO.getAccountTransactions(pick(accountIds), userId)));
+        list.add(new Benchmark("TransactionDAO.getCategoryTransactions", true,
+                i -> transactionDAO.getCategoryTransactions(pick(categoryIds), userId)));
+        list.add(new Benchmark("TransactionDAO.streamUserTransactions", true, i -> {
+            try (Stream<Transaction> rows = transactionDAO.streamUserTransactions(userId, true)) {
+                rows.count();
+            }
+        }));
+        list.add(new Benchmark("TransactionDAO.loadLedger", true, i -> transactionDAO.loadLedger(userId)));
+        list.add(new Benchmark("TransactionDAO.verifyAccountBalances", true, i -> transactionDAO.verifyAccountBalances(userId)));
+        return list;
+    }
+
+    private void run(int warmup, int iterations, String only) throws Exception {
+        System.out.printf("%-44s %8s %12s %10s %10s %10s %10s %10s%n",
+                "operation", "n", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Benchmark benchmark : benchmarks()) {
+            if (only != null && !benchmark.name.contains(only)) {
+                continue;
+            }
+            int measured = benchmark.fullHistory ? Math.max(iterations / 20, 5) : iterations;
+            int warm = benchmark.fullHistory ? Math.max(warmup / 20, 1) : warmup;
+            // Deletes consume what the matching create produced, so both run the same count
+            if (benchmark.name.contains(".delete")) {
+                measured = iterations;
+                warm = warmup;
+            }
+            if (benchmark.name.endsWith("createTransactions(100)")) {
+                measured = Math.max(iterations / 100, 1);
+                warm = Math.max(warmup / 100, 1);
+            }
+
+            for (int i = 0; i < warm; i++) {
+                benchmark.operation.run(i);
+            }
+            long[] samples = new long[measured];
+            long start = System.nanoTime();
+            for (int i = 0; i < measured; i++) {
+                long t0 = System.nanoTime();
+                benchmark.operation.run(warm + i);
+                samples[i] = System.nanoTime() - t0;
+            }
+            long elapsed = System.nanoTime() - start;
+            Arrays.sort(samples);
+
+            System.out.printf("%-44s %8d %12.1f %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                    benchmark.name, measured, measured / (elapsed / 1e9),
+                    percentile(samples, 0.50), percentile(samples, 0.90), percentile(samples, 0.99),
+                    percentile(samples, 0.999), samples[samples.length - 1] / 1e6);
+        }
+        System.out.println();
+        System.out.println(DBConnection.getPoolStats());
+    }
+
+    private Transaction newTransaction(int i) {
+        long day = 24L * 60 * 60 * 1000;
+        long today = System.currentTimeMillis() / day * day;
+        return new Transaction(0, user.getId(), pick(accountIds), pick(categoryIds),
+                BigDecimal.valueOf(100 + random.nextInt(100_000), 2),
+                i % 5 == 0 ? "INCOME" : "EXPENSE",
+                "Benchmark transaction " + (i % 500),
+                new Date(today - random.nextInt(3650) * day));
+    }
+
+    private int pick(List<Integer> ids) {
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    /**
+     * Takes an ID produced by a create benchmark, or -1 if that benchmark did not run.
+     */
+    private static int next(Deque<Integer> created) {
+        Integer id = created.poll();
+        return id != null ? id : -1;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private void cleanUp() throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            for (String table : new String[] {"Transactions", "Accounts", "Categories"}) {
+                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + table + " WHERE userId = ?")) {
+                    for (int userId : benchmarkUserIds) {
+                        stmt.setInt(1, userId);
+                        stmt.executeUpdate();
+                    }
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM Users WHERE id = ?")) {
+                for (int userId : benchmarkUserIds) {
+                    stmt.setInt(1, userId);
+                    stmt.executeUpdate();
+                }
+            }
+        }
+    }
+}
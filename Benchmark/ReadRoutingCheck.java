@@ -0,0 +1,167 @@
+package Benchmark;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import Backend.Account;
+import Backend.Category;
+import Backend.Transaction;
+import Backend.User;
+import Database.AccountDAO;
+import Database.CategoryDAO;
+import Database.DBConnection;
+import Database.RoutingStats;
+import Database.TransactionDAO;
+import Database.UnitOfWork;
+import Database.UserDAO;
+
+/**
+ * Checks read routing against two independent databases standing in for
+ * primary and replica, e.g. two embedded H2 databases in MySQL mode:
+ * <pre>
+ * java -cp h2.jar:. -Dpfinance.jdbc.driver=org.h2.Driver \
+ *      -Dpfinance.jdbc.url="jdbc:h2:mem:primary;MODE=MySQL;DB_CLOSE_DELAY=-1" \
+ *      -Dpfinance.jdbc.replicaUrls="jdbc:h2:mem:replica;MODE=MySQL;DB_CLOSE_DELAY=-1" \
+ *      -Dpfinance.jdbc.user=sa -Dpfinance.jdbc.password= \
+ *      -Dpfinance.schema.migrateReplicas=true \
+ *      -Dpfinance.replica.stickyMillis=500 -Dpfinance.pool.acquireTimeoutMillis=1000 \
+ *      Benchmark.ReadRoutingCheck
+ * </pre>
+ *
+ * Nothing replicates between the two, so a transaction written through the
+ * DAOs exists only on the primary, and whether a read finds it shows which
+ * database served the read. The checks: reads right after a write stick to
+ * the primary; once pfinance.replica.stickyMillis has passed they go to the
+ * replica; inside a {@link UnitOfWork} they use the primary; a login,
+ * account or category the replica cannot answer is retried on the primary;
+ * and with every replica connection taken, reads fail over to the primary.
+ * Configure exactly one replica. Exits with status 1 if any check fails.
+ */
+public class ReadRoutingCheck {
+    private static final long STICKY_MILLIS = Long.getLong("pfinance.replica.stickyMillis", 5000L);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("pfinance.pool.maxSize", 10);
+
+    private final UserDAO userDAO = new UserDAO();
+    private final AccountDAO accountDAO = new AccountDAO();
+    private final CategoryDAO categoryDAO = new CategoryDAO();
+    private final TransactionDAO transactionDAO = new TransactionDAO();
+
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final String username = "routing_" + runId;
+    private final String password = "routing-password";
+    private int userId = -1;
+    private int accountId = -1;
+    private int categoryId = -1;
+    private int failures;
+
+    public static void main(String[] args) throws Exception {
+        if (DBConnection.getRoutingStats().getReplicaPools().size() != 1) {
+            System.err.println("Set pfinance.jdbc.replicaUrls to exactly one replica URL");
+            System.exit(1);
+        }
+
+        ReadRoutingCheck check = new ReadRoutingCheck();
+        try {
+            check.seed();
+            check.run();
+        } finally {
+            check.cleanUp();
+            DBConnection.shutdown();
+        }
+        System.out.println(DBConnection.getRoutingStats());
+        if (check.failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private void seed() throws SQLException {
+        userId = userDAO.createUser(new User(0, username, password, username + "@example.com", "Routing", "Check"));
+        if (userId < 0) {
+            throw new IllegalStateException("Could not create routing check user");
+        }
+        accountId = accountDAO.createAccount(new Account(0, userId, "Routing account"));
+        categoryId = categoryDAO.createCategory(new Category(0, userId, "Routing category")).getId();
+        if (transactionDAO.createTransaction(new Transaction(0, userId, accountId, categoryId,
+                new BigDecimal("12.34"), "EXPENSE", "Routing check", new Date())) < 0) {
+            throw new IllegalStateException("Could not seed routing check transaction");
+        }
+    }
+
+    private void run() throws SQLException, InterruptedException {
+        RoutingStats before = DBConnection.getRoutingStats();
+        int found = transactionDAO.getUserTransactions(userId).size();
+        RoutingStats after = DBConnection.getRoutingStats();
+        check("reads right after a write go to the primary",
+                found == 1 && after.getStickyReads() > before.getStickyReads(),
+                found + " rows, " + (after.getStickyReads() - before.getStickyReads()) + " sticky reads");
+
+        Thread.sleep(STICKY_MILLIS + 200);
+        before = DBConnection.getRoutingStats();
+        found = transactionDAO.getUserTransactions(userId).size();
+        after = DBConnection.getRoutingStats();
+        check("reads after the sticky window go to the replica",
+                found == 0 && after.getReplicaReads() > before.getReplicaReads(),
+                found + " rows, " + (after.getReplicaReads() - before.getReplicaReads()) + " replica reads");
+
+        try (UnitOfWork unit = UnitOfWork.begin()) {
+            found = transactionDAO.getUserTransactions(userId).size();
+            unit.rollback();
+        }
+        check("reads inside a unit of work go to the primary", found == 1, found + " rows");
+
+        User user = userDAO.authenticate(username, password);
+        check("logins unknown to the replica are retried on the primary", user != null, "user not found");
+        check("accounts unknown to the replica are retried on the primary",
+                accountDAO.getAccount(accountId) != null, "account not found");
+        check("categories unknown to the replica are retried on the primary",
+                categoryDAO.getCategoryById(categoryId) != null, "category not found");
+
+        // Take every replica connection, so the next read cannot get one in time
+        List<Connection> held = new ArrayList<>();
+        try {
+            for (int i = 0; i < POOL_MAX_SIZE; i++) {
+                held.add(DBConnection.getReadConnection());
+            }
+            before = DBConnection.getRoutingStats();
+            found = transactionDAO.getUserTransactions(userId).size();
+            after = DBConnection.getRoutingStats();
+        } finally {
+            for (Connection conn : held) {
+                DBConnection.closeConnection(conn);
+            }
+        }
+        check("reads fail over to the primary when no replica connection is free",
+                found == 1 && after.getFailovers() > before.getFailovers(),
+                found + " rows, " + (after.getFailovers() - before.getFailovers()) + " failovers");
+    }
+
+    private void check(String name, boolean passed, String detail) {
+        System.out.printf("%-70s %s%n", name, passed ? "ok" : "FAILED (" + detail + ")");
+        if (!passed) {
+            failures++;
+        }
+    }
+
+    private void cleanUp() throws SQLException {
+        if (userId < 0) {
+            return;
+        }
+        try (Connection conn = DBConnection.getConnection()) {
+            for (String table : new String[] {"Transactions", "Accounts", "Categories"}) {
+                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + table + " WHERE userId = ?")) {
+                    stmt.setInt(1, userId);
+                    stmt.executeUpdate();
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM Users WHERE id = ?")) {
+                stmt.setInt(1, userId);
+                stmt.executeUpdate();
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import Backend.Account;
@@ -16,6 +17,14 @@ import Database.DBConnection;
  */
 public class AccountDAO {
 
+    /**
+     * Per-user account lists. Writes through this class invalidate the user's entry.
+     */
+    private static final ExpiringCache<Integer, List<Account>> USER_ACCOUNTS_CACHE = new ExpiringCache<>(
+            "userAccounts",
+            Integer.getInteger("pfinance.cache.maxUsers", 10_000),
+            Long.getLong("pfinance.cache.ttlMillis", 300_000L));
+
     /**
      * Creates a new account in the database.
      *
@@ -23,119 +32,164 @@ public class AccountDAO {
      * @return the generated account ID, or -1 if operation fails
      */
     public int createAccount(Account account) {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        int accountId = -1;
-
-        try {
-            conn = DBConnection.getConnection();
-            String sql = "INSERT INTO Accounts (userId, accountName) VALUES (?, ?)";
-            stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            stmt.setInt(1, account.getUserId());
-            stmt.setString(2, account.getAccountName());
-
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows > 0) {
-                rs = stmt.getGeneratedKeys();
-                if (rs.next()) {
-                    accountId = rs.getInt(1);
-                    account.setId(accountId);
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
+        return DAOMetrics.measure("AccountDAO.createAccount", () -> {
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            ResultSet rs = null;
+            int accountId = -1;
+
             try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                if (conn != null) DBConnection.closeConnection(conn);
+                conn = DBConnection.getConnection();
+                String sql = "INSERT INTO Accounts (userId, accountName) VALUES (?, ?)";
+                stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+                stmt.setInt(1, account.getUserId());
+                stmt.setString(2, account.getAccountName());
+
+                int affectedRows = stmt.executeUpdate();
+                if (affectedRows > 0) {
+                    rs = stmt.getGeneratedKeys();
+                    if (rs.next()) {
+                        accountId = rs.getInt(1);
+                        account.setId(accountId);
+                    }
+                }
             } catch (SQLException e) {
-                e.printStackTrace();
+                DAOMetrics.failed(e);
+            } finally {
+                try {
+                    if (rs != null) rs.close();
+                    if (stmt != null) stmt.close();
+                    if (conn != null) DBConnection.closeConnection(conn);
+                } catch (SQLException e) {
+                    DAOMetrics.failed(e);
+                }
             }
-        }
 
-        return accountId;
+            if (accountId != -1) {
+                DBConnection.recordWrite(account.getUserId());
+            }
+            USER_ACCOUNTS_CACHE.invalidateOnCommit(account.getUserId());
+
+            NameDictionary.invalidate(account.getUserId());
+            return accountId;
+        });
     }
 
     /**
-     * Gets an account by ID.
+     * Gets an account by ID, on a read replica. The primary is asked instead
+     * if the replica does not have the account or its owner wrote moments
+     * ago, as a replica may not yet have a new or renamed account.
      *
      * @param accountId the account ID
      * @return Account object if found, null otherwise
      */
     public Account getAccount(int accountId) {
-        Account account = null;
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
-        try {
-            conn = DBConnection.getConnection();
-            String sql = "SELECT * FROM Accounts WHERE id = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, accountId);
+        return DAOMetrics.measure("AccountDAO.getAccount", () -> {
+            Account account = null;
+
+            try {
+                try (Connection conn = DBConnection.getReadConnection()) {
+                    account = loadAccount(conn, accountId);
+                }
+                if (DBConnection.hasReplicas() && (account == null || DBConnection.wroteRecently(account.getUserId()))) {
+                    try (Connection conn = DBConnection.getConnection()) {
+                        account = loadAccount(conn, accountId);
+                    }
+                }
+            } catch (SQLException e) {
+                DAOMetrics.failed(e);
+                account = null;
+            }
+
+            return account;
+        });
+    }
 
-            rs = stmt.executeQuery();
-            if (rs.next()) {
-                account = new Account();
+    private static Account loadAccount(Connection conn, int accountId) throws SQLException {
+        String sql = "SELECT * FROM Accounts WHERE id = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, accountId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Account account = new Account();
                 account.setId(rs.getInt("id"));
                 account.setUserId(rs.getInt("userId"));
                 account.setAccountName(rs.getString("accountName"));
+                return account;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
+        }
+    }
+
+    /**
+     * Gets all accounts for a user. Results are served from a per-user cache
+     * when possible; callers receive their own copies.
+     *
+     * @param userId the user ID
+     * @return List of Account objects
+     */
+    public List<Account> getUserAccounts(int userId) {
+        return DAOMetrics.measure("AccountDAO.getUserAccounts", () -> {
+            List<Account> accounts = getCachedUserAccounts(userId);
+            if (accounts != null) {
+                return accounts;
+            }
+
+            accounts = new ArrayList<>();
+            Connection conn = null;
+
             try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                if (conn != null) DBConnection.closeConnection(conn);
+                conn = DBConnection.getReadConnection(userId);
+                accounts = loadUserAccounts(conn, userId);
             } catch (SQLException e) {
-                e.printStackTrace();
+                DAOMetrics.failed(e);
+            } finally {
+                if (conn != null) DBConnection.closeConnection(conn);
             }
-        }
 
-        return account;
+            return accounts;
+        });
     }
 
     /**
-     * Gets all accounts for a user.
+     * Gets a user's accounts from the cache.
      *
      * @param userId the user ID
+     * @return copies of the cached accounts, or null on a cache miss
+     */
+    static List<Account> getCachedUserAccounts(int userId) {
+        List<Account> cached = USER_ACCOUNTS_CACHE.get(userId);
+        return cached != null ? copyAccounts(cached) : null;
+    }
+
+    /**
+     * Loads a user's accounts on the given connection and caches them.
+     *
+     * @param conn the connection to query with
+     * @param userId the user ID
      * @return List of Account objects
+     * @throws SQLException if a database access error occurs
      */
-    public List<Account> getUserAccounts(int userId) {
+    static List<Account> loadUserAccounts(Connection conn, int userId) throws SQLException {
         List<Account> accounts = new ArrayList<>();
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
-        try {
-            conn = DBConnection.getConnection();
-            String sql = "SELECT * FROM Accounts WHERE userId = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, userId);
+        long cacheToken = USER_ACCOUNTS_CACHE.loadToken(userId);
+        String sql = "SELECT * FROM Accounts WHERE userId = ?";
 
-            rs = stmt.executeQuery();
-            while (rs.next()) {
-                Account account = new Account();
-                account.setId(rs.getInt("id"));
-                account.setUserId(rs.getInt("userId"));
-                account.setAccountName(rs.getString("accountName"));
-                accounts.add(account);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                if (conn != null) DBConnection.closeConnection(conn);
-            } catch (SQLException e) {
-                e.printStackTrace();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Account account = new Account();
+                    account.setId(rs.getInt("id"));
+                    account.setUserId(rs.getInt("userId"));
+                    account.setAccountName(rs.getString("accountName"));
+                    accounts.add(account);
+                }
             }
         }
 
+        USER_ACCOUNTS_CACHE.put(userId, Collections.unmodifiableList(copyAccounts(accounts)), cacheToken);
         return accounts;
     }
 
@@ -146,32 +200,40 @@ public class AccountDAO {
      * @return true if update succeeds, false otherwise
      */
     public boolean updateAccount(Account account) {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        boolean success = false;
-
-        try {
-            conn = DBConnection.getConnection();
-            String sql = "UPDATE Accounts SET accountName = ? WHERE id = ? AND userId = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setString(1, account.getAccountName());
-            stmt.setInt(2, account.getId());
-            stmt.setInt(3, account.getUserId());
-
-            int affectedRows = stmt.executeUpdate();
-            success = (affectedRows > 0);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
+        return DAOMetrics.measure("AccountDAO.updateAccount", () -> {
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            boolean success = false;
+
             try {
-                if (stmt != null) stmt.close();
-                if (conn != null) DBConnection.closeConnection(conn);
+                conn = DBConnection.getConnection();
+                String sql = "UPDATE Accounts SET accountName = ? WHERE id = ? AND userId = ?";
+                stmt = conn.prepareStatement(sql);
+                stmt.setString(1, account.getAccountName());
+                stmt.setInt(2, account.getId());
+                stmt.setInt(3, account.getUserId());
+
+                int affectedRows = stmt.executeUpdate();
+                success = (affectedRows > 0);
             } catch (SQLException e) {
-                e.printStackTrace();
+                DAOMetrics.failed(e);
+            } finally {
+                try {
+                    if (stmt != null) stmt.close();
+                    if (conn != null) DBConnection.closeConnection(conn);
+                } catch (SQLException e) {
+                    DAOMetrics.failed(e);
+                }
             }
-        }
 
-        return success;
+            if (success) {
+                DBConnection.recordWrite(account.getUserId());
+            }
+            USER_ACCOUNTS_CACHE.invalidateOnCommit(account.getUserId());
+
+            NameDictionary.invalidate(account.getUserId());
+            return success;
+        });
     }
 
     /**
@@ -182,30 +244,62 @@ public class AccountDAO {
      * @return true if deletion succeeds, false otherwise
      */
     public boolean deleteAccount(int accountId, int userId) {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        boolean success = false;
-
-        try {
-            conn = DBConnection.getConnection();
-            String sql = "DELETE FROM Accounts WHERE id = ? AND userId = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, accountId);
-            stmt.setInt(2, userId);
+        return DAOMetrics.measure("AccountDAO.deleteAccount", () -> {
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            boolean success = false;
 
-            int affectedRows = stmt.executeUpdate();
-            success = (affectedRows > 0);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
             try {
-                if (stmt != null) stmt.close();
-                if (conn != null) DBConnection.closeConnection(conn);
+                conn = DBConnection.getConnection();
+                String sql = "DELETE FROM Accounts WHERE id = ? AND userId = ?";
+                stmt = conn.prepareStatement(sql);
+                stmt.setInt(1, accountId);
+                stmt.setInt(2, userId);
+
+                int affectedRows = stmt.executeUpdate();
+                success = (affectedRows > 0);
             } catch (SQLException e) {
-                e.printStackTrace();
+                DAOMetrics.failed(e);
+            } finally {
+                try {
+                    if (stmt != null) stmt.close();
+                    if (conn != null) DBConnection.closeConnection(conn);
+                } catch (SQLException e) {
+                    DAOMetrics.failed(e);
+                }
             }
-        }
 
-        return success;
+            if (success) {
+                DBConnection.recordWrite(userId);
+            }
+            USER_ACCOUNTS_CACHE.invalidateOnCommit(userId);
+
+            NameDictionary.invalidate(userId);
+            // The account's transactions were deleted with it
+            if (success) {
+                DescriptionIndex.invalidate(userId);
+            }
+            return success;
+        });
+    }
+
+    /**
+     * Gets statistics for the per-user account cache.
+     *
+     * @return CacheStats snapshot
+     */
+    public static CacheStats getCacheStats() {
+        return USER_ACCOUNTS_CACHE.getStats();
+    }
+
+    /**
+     * Helper method to copy accounts so cached instances are never handed out.
+     */
+    private static List<Account> copyAccounts(List<Account> accounts) {
+        List<Account> copies = new ArrayList<>(accounts.size());
+        for (Account account : accounts) {
+            copies.add(new Account(account.getId(), account.getUserId(), account.getAccountName()));
+        }
+        return copies;
     }
 }
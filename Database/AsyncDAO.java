@@ -0,0 +1,293 @@
+package Database;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import Backend.Account;
+import Backend.Category;
+import Backend.CompactTransaction;
+import Backend.Transaction;
+import Backend.TransactionLedger;
+import Backend.User;
+
+/**
+ * Asynchronous facade over UserDAO, AccountDAO, CategoryDAO and TransactionDAO.
+ *
+ * Every method runs the matching DAO call on a virtual thread and returns a
+ * CompletableFuture, so independent queries can be fanned out together:
+ * <pre>
+ * CompletableFuture&lt;List&lt;Account&gt;&gt; accounts = async.getUserAccounts(userId);
+ * CompletableFuture&lt;List&lt;Category&gt;&gt; categories = async.getCategoriesByUserId(userId);
+ * CompletableFuture&lt;TransactionPage&gt; recent = async.getUserTransactionsPage(userId, null, 20);
+ * CompletableFuture.allOf(accounts, categories, recent).join();
+ * </pre>
+ * At most as many calls run at once as the connection pool has connections;
+ * further calls wait for a permit rather than queueing inside the pool.
+ * On runtimes without virtual threads a fixed pool of platform threads of the
+ * same size is used instead.
+ *
+ * Calls run on other threads, so they do not join a {@link UnitOfWork} open on
+ * the calling thread. The streaming and callback reads (stream*,
+ * forEachUserTransaction) are not wrapped, as they hold a connection for as
+ * long as the caller iterates; use {@link #loadLedger} or the list reads instead.
+ */
+public class AsyncDAO implements AutoCloseable {
+    private final UserDAO userDAO;
+    private final AccountDAO accountDAO;
+    private final CategoryDAO categoryDAO;
+    private final TransactionDAO transactionDAO;
+    private final DashboardDAO dashboardDAO;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+
+    /**
+     * Creates a facade over default DAO instances, limited to the connection pool size.
+     */
+    public AsyncDAO() {
+        this(new UserDAO(), new AccountDAO(), new CategoryDAO(), new TransactionDAO(),
+                DBConnection.getPoolStats().getMaxSize());
+    }
+
+    public AsyncDAO(UserDAO userDAO, AccountDAO accountDAO, CategoryDAO categoryDAO,
+                    TransactionDAO transactionDAO, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        this.userDAO = userDAO;
+        this.accountDAO = accountDAO;
+        this.categoryDAO = categoryDAO;
+        this.transactionDAO = transactionDAO;
+        this.dashboardDAO = new DashboardDAO();
+        this.executor = newExecutor(maxConcurrency);
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    // UserDAO
+    public CompletableFuture<User> authenticate(String username, String password) {
+        return submit(() -> userDAO.authenticate(username, password));
+    }
+
+    public CompletableFuture<Integer> createUser(User user) {
+        return submit(() -> userDAO.createUser(user));
+    }
+
+    public CompletableFuture<User> getUser(int userId) {
+        return submit(() -> userDAO.getUser(userId));
+    }
+
+    public CompletableFuture<Boolean> updateUser(User user) {
+        return submit(() -> userDAO.updateUser(user));
+    }
+
+    public CompletableFuture<Boolean> usernameExists(String username) {
+        return submit(() -> userDAO.usernameExists(username));
+    }
+
+    // AccountDAO
+    public CompletableFuture<Integer> createAccount(Account account) {
+        return submit(() -> accountDAO.createAccount(account));
+    }
+
+    public CompletableFuture<Account> getAccount(int accountId) {
+        return submit(() -> accountDAO.getAccount(accountId));
+    }
+
+    public CompletableFuture<List<Account>> getUserAccounts(int userId) {
+        return submit(() -> accountDAO.getUserAccounts(userId));
+    }
+
+    public CompletableFuture<Boolean> updateAccount(Account account) {
+        return submit(() -> accountDAO.updateAccount(account));
+    }
+
+    public CompletableFuture<Boolean> deleteAccount(int accountId, int userId) {
+        return submit(() -> accountDAO.deleteAccount(accountId, userId));
+    }
+
+    // CategoryDAO
+    public CompletableFuture<Category> createCategory(Category category) {
+        return submit(() -> categoryDAO.createCategory(category));
+    }
+
+    public CompletableFuture<Category> getCategoryById(int categoryId) {
+        return submit(() -> categoryDAO.getCategoryById(categoryId));
+    }
+
+    public CompletableFuture<List<Category>> getCategoriesByUserId(int userId) {
+        return submit(() -> categoryDAO.getCategoriesByUserId(userId));
+    }
+
+    public CompletableFuture<Boolean> updateCategory(Category category) {
+        return submit(() -> categoryDAO.updateCategory(category));
+    }
+
+    public CompletableFuture<Boolean> deleteCategory(int categoryId, int userId) {
+        return submit(() -> categoryDAO.deleteCategory(categoryId, userId));
+    }
+
+    // TransactionDAO
+    public CompletableFuture<Integer> createTransaction(Transaction transaction) {
+        return submit(() -> transactionDAO.createTransaction(transaction));
+    }
+
+    public CompletableFuture<Integer> createTransactions(List<Transaction> transactions) {
+        return submit(() -> transactionDAO.createTransactions(transactions));
+    }
+
+    public CompletableFuture<Integer> insertTransactions(List<Transaction> transactions, int batchSize) {
+        return submit(() -> transactionDAO.insertTransactions(transactions, batchSize));
+    }
+
+    public CompletableFuture<Transaction> getTransaction(int transactionId, int userId) {
+        return submit(() -> transactionDAO.getTransaction(transactionId, userId));
+    }
+
+    public CompletableFuture<List<Transaction>> getUserTransactions(int userId) {
+        return submit(() -> transactionDAO.getUserTransactions(userId));
+    }
+
+    public CompletableFuture<List<Transaction>> getAccountTransactions(int accountId, int userId) {
+        return submit(() -> transactionDAO.getAccountTransactions(accountId, userId));
+    }
+
+    public CompletableFuture<List<Transaction>> getCategoryTransactions(int categoryId, int userId) {
+        return submit(() -> transactionDAO.getCategoryTransactions(categoryId, userId));
+    }
+
+    public CompletableFuture<TransactionPage> getUserTransactionsPage(int userId, TransactionCursor after, int pageSize) {
+        return submit(() -> transactionDAO.getUserTransactionsPage(userId, after, pageSize));
+    }
+
+    public CompletableFuture<TransactionPage> getAccountTransactionsPage(int accountId, int userId,
+                                                                        TransactionCursor after, int pageSize) {
+        return submit(() -> transactionDAO.getAccountTransactionsPage(accountId, userId, after, pageSize));
+    }
+
+    public CompletableFuture<TransactionPage> getCategoryTransactionsPage(int categoryId, int userId,
+                                                                         TransactionCursor after, int pageSize) {
+        return submit(() -> transactionDAO.getCategoryTransactionsPage(categoryId, userId, after, pageSize));
+    }
+
+    public CompletableFuture<List<CompactTransaction>> getUserTransactionsCompact(int userId) {
+        return submit(() -> transactionDAO.getUserTransactionsCompact(userId));
+    }
+
+    public CompletableFuture<List<CompactTransaction>> getAccountTransactionsCompact(int accountId, int userId) {
+        return submit(() -> transactionDAO.getAccountTransactionsCompact(accountId, userId));
+    }
+
+    public CompletableFuture<List<CompactTransaction>> getCategoryTransactionsCompact(int categoryId, int userId) {
+        return submit(() -> transactionDAO.getCategoryTransactionsCompact(categoryId, userId));
+    }
+
+    public CompletableFuture<TransactionPage> queryTransactions(TransactionQuery query, TransactionCursor after, int pageSize) {
+        return submit(() -> transactionDAO.queryTransactions(query, after, pageSize));
+    }
+
+    public CompletableFuture<int[]> searchDescriptions(int userId, String query) {
+        return submit(() -> transactionDAO.searchDescriptions(userId, query));
+    }
+
+    public CompletableFuture<Integer> rebuildDescriptionIndex(int userId) {
+        return submit(() -> transactionDAO.rebuildDescriptionIndex(userId));
+    }
+
+    public CompletableFuture<Boolean> updateTransaction(Transaction transaction) {
+        return submit(() -> transactionDAO.updateTransaction(transaction));
+    }
+
+    public CompletableFuture<Boolean> deleteTransaction(int transactionId, int userId) {
+        return submit(() -> transactionDAO.deleteTransaction(transactionId, userId));
+    }
+
+    public CompletableFuture<Boolean> transferFunds(int userId, int fromAccountId, int toAccountId, int categoryId,
+                                                    BigDecimal amount, String description, Date date) {
+        return submit(() -> transactionDAO.transferFunds(userId, fromAccountId, toAccountId, categoryId,
+                amount, description, date));
+    }
+
+    public CompletableFuture<BigDecimal> getAccountBalance(int accountId, int userId) {
+        return submit(() -> transactionDAO.getAccountBalance(accountId, userId));
+    }
+
+    public CompletableFuture<Map<Integer, BigDecimal>> getAccountBalances(int userId) {
+        return submit(() -> transactionDAO.getAccountBalances(userId));
+    }
+
+    public CompletableFuture<List<BalanceDrift>> verifyAccountBalances(int userId) {
+        return submit(() -> transactionDAO.verifyAccountBalances(userId));
+    }
+
+    public CompletableFuture<List<BalanceDrift>> rebuildAccountBalances(int userId) {
+        return submit(() -> transactionDAO.rebuildAccountBalances(userId));
+    }
+
+    public CompletableFuture<TransactionLedger> loadLedger(int userId) {
+        return submit(() -> transactionDAO.loadLedger(userId));
+    }
+
+    // DashboardDAO
+    public CompletableFuture<DashboardSnapshot> getDashboardSnapshot(int userId) {
+        return submit(() -> dashboardDAO.getDashboardSnapshot(userId));
+    }
+
+    /**
+     * Stops accepting calls. Calls already submitted still complete.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Runs a DAO call on the executor once a concurrency permit is free.
+     *
+     * @param call the DAO call
+     * @return future completed with the call's result or exception
+     */
+    private <T> CompletableFuture<T> submit(Callable<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.completeExceptionally(e);
+                return;
+            }
+            try {
+                future.complete(call.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                permits.release();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Creates a virtual-thread-per-task executor where the runtime supports it
+     * (Java 21+), otherwise a fixed pool of daemon platform threads.
+     */
+    private static ExecutorService newExecutor(int maxConcurrency) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            return Executors.newFixedThreadPool(maxConcurrency, r -> {
+                Thread thread = new Thread(r, "pfinance-async-dao-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
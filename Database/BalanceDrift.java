@@ -0,0 +1,47 @@
+package Database;
+
+import java.math.BigDecimal;
+
+/**
+ * Difference between an account's stored running balance and the balance
+ * recomputed from its transactions.
+ */
+public class BalanceDrift {
+    private final int accountId;
+    private final BigDecimal storedBalance;
+    private final BigDecimal computedBalance;
+
+    public BalanceDrift(int accountId, BigDecimal storedBalance, BigDecimal computedBalance) {
+        this.accountId = accountId;
+        this.storedBalance = storedBalance;
+        this.computedBalance = computedBalance;
+    }
+
+    // Getters
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public BigDecimal getStoredBalance() {
+        return storedBalance;
+    }
+
+    public BigDecimal getComputedBalance() {
+        return computedBalance;
+    }
+
+    /**
+     * Gets how far the stored balance is off.
+     *
+     * @return stored balance minus computed balance
+     */
+    public BigDecimal getDrift() {
+        return storedBalance.subtract(computedBalance);
+    }
+
+    @Override
+    public String toString() {
+        return "BalanceDrift [accountId=" + accountId + ", stored=" + storedBalance +
+                ", computed=" + computedBalance + ", drift=" + getDrift() + "]";
+    }
+}
@@ -0,0 +1,46 @@
+package Database;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown by {@link TransactionDAO#insertTransactions(java.util.List, int)} when a
+ * chunk fails. The failed chunk was rolled back and the chunks after it were not
+ * attempted; the chunks committed before it stay in place. The cause is the
+ * error that failed the chunk.
+ */
+public class BatchInsertException extends SQLException {
+    private static final long serialVersionUID = 1L;
+
+    private final int insertedCount;
+    private final int skippedCount;
+
+    public BatchInsertException(String message, SQLException cause, int insertedCount, int skippedCount) {
+        super(message, cause.getSQLState(), cause.getErrorCode(), cause);
+        this.insertedCount = insertedCount;
+        this.skippedCount = skippedCount;
+    }
+
+    /**
+     * Gets the number of transactions committed before the failing chunk.
+     *
+     * @return the number of inserted transactions
+     */
+    public int getInsertedCount() {
+        return insertedCount;
+    }
+
+    /**
+     * Gets the number of transactions not inserted: the failed chunk and every
+     * chunk after it.
+     *
+     * @return the number of transactions not inserted
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
@@ -0,0 +1,72 @@
+package Database;
+
+/**
+ * Point-in-time snapshot of {@link ExpiringCache} counters.
+ */
+public class CacheStats {
+    private final String name;
+    private final int size;
+    private final int maxSize;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    private final long invalidations;
+
+    public CacheStats(String name, int size, int maxSize, long hits, long misses,
+                      long evictions, long expirations, long invalidations) {
+        this.name = name;
+        this.size = size;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.invalidations = invalidations;
+    }
+
+    // Getters
+    public String getName() {
+        return name;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getExpirations() {
+        return expirations;
+    }
+
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats [name=" + name + ", size=" + size + ", maxSize=" + maxSize +
+                ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions +
+                ", expirations=" + expirations + ", invalidations=" + invalidations + "]";
+    }
+}
@@ -9,6 +9,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -16,6 +17,14 @@ import java.util.List;
  */
 public class CategoryDAO {
 
+    /**
+     * Per-user category lists. Writes through this class invalidate the user's entry.
+     */
+    private static final ExpiringCache<Integer, List<Category>> USER_CATEGORIES_CACHE = new ExpiringCache<>(
+            "userCategories",
+            Integer.getInteger("pfinance.cache.maxUsers", 10_000),
+            Long.getLong("pfinance.cache.ttlMillis", 300_000L));
+
     /**
      * Create a new category in the database
      *
@@ -24,45 +33,65 @@ public class CategoryDAO {
      * @throws SQLException If database error occurs
      */
     public Category createCategory(Category category) throws SQLException {
-        String sql = "INSERT INTO Categories (userId, name) VALUES (?, ?)";
+        return DAOMetrics.measureSQL("CategoryDAO.createCategory", () -> {
+            String sql = "INSERT INTO Categories (userId, name) VALUES (?, ?)";
 
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
-            stmt.setInt(1, category.getUserId());
-            stmt.setString(2, category.getName());
+                stmt.setInt(1, category.getUserId());
+                stmt.setString(2, category.getName());
 
-            int affectedRows = stmt.executeUpdate();
+                int affectedRows = stmt.executeUpdate();
 
-            if (affectedRows == 0) {
-                throw new SQLException("Creating category failed, no rows affected.");
-            }
+                if (affectedRows == 0) {
+                    throw new SQLException("Creating category failed, no rows affected.");
+                }
 
-            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    category.setId(generatedKeys.getInt(1));
-                } else {
-                    throw new SQLException("Creating category failed, no ID obtained.");
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        category.setId(generatedKeys.getInt(1));
+                    } else {
+                        throw new SQLException("Creating category failed, no ID obtained.");
+                    }
                 }
-            }
 
-            return category;
-        }
+                DBConnection.recordWrite(category.getUserId());
+                USER_CATEGORIES_CACHE.invalidateOnCommit(category.getUserId());
+
+                NameDictionary.invalidate(category.getUserId());
+                return category;
+            }
+        });
     }
 
     /**
-     * Get a category by its ID
+     * Get a category by its ID, on a read replica. The primary is asked
+     * instead if the replica does not have the category or its owner wrote
+     * moments ago, as a replica may not yet have a new or renamed category.
      *
      * @param categoryId The ID of the category to retrieve
      * @return The category, or null if not found
      * @throws SQLException If database error occurs
      */
     public Category getCategoryById(int categoryId) throws SQLException {
-        String sql = "SELECT * FROM Categories WHERE id = ?";
-
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        return DAOMetrics.measureSQL("CategoryDAO.getCategoryById", () -> {
+            Category category;
+            try (Connection conn = DBConnection.getReadConnection()) {
+                category = loadCategoryById(conn, categoryId);
+            }
+            if (DBConnection.hasReplicas() && (category == null || DBConnection.wroteRecently(category.getUserId()))) {
+                try (Connection conn = DBConnection.getConnection()) {
+                    category = loadCategoryById(conn, categoryId);
+                }
+            }
+            return category;
+        });
+    }
 
+    private static Category loadCategoryById(Connection conn, int categoryId) throws SQLException {
+        String sql = "SELECT * FROM Categories WHERE id = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, categoryId);
 
             try (ResultSet rs = stmt.executeQuery()) {
@@ -76,17 +105,50 @@ public class CategoryDAO {
     }
 
     /**
-     * Get all categories for a specific user
+     * Get all categories for a specific user. Results are served from a
+     * per-user cache when possible; callers receive their own copies.
      *
      * @param userId The user ID to get categories for
      * @return List of categories
      * @throws SQLException If database error occurs
      */
     public List<Category> getCategoriesByUserId(int userId) throws SQLException {
+        return DAOMetrics.measureSQL("CategoryDAO.getCategoriesByUserId", () -> {
+            List<Category> cached = getCachedCategories(userId);
+            if (cached != null) {
+                return cached;
+            }
+
+            try (Connection conn = DBConnection.getReadConnection(userId)) {
+                return loadCategoriesByUserId(conn, userId);
+            }
+        });
+    }
+
+    /**
+     * Get a user's categories from the cache
+     *
+     * @param userId The user ID
+     * @return Copies of the cached categories, or null on a cache miss
+     */
+    static List<Category> getCachedCategories(int userId) {
+        List<Category> cached = USER_CATEGORIES_CACHE.get(userId);
+        return cached != null ? copyCategories(cached) : null;
+    }
+
+    /**
+     * Load a user's categories on the given connection and cache them
+     *
+     * @param conn The connection to query with
+     * @param userId The user ID
+     * @return List of categories
+     * @throws SQLException If database error occurs
+     */
+    static List<Category> loadCategoriesByUserId(Connection conn, int userId) throws SQLException {
         String sql = "SELECT * FROM Categories WHERE userId = ? ORDER BY name";
+        long cacheToken = USER_CATEGORIES_CACHE.loadToken(userId);
 
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, userId);
 
@@ -97,6 +159,7 @@ public class CategoryDAO {
                     categories.add(mapResultSetToCategory(rs));
                 }
 
+                USER_CATEGORIES_CACHE.put(userId, Collections.unmodifiableList(copyCategories(categories)), cacheToken);
                 return categories;
             }
         }
@@ -110,18 +173,25 @@ public class CategoryDAO {
      * @throws SQLException If database error occurs
      */
     public boolean updateCategory(Category category) throws SQLException {
-        String sql = "UPDATE Categories SET name = ? WHERE id = ? AND userId = ?";
+        return DAOMetrics.measureSQL("CategoryDAO.updateCategory", () -> {
+            String sql = "UPDATE Categories SET name = ? WHERE id = ? AND userId = ?";
 
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, category.getName());
-            stmt.setInt(2, category.getId());
-            stmt.setInt(3, category.getUserId());
+                stmt.setString(1, category.getName());
+                stmt.setInt(2, category.getId());
+                stmt.setInt(3, category.getUserId());
 
-            int affectedRows = stmt.executeUpdate();
-            return affectedRows > 0;
-        }
+                int affectedRows = stmt.executeUpdate();
+                if (affectedRows > 0) {
+                    DBConnection.recordWrite(category.getUserId());
+                }
+                USER_CATEGORIES_CACHE.invalidateOnCommit(category.getUserId());
+                NameDictionary.invalidate(category.getUserId());
+                return affectedRows > 0;
+            }
+        });
     }
 
     /**
@@ -133,52 +203,77 @@ public class CategoryDAO {
      * @throws SQLException If database error occurs
      */
     public boolean deleteCategory(int categoryId, int userId) throws SQLException {
-        // First, set categoryId to NULL for all transactions with this category
-        String updateTransactionsSql = "UPDATE Transactions SET categoryId = NULL WHERE categoryId = ? AND userId = ?";
-
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement updateStmt = conn.prepareStatement(updateTransactionsSql)) {
-
-            // Begin transaction
-            conn.setAutoCommit(false);
-
-            try {
-                updateStmt.setInt(1, categoryId);
-                updateStmt.setInt(2, userId);
-                updateStmt.executeUpdate();
-
-                // Then delete the category
-                String deleteSql = "DELETE FROM Categories WHERE id = ? AND userId = ?";
-                try (PreparedStatement deleteStmt = conn.prepareStatement(deleteSql)) {
-                    deleteStmt.setInt(1, categoryId);
-                    deleteStmt.setInt(2, userId);
-
-                    int affectedRows = deleteStmt.executeUpdate();
-
-                    // Commit transaction
-                    conn.commit();
-
-                    return affectedRows > 0;
+        return DAOMetrics.measureSQL("CategoryDAO.deleteCategory", () -> {
+            // First, set categoryId to NULL for all transactions with this category
+            String updateTransactionsSql = "UPDATE Transactions SET categoryId = NULL WHERE categoryId = ? AND userId = ?";
+
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement updateStmt = conn.prepareStatement(updateTransactionsSql)) {
+
+                // Begin transaction
+                conn.setAutoCommit(false);
+
+                try {
+                    updateStmt.setInt(1, categoryId);
+                    updateStmt.setInt(2, userId);
+                    updateStmt.executeUpdate();
+
+                    // Then delete the category
+                    String deleteSql = "DELETE FROM Categories WHERE id = ? AND userId = ?";
+                    try (PreparedStatement deleteStmt = conn.prepareStatement(deleteSql)) {
+                        deleteStmt.setInt(1, categoryId);
+                        deleteStmt.setInt(2, userId);
+
+                        int affectedRows = deleteStmt.executeUpdate();
+
+                        // Commit transaction
+                        conn.commit();
+                        DBConnection.recordWrite(userId);
+                        USER_CATEGORIES_CACHE.invalidateOnCommit(userId);
+                        NameDictionary.invalidate(userId);
+
+                        return affectedRows > 0;
+                    }
+                } catch (SQLException e) {
+                    // Rollback transaction on error
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    // Restore auto-commit
+                    conn.setAutoCommit(true);
                 }
-            } catch (SQLException e) {
-                // Rollback transaction on error
-                conn.rollback();
-                throw e;
-            } finally {
-                // Restore auto-commit
-                conn.setAutoCommit(true);
             }
-        }
+        });
     }
 
     /**
      * Helper method to map ResultSet to Category object
      */
-    private Category mapResultSetToCategory(ResultSet rs) throws SQLException {
+    private static Category mapResultSetToCategory(ResultSet rs) throws SQLException {
         Category category = new Category();
         category.setId(rs.getInt("id"));
         category.setUserId(rs.getInt("userId"));
         category.setName(rs.getString("name"));
         return category;
     }
+
+    /**
+     * Get statistics for the per-user category cache
+     *
+     * @return Cache statistics snapshot
+     */
+    public static CacheStats getCacheStats() {
+        return USER_CATEGORIES_CACHE.getStats();
+    }
+
+    /**
+     * Helper method to copy categories so cached instances are never handed out
+     */
+    private static List<Category> copyCategories(List<Category> categories) {
+        List<Category> copies = new ArrayList<>(categories.size());
+        for (Category category : categories) {
+            copies.add(new Category(category.getId(), category.getUserId(), category.getName()));
+        }
+        return copies;
+    }
 }
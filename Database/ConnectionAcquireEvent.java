@@ -0,0 +1,29 @@
+package Database;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for one {@link DBConnection#getConnection()} call that
+ * borrowed from the pool.
+ */
+@Name("pfinance.ConnectionAcquire")
+@Label("Connection Acquire")
+@Category({"PFinance", "Database"})
+@Description("Time spent borrowing a connection from the pool")
+@StackTrace(false)
+class ConnectionAcquireEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Failed")
+    boolean failed;
+
+    @Label("Acquire Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long acquireTime;
+}
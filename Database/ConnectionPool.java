@@ -0,0 +1,363 @@
+package Database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC connection pool used by {@link DBConnection}.
+ *
+ * Callers receive a proxy whose {@code close()} hands the physical connection
+ * back to the pool instead of closing it, so existing DAO code keeps working
+ * unchanged. Idle connections are validated on borrow, evicted after the idle
+ * timeout (never below the minimum size), and connections held longer than the
+ * leak detection threshold are reported together with the stack that borrowed them.
+ */
+public class ConnectionPool {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_INTERVAL_MILLIS = 5000;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakDetectionThresholdMillis;
+
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown;
+
+    // Statistics
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong validationFailureCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * Creates a pool and starts its background housekeeping thread.
+     *
+     * @param url the JDBC URL
+     * @param user the database user
+     * @param password the database password
+     * @param minSize the number of connections kept open even when idle
+     * @param maxSize the maximum number of open connections
+     * @param acquireTimeoutMillis how long getConnection waits for a free connection
+     * @param idleTimeoutMillis how long a connection may sit idle before it is closed
+     * @param leakDetectionThresholdMillis how long a connection may be held before it is reported, 0 to disable
+     */
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+                          long acquireTimeoutMillis, long idleTimeoutMillis, long leakDetectionThresholdMillis) {
+        if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "pfinance-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::housekeep, 0,
+                HOUSEKEEPING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if none is idle
+     * and the pool is below its maximum size.
+     *
+     * @return a pooled Connection; closing it returns it to the pool
+     * @throws SQLException if no connection becomes available within the acquire timeout
+     */
+    public Connection getConnection() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool has been shut down.");
+        }
+
+        long waitStart = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + acquireTimeoutMillis +
+                        " ms waiting for a database connection (active=" + borrowed.size() +
+                        ", max=" + maxSize + ").");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+
+        try {
+            PooledConnection pooled = takeValidConnection();
+            long waited = System.nanoTime() - waitStart;
+            totalWaitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            borrowCount.incrementAndGet();
+
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowStack = leakDetectionThresholdMillis > 0 ? new Throwable("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            borrowed.add(pooled);
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a snapshot of the pool counters.
+     *
+     * @return PoolStats object
+     */
+    public PoolStats getStats() {
+        long borrows = borrowCount.get();
+        return new PoolStats(
+                totalConnections.get(),
+                borrowed.size(),
+                idle.size(),
+                permits.getQueueLength(),
+                minSize,
+                maxSize,
+                borrows,
+                createdCount.get(),
+                destroyedCount.get(),
+                timeoutCount.get(),
+                validationFailureCount.get(),
+                leakCount.get(),
+                borrows == 0 ? 0.0 : totalWaitNanos.get() / 1_000_000.0 / borrows,
+                maxWaitNanos.get() / 1_000_000.0);
+    }
+
+    /**
+     * Gets how busy the pool is right now, without taking a full snapshot.
+     *
+     * @return borrowed connections plus threads waiting for one
+     */
+    public int getLoad() {
+        return borrowed.size() + permits.getQueueLength();
+    }
+
+    /**
+     * Closes all idle connections and stops housekeeping. Borrowed connections
+     * are closed as they are returned.
+     */
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    /**
+     * Takes an idle connection (most recently used first) and validates it,
+     * or opens a new physical connection. Caller must hold a permit.
+     */
+    private PooledConnection takeValidConnection() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isValid(pooled)) {
+                return pooled;
+            }
+            validationFailureCount.incrementAndGet();
+            destroy(pooled);
+        }
+        return open();
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        totalConnections.incrementAndGet();
+        createdCount.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        destroyedCount.incrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns a borrowed connection to the pool, resetting any transaction
+     * state the borrower left behind.
+     */
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        pooled.borrowStack = null;
+        pooled.lastUsedAt = System.currentTimeMillis();
+
+        boolean reusable = !shutdown;
+        if (reusable) {
+            try {
+                if (!pooled.physical.getAutoCommit()) {
+                    pooled.physical.rollback();
+                    pooled.physical.setAutoCommit(true);
+                }
+                pooled.physical.clearWarnings();
+            } catch (SQLException e) {
+                reusable = false;
+            }
+        }
+
+        if (reusable) {
+            idle.offerFirst(pooled);
+        } else {
+            destroy(pooled);
+        }
+        permits.release();
+    }
+
+    /**
+     * Evicts connections idle past the timeout, tops the pool back up to its
+     * minimum size and reports connections held past the leak threshold.
+     */
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+
+            for (PooledConnection pooled : idle) {
+                if (totalConnections.get() <= minSize) {
+                    break;
+                }
+                if (now - pooled.lastUsedAt > idleTimeoutMillis && idle.remove(pooled)) {
+                    destroy(pooled);
+                }
+            }
+
+            while (!shutdown && totalConnections.get() < minSize && permits.tryAcquire()) {
+                try {
+                    idle.offerLast(open());
+                } finally {
+                    permits.release();
+                }
+            }
+
+            if (leakDetectionThresholdMillis > 0) {
+                for (PooledConnection pooled : borrowed) {
+                    Throwable stack = pooled.borrowStack;
+                    if (!pooled.leakReported && stack != null && now - pooled.borrowedAt > leakDetectionThresholdMillis) {
+                        pooled.leakReported = true;
+                        leakCount.incrementAndGet();
+                        System.err.println("Possible connection leak: connection held for " +
+                                (now - pooled.borrowedAt) + " ms");
+                        stack.printStackTrace();
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * A physical connection plus its pool bookkeeping.
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+        private volatile long borrowedAt;
+        private volatile Throwable borrowStack;
+        private volatile boolean leakReported;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        private Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class},
+                    new ConnectionHandle(this));
+        }
+    }
+
+    /**
+     * Per-borrow proxy handler. Once closed, the handle no longer reaches the
+     * physical connection, so a stale reference cannot disturb the next borrower.
+     */
+    private final class ConnectionHandle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean closed;
+
+        private ConnectionHandle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + (closed ? ", closed]" : "]");
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool.");
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package Database;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.stream.BaseStream;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import Backend.TransactionLedger;
+
+/**
+ * Latency, row and error metrics for every DAO method and for connection
+ * acquisition.
+ *
+ * DAO methods run their body through {@link #measure} (or {@link #measureSQL}
+ * for methods that throw SQLException), which times the call, counts the rows
+ * in its result and emits a {@link DAOOperationEvent} to Flight Recorder.
+ * DAO error handling reports through {@link #failed(Exception)}, which counts
+ * the error against the operation running on the current thread. The
+ * metrics are exposed over JMX as {@code PFinance:type=DAOMetrics}.
+ *
+ * Methods that return a Stream are measured only until the stream is
+ * returned, i.e. the query's execution; fetching the rows happens as the
+ * caller consumes the stream, outside the measurement, and the rows are
+ * not counted. Use the forEach methods, which consume inside the
+ * measurement, to time a full read.
+ *
+ * Outermost calls that exceed the {@link SlowQueryLog} threshold are handed
+ * to the log together with the statements they executed.
+ */
+public class DAOMetrics implements DAOMetricsMXBean {
+    static final String GET_CONNECTION = "DBConnection.getConnection";
+
+    private static final DAOMetrics INSTANCE = new DAOMetrics();
+    private static final ConcurrentHashMap<String, OperationMetrics> OPERATIONS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Timer> CURRENT = new ThreadLocal<>();
+    private static volatile BiConsumer<String, StatementCapture.Execution> statementObserver;
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE,
+                    new ObjectName("PFinance:type=DAOMetrics"));
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Body of a DAO method that throws SQLException.
+     */
+    @FunctionalInterface
+    interface SQLCallable<T> {
+        T call() throws SQLException;
+    }
+
+    private DAOMetrics() {
+    }
+
+    /**
+     * Gets the metrics instance, e.g. to read them without JMX.
+     *
+     * @return the DAOMetrics singleton
+     */
+    public static DAOMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Runs and measures the body of a DAO method.
+     *
+     * @param operation the operation name, e.g. "TransactionDAO.getUserTransactions"
+     * @param body the method body
+     * @return the body's result
+     */
+    static <T> T measure(String operation, Supplier<T> body) {
+        Timer timer = new Timer(operation);
+        try {
+            return timer.result(body.get());
+        } catch (RuntimeException | Error e) {
+            timer.failed = true;
+            throw e;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Runs and measures the body of a DAO method that throws SQLException.
+     *
+     * @param operation the operation name
+     * @param body the method body
+     * @return the body's result
+     * @throws SQLException if the body throws it
+     */
+    static <T> T measureSQL(String operation, SQLCallable<T> body) throws SQLException {
+        Timer timer = new Timer(operation);
+        try {
+            return timer.result(body.call());
+        } catch (SQLException | RuntimeException | Error e) {
+            timer.failed = true;
+            throw e;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Reports an exception caught by a DAO method: it is counted against the
+     * operation running on this thread and its stack trace printed.
+     *
+     * @param e the exception
+     */
+    static void failed(Exception e) {
+        Timer timer = CURRENT.get();
+        if (timer != null) {
+            timer.failed = true;
+        }
+        e.printStackTrace();
+    }
+
+    /**
+     * Records the time taken to borrow a pooled connection, both on its own
+     * and as part of the operation running on this thread.
+     *
+     * @param nanos the time spent
+     * @param failed whether no connection was obtained
+     */
+    static void recordConnectionAcquire(long nanos, boolean failed) {
+        Timer timer = CURRENT.get();
+        if (timer != null) {
+            timer.acquireNanos += nanos;
+        }
+        operation(GET_CONNECTION).record(nanos, 0, 0, failed);
+
+        ConnectionAcquireEvent event = new ConnectionAcquireEvent();
+        if (event.isEnabled()) {
+            event.operation = timer != null ? timer.operation : null;
+            event.failed = failed;
+            event.acquireTime = nanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Checks whether a DAO call is being measured on this thread.
+     *
+     * @return true inside {@link #measure} or {@link #measureSQL}
+     */
+    static boolean isMeasuring() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Records a statement executed by the DAO call running on this thread,
+     * for the slow query log and the statement observer.
+     *
+     * @param execution the statement execution
+     */
+    static void recordStatement(StatementCapture.Execution execution) {
+        Timer timer = CURRENT.get();
+        if (timer == null) {
+            return;
+        }
+        if (SlowQueryLog.isEnabled()) {
+            timer.addStatement(execution);
+        }
+        BiConsumer<String, StatementCapture.Execution> observer = statementObserver;
+        if (observer != null) {
+            observer.accept(timer.operation, execution);
+        }
+    }
+
+    /**
+     * Passes every statement executed by a DAO call to an observer, together
+     * with the name of the innermost operation executing it. Used by
+     * {@link QueryPlanChecker} to collect the statements the DAOs really issue.
+     *
+     * @param observer the observer, or null to stop observing
+     */
+    static void observeStatements(BiConsumer<String, StatementCapture.Execution> observer) {
+        statementObserver = observer;
+    }
+
+    /**
+     * Checks whether a statement observer is installed.
+     *
+     * @return true if connections must record their statements
+     */
+    static boolean isObservingStatements() {
+        return statementObserver != null;
+    }
+
+    @Override
+    public List<OperationStats> getOperations() {
+        List<OperationStats> stats = new ArrayList<>();
+        for (Map.Entry<String, OperationMetrics> entry : new TreeMap<>(OPERATIONS).entrySet()) {
+            stats.add(entry.getValue().snapshot(entry.getKey()));
+        }
+        return stats;
+    }
+
+    /**
+     * Gets the metrics of one operation.
+     *
+     * @param operation the operation name
+     * @return OperationStats snapshot, or null if the operation has not been called
+     */
+    public OperationStats getOperation(String operation) {
+        OperationMetrics metrics = OPERATIONS.get(operation);
+        return metrics != null ? metrics.snapshot(operation) : null;
+    }
+
+    @Override
+    public long getTotalCalls() {
+        long total = 0;
+        for (Map.Entry<String, OperationMetrics> entry : OPERATIONS.entrySet()) {
+            if (!entry.getKey().equals(GET_CONNECTION)) {
+                total += entry.getValue().calls.get();
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public long getTotalErrors() {
+        long total = 0;
+        for (OperationMetrics metrics : OPERATIONS.values()) {
+            total += metrics.errors.get();
+        }
+        return total;
+    }
+
+    @Override
+    public void reset() {
+        for (OperationMetrics metrics : OPERATIONS.values()) {
+            metrics.reset();
+        }
+    }
+
+    private static OperationMetrics operation(String name) {
+        OperationMetrics metrics = OPERATIONS.get(name);
+        return metrics != null ? metrics : OPERATIONS.computeIfAbsent(name, key -> new OperationMetrics());
+    }
+
+    /**
+     * Counts the rows in a DAO result: the size of lists, pages, maps and
+     * ledgers, 1 for a single object found, 0 otherwise.
+     */
+    private static long rowsOf(Object result) {
+        if (result == null || result instanceof Number || result instanceof Boolean) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Map) {
+            return ((Map<?, ?>) result).size();
+        }
+        if (result instanceof TransactionPage) {
+            return ((TransactionPage) result).getTransactions().size();
+        }
+        if (result instanceof TransactionLedger) {
+            return ((TransactionLedger) result).size();
+        }
+        if (result instanceof int[]) {
+            return ((int[]) result).length;
+        }
+        if (result instanceof BaseStream) {
+            return 0;
+        }
+        return 1;
+    }
+
+    /**
+     * One measured call, also the thread's current operation while it runs.
+     */
+    private static final class Timer {
+        private final String operation;
+        private final Timer outer;
+        private final long startNanos;
+        private final DAOOperationEvent event = new DAOOperationEvent();
+        private long rows;
+        private long acquireNanos;
+        private boolean failed;
+        private List<StatementCapture.Execution> statements;
+        private int omittedStatements;
+
+        private Timer(String operation) {
+            this.operation = operation;
+            this.outer = CURRENT.get();
+            CURRENT.set(this);
+            event.begin();
+            this.startNanos = System.nanoTime();
+        }
+
+        private <T> T result(T result) {
+            rows = rowsOf(result);
+            return result;
+        }
+
+        private void addStatement(StatementCapture.Execution execution) {
+            if (statements == null) {
+                statements = new ArrayList<>();
+            }
+            if (statements.size() < SlowQueryLog.MAX_STATEMENTS) {
+                statements.add(execution);
+            } else {
+                omittedStatements++;
+            }
+        }
+
+        private void stop() {
+            long elapsed = System.nanoTime() - startNanos;
+            if (outer != null) {
+                CURRENT.set(outer);
+                outer.acquireNanos += acquireNanos;
+                if (statements != null) {
+                    // Nested calls are logged as part of the outermost one
+                    for (StatementCapture.Execution execution : statements) {
+                        outer.addStatement(execution);
+                    }
+                }
+                outer.omittedStatements += omittedStatements;
+            } else {
+                CURRENT.remove();
+                if (SlowQueryLog.isSlow(elapsed)) {
+                    SlowQueryLog.submit(operation, elapsed, rows, failed, statements, omittedStatements);
+                }
+            }
+            operation(operation).record(elapsed, rows, acquireNanos, failed);
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.rows = rows;
+                event.failed = failed;
+                event.connectionAcquireTime = acquireNanos;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Live counters for one operation.
+     */
+    private static final class OperationMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong acquireNanos = new AtomicLong();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private void record(long nanos, long rowCount, long acquire, boolean failed) {
+            latency.record(nanos);
+            calls.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulate(nanos);
+            if (rowCount > 0) {
+                rows.addAndGet(rowCount);
+            }
+            if (acquire > 0) {
+                acquireNanos.addAndGet(acquire);
+            }
+            if (failed) {
+                errors.incrementAndGet();
+            }
+        }
+
+        private OperationStats snapshot(String name) {
+            long count = calls.get();
+            return new OperationStats(name, count, errors.get(), rows.get(),
+                    count == 0 ? 0.0 : totalNanos.get() / 1000.0 / count,
+                    latency.getValueAtPercentile(50) / 1000.0,
+                    latency.getValueAtPercentile(99) / 1000.0,
+                    latency.getValueAtPercentile(99.9) / 1000.0,
+                    maxNanos.get() / 1000.0,
+                    count == 0 ? 0.0 : acquireNanos.get() / 1000.0 / count);
+        }
+
+        private void reset() {
+            latency.reset();
+            calls.set(0);
+            errors.set(0);
+            rows.set(0);
+            totalNanos.set(0);
+            acquireNanos.set(0);
+            maxNanos.reset();
+        }
+    }
+}
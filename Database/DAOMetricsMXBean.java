@@ -0,0 +1,25 @@
+package Database;
+
+import java.util.List;
+
+/**
+ * JMX view of {@link DAOMetrics}, registered as {@code PFinance:type=DAOMetrics}.
+ */
+public interface DAOMetricsMXBean {
+
+    /**
+     * Gets the metrics of every operation called so far, by operation name.
+     *
+     * @return one snapshot per operation
+     */
+    List<OperationStats> getOperations();
+
+    long getTotalCalls();
+
+    long getTotalErrors();
+
+    /**
+     * Clears all recorded metrics.
+     */
+    void reset();
+}
@@ -0,0 +1,31 @@
+package Database;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for one DAO method call, emitted by {@link DAOMetrics}.
+ */
+@Name("pfinance.DAOOperation")
+@Label("DAO Operation")
+@Category({"PFinance", "Database"})
+@Description("A call to a DAO method")
+@StackTrace(false)
+class DAOOperationEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Failed")
+    boolean failed;
+
+    @Label("Connection Acquire Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long connectionAcquireTime;
+}
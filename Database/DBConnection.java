@@ -3,35 +3,279 @@ package Database;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Database connection utility for the Personal Finance Tracker application.
+ * Connections are handed out from a bounded {@link ConnectionPool}. The target
+ * database can be overridden with the {@code pfinance.jdbc.*} system properties
+ * (e.g. to run against an embedded database) and pool sizing tuned with
+ * {@code pfinance.pool.*}. The schema is migrated to the latest version by
+ * {@link SchemaMigrator} before the first connection is handed out, unless
+ * {@code pfinance.schema.migrate} is set to false.
+ *
+ * Reads can be spread over read replicas listed in
+ * {@code pfinance.jdbc.replicaUrls} (comma-separated), each with its own pool.
+ * DAO read methods borrow through {@link #getReadConnection(int)}, which picks
+ * a replica round-robin or, with {@code pfinance.replica.selection=leastLoaded},
+ * the one with the fewest connections in use. After a user writes, that
+ * user's reads go to the primary for {@code pfinance.replica.stickyMillis}, so
+ * they see their own changes even if the replicas lag behind. Writes, and
+ * everything inside a {@link UnitOfWork}, always use the primary. Replicas are
+ * not migrated unless {@code pfinance.schema.migrateReplicas} is true, e.g.
+ * when two independent embedded databases stand in for primary and replica.
  */
 public class DBConnection {
-    private static final String JDBC_URL = "jdbc:mysql://localhost:3306/pfinance_db";
-    private static final String JDBC_USER = "root";
-    private static final String JDBC_PASSWORD = "Nishad1*";
+    // rewriteBatchedStatements lets Connector/J send a JDBC batch as multi-row INSERTs;
+    // cachePrepStmts keeps parsed statements per connection, which pays off because
+    // query SQL comes from a small set of templates
+    private static final String JDBC_URL = System.getProperty("pfinance.jdbc.url",
+            "jdbc:mysql://localhost:3306/pfinance_db?rewriteBatchedStatements=true" +
+                    "&cachePrepStmts=true&prepStmtCacheSize=250&prepStmtCacheSqlLimit=2048");
+    private static final String JDBC_USER = System.getProperty("pfinance.jdbc.user", "root");
+    private static final String JDBC_PASSWORD = System.getProperty("pfinance.jdbc.password", "Nishad1*");
+    private static final String JDBC_DRIVER = System.getProperty("pfinance.jdbc.driver", "com.mysql.cj.jdbc.Driver");
+
+    // Pool settings
+    private static final int POOL_MIN_SIZE = Integer.getInteger("pfinance.pool.minSize", 2);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("pfinance.pool.maxSize", 10);
+    private static final long POOL_ACQUIRE_TIMEOUT_MILLIS = Long.getLong("pfinance.pool.acquireTimeoutMillis", 30_000L);
+    private static final long POOL_IDLE_TIMEOUT_MILLIS = Long.getLong("pfinance.pool.idleTimeoutMillis", 600_000L);
+    private static final long POOL_LEAK_THRESHOLD_MILLIS = Long.getLong("pfinance.pool.leakDetectionThresholdMillis", 60_000L);
+
+    // Replica settings
+    private static final String REPLICA_URLS = System.getProperty("pfinance.jdbc.replicaUrls", "");
+    private static final String REPLICA_USER = System.getProperty("pfinance.jdbc.replicaUser", JDBC_USER);
+    private static final String REPLICA_PASSWORD = System.getProperty("pfinance.jdbc.replicaPassword", JDBC_PASSWORD);
+    private static final boolean LEAST_LOADED =
+            "leastLoaded".equalsIgnoreCase(System.getProperty("pfinance.replica.selection", "roundRobin"));
+    private static final long STICKY_MILLIS = Long.getLong("pfinance.replica.stickyMillis", 5000L);
+
+    // Schema migrations run once, on the first connection handed out
+    private static final boolean MIGRATE = Boolean.parseBoolean(System.getProperty("pfinance.schema.migrate", "true"));
+    private static final boolean MIGRATE_REPLICAS =
+            MIGRATE && Boolean.parseBoolean(System.getProperty("pfinance.schema.migrateReplicas", "false"));
+    private static volatile boolean schemaReady = !MIGRATE;
+    private static final Set<ConnectionPool> MIGRATED_REPLICAS = ConcurrentHashMap.newKeySet();
 
     static {
         try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
+            Class.forName(JDBC_DRIVER);
         } catch (ClassNotFoundException e) {
             e.printStackTrace();
         }
     }
 
+    private static final ConnectionPool POOL = new ConnectionPool(JDBC_URL, JDBC_USER, JDBC_PASSWORD,
+            POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_ACQUIRE_TIMEOUT_MILLIS,
+            POOL_IDLE_TIMEOUT_MILLIS, POOL_LEAK_THRESHOLD_MILLIS);
+
+    private static final List<ConnectionPool> REPLICAS = createReplicaPools();
+    private static final AtomicInteger NEXT_REPLICA = new AtomicInteger();
+
+    // Users who wrote recently; entries expire after the stickiness window
+    private static final ExpiringCache<Integer, Boolean> RECENT_WRITERS = new ExpiringCache<>(
+            "recentWriters",
+            Integer.getInteger("pfinance.replica.maxStickyUsers", 100_000),
+            Math.max(1, STICKY_MILLIS));
+
+    // Routing statistics
+    private static final AtomicLong REPLICA_READS = new AtomicLong();
+    private static final AtomicLong PRIMARY_READS = new AtomicLong();
+    private static final AtomicLong STICKY_READS = new AtomicLong();
+    private static final AtomicLong FAILOVERS = new AtomicLong();
+
+    private static List<ConnectionPool> createReplicaPools() {
+        List<ConnectionPool> pools = new ArrayList<>();
+        for (String url : REPLICA_URLS.split(",")) {
+            if (!url.trim().isEmpty()) {
+                pools.add(new ConnectionPool(url.trim(), REPLICA_USER, REPLICA_PASSWORD,
+                        POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_ACQUIRE_TIMEOUT_MILLIS,
+                        POOL_IDLE_TIMEOUT_MILLIS, POOL_LEAK_THRESHOLD_MILLIS));
+            }
+        }
+        return Collections.unmodifiableList(pools);
+    }
+
     /**
-     * Gets a connection to the database.
+     * Gets a connection to the primary database from the connection pool, or the
+     * shared connection if a {@link UnitOfWork} is open on this thread. Time
+     * spent borrowing from the pool is recorded in {@link DAOMetrics}; while
+     * the {@link SlowQueryLog} is on, the connection records its statements.
      *
-     * @return Connection object
-     * @throws SQLException if a database access error occurs
+     * @return Connection object; closing it returns it to the pool
+     * @throws SQLException if a database access error occurs or the pool is exhausted
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(JDBC_URL, JDBC_USER, JDBC_PASSWORD);
+        Connection shared = UnitOfWork.currentConnection();
+        if (shared != null) {
+            return shared;
+        }
+        return borrow(POOL);
+    }
+
+    /**
+     * Gets a connection for reading a user's data: a read replica, unless
+     * none is configured, a {@link UnitOfWork} is open on this thread, or the
+     * user wrote within the stickiness window. Falls back to the primary if
+     * no replica connection can be obtained.
+     *
+     * @param userId the user whose data is read
+     * @return Connection object; closing it returns it to its pool
+     * @throws SQLException if a database access error occurs or the pool is exhausted
+     */
+    public static Connection getReadConnection(int userId) throws SQLException {
+        if (UnitOfWork.currentConnection() == null && wroteRecently(userId)) {
+            STICKY_READS.incrementAndGet();
+            PRIMARY_READS.incrementAndGet();
+            return borrow(POOL);
+        }
+        return getReadConnection();
+    }
+
+    /**
+     * Gets a connection for a read not tied to a known user, such as a lookup
+     * by username or by ID alone. No stickiness applies, so a row written
+     * moments ago may not be visible yet; callers that must see it should
+     * retry on {@link #getConnection()} when nothing is found.
+     *
+     * @return Connection object; closing it returns it to its pool
+     * @throws SQLException if a database access error occurs or the pool is exhausted
+     */
+    public static Connection getReadConnection() throws SQLException {
+        Connection shared = UnitOfWork.currentConnection();
+        if (shared != null) {
+            PRIMARY_READS.incrementAndGet();
+            return shared;
+        }
+        if (REPLICAS.isEmpty()) {
+            PRIMARY_READS.incrementAndGet();
+            return borrow(POOL);
+        }
+
+        ConnectionPool replica = selectReplica();
+        try {
+            Connection connection = borrow(replica);
+            REPLICA_READS.incrementAndGet();
+            return connection;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            FAILOVERS.incrementAndGet();
+            PRIMARY_READS.incrementAndGet();
+            return borrow(POOL);
+        }
+    }
+
+    /**
+     * Sends a user's reads to the primary for the stickiness window, starting
+     * once the current work commits. DAO write methods call this for the user
+     * whose data they changed.
+     *
+     * @param userId the user who wrote
+     */
+    static void recordWrite(int userId) {
+        if (!REPLICAS.isEmpty() && STICKY_MILLIS > 0) {
+            UnitOfWork.afterCommit(() -> RECENT_WRITERS.put(userId, Boolean.TRUE));
+        }
+    }
+
+    /**
+     * Checks whether read replicas are configured.
+     *
+     * @return true if reads may be served by a replica
+     */
+    static boolean hasReplicas() {
+        return !REPLICAS.isEmpty();
+    }
+
+    /**
+     * Checks whether a user wrote within the stickiness window, i.e. whether a
+     * replica may still be missing their latest changes.
+     *
+     * @param userId the user ID
+     * @return true if the user's reads currently go to the primary
+     */
+    static boolean wroteRecently(int userId) {
+        return !REPLICAS.isEmpty() && RECENT_WRITERS.get(userId) != null;
+    }
+
+    private static ConnectionPool selectReplica() {
+        if (REPLICAS.size() == 1) {
+            return REPLICAS.get(0);
+        }
+        int start = Math.floorMod(NEXT_REPLICA.getAndIncrement(), REPLICAS.size());
+        if (!LEAST_LOADED) {
+            return REPLICAS.get(start);
+        }
+        // Ties go to the next replica in round-robin order, so idle replicas share the load
+        ConnectionPool best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        for (int i = 0; i < REPLICAS.size(); i++) {
+            ConnectionPool replica = REPLICAS.get((start + i) % REPLICAS.size());
+            int load = replica.getLoad();
+            if (load < bestLoad) {
+                best = replica;
+                bestLoad = load;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Borrows from a pool, recording the wait and migrating the schema on
+     * first use.
+     */
+    private static Connection borrow(ConnectionPool pool) throws SQLException {
+        long acquireStart = System.nanoTime();
+        Connection connection;
+        try {
+            connection = pool.getConnection();
+        } catch (SQLException e) {
+            DAOMetrics.recordConnectionAcquire(System.nanoTime() - acquireStart, true);
+            throw e;
+        }
+        DAOMetrics.recordConnectionAcquire(System.nanoTime() - acquireStart, false);
+
+        boolean migrate = pool == POOL ? !schemaReady : MIGRATE_REPLICAS && !MIGRATED_REPLICAS.contains(pool);
+        if (migrate) {
+            try {
+                migrateSchema(pool, connection);
+            } catch (SQLException e) {
+                closeConnection(connection);
+                throw e;
+            }
+        }
+        return SlowQueryLog.isEnabled() || DAOMetrics.isObservingStatements()
+                ? StatementCapture.wrap(connection) : connection;
+    }
+
+    /**
+     * Brings the database schema up to date before it is first used.
+     *
+     * @param pool the pool the connection came from
+     * @param connection the connection to migrate with
+     * @throws SQLException if a migration fails
+     */
+    private static synchronized void migrateSchema(ConnectionPool pool, Connection connection) throws SQLException {
+        if (pool == POOL) {
+            if (!schemaReady) {
+                SchemaMigrator.migrate(connection);
+                schemaReady = true;
+            }
+        } else if (!MIGRATED_REPLICAS.contains(pool)) {
+            SchemaMigrator.migrate(connection);
+            MIGRATED_REPLICAS.add(pool);
+        }
     }
 
     /**
-     * Closes the given database connection.
+     * Closes the given database connection, returning it to the pool.
      *
      * @param connection the connection to close
      */
@@ -44,4 +288,51 @@ public class DBConnection {
             }
         }
     }
+
+    /**
+     * Gets current connection pool statistics.
+     *
+     * @return PoolStats snapshot
+     */
+    public static PoolStats getPoolStats() {
+        return POOL.getStats();
+    }
+
+    /**
+     * Gets read routing statistics, including each replica's pool.
+     *
+     * @return RoutingStats snapshot
+     */
+    public static RoutingStats getRoutingStats() {
+        List<PoolStats> replicaPools = new ArrayList<>();
+        for (ConnectionPool replica : REPLICAS) {
+            replicaPools.add(replica.getStats());
+        }
+        return new RoutingStats(REPLICA_READS.get(), PRIMARY_READS.get(), STICKY_READS.get(),
+                FAILOVERS.get(), replicaPools);
+    }
+
+    /**
+     * Opens a connection to the primary outside the pool, for diagnostics that
+     * should not compete with DAO calls for pooled connections. Its statements
+     * are not recorded. The caller must close it.
+     *
+     * @return a new physical connection
+     * @throws SQLException if the connection cannot be opened
+     */
+    static Connection openUnpooledConnection() throws SQLException {
+        return DriverManager.getConnection(JDBC_URL, JDBC_USER, JDBC_PASSWORD);
+    }
+
+    /**
+     * Closes all pooled connections, primary and replicas, and the slow query
+     * log's connection. Intended for application shutdown.
+     */
+    public static void shutdown() {
+        SlowQueryLog.shutdown();
+        POOL.shutdown();
+        for (ConnectionPool replica : REPLICAS) {
+            replica.shutdown();
+        }
+    }
 }
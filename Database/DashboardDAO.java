@@ -0,0 +1,50 @@
+package Database;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import Backend.Account;
+import Backend.Category;
+import Backend.User;
+
+/**
+ * Data Access Object for the combined dashboard view.
+ */
+public class DashboardDAO {
+
+    /**
+     * Loads a user's profile, accounts, categories and account balances with a
+     * single connection checkout. Accounts and categories come from the
+     * per-user caches when present. The returned user's password is cleared.
+     *
+     * @param userId the user ID
+     * @return DashboardSnapshot object, or null if the user does not exist
+     * @throws SQLException if a database access error occurs
+     */
+    public DashboardSnapshot getDashboardSnapshot(int userId) throws SQLException {
+        return DAOMetrics.measureSQL("DashboardDAO.getDashboardSnapshot", () -> {
+            try (Connection conn = DBConnection.getReadConnection(userId)) {
+                User user = UserDAO.loadUser(conn, userId);
+                if (user == null) {
+                    return null;
+                }
+                user.setPassword(null);
+
+                List<Account> accounts = AccountDAO.getCachedUserAccounts(userId);
+                if (accounts == null) {
+                    accounts = AccountDAO.loadUserAccounts(conn, userId);
+                }
+                List<Category> categories = CategoryDAO.getCachedCategories(userId);
+                if (categories == null) {
+                    categories = CategoryDAO.loadCategoriesByUserId(conn, userId);
+                }
+                Map<Integer, BigDecimal> balances = TransactionDAO.loadAccountBalances(conn, userId);
+
+                return new DashboardSnapshot(user, accounts, categories, balances);
+            }
+        });
+    }
+}
@@ -0,0 +1,56 @@
+package Database;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import Backend.Account;
+import Backend.Category;
+import Backend.User;
+
+/**
+ * Everything a user's dashboard shows, loaded together by {@link DashboardDAO}.
+ */
+public class DashboardSnapshot {
+    private final User user;
+    private final List<Account> accounts;
+    private final List<Category> categories;
+    private final Map<Integer, BigDecimal> balances;
+
+    public DashboardSnapshot(User user, List<Account> accounts, List<Category> categories,
+                             Map<Integer, BigDecimal> balances) {
+        this.user = user;
+        this.accounts = Collections.unmodifiableList(accounts);
+        this.categories = Collections.unmodifiableList(categories);
+        this.balances = Collections.unmodifiableMap(balances);
+    }
+
+    // Getters
+    public User getUser() {
+        return user;
+    }
+
+    public List<Account> getAccounts() {
+        return accounts;
+    }
+
+    public List<Category> getCategories() {
+        return categories;
+    }
+
+    /**
+     * Gets the balance of every account, keyed by account ID.
+     *
+     * @return Map of account ID to balance
+     */
+    public Map<Integer, BigDecimal> getBalances() {
+        return balances;
+    }
+
+    @Override
+    public String toString() {
+        return "DashboardSnapshot [user=" + user + ", accounts=" + accounts.size() +
+                ", categories=" + categories.size() + ", balances=" + balances + "]";
+    }
+}
@@ -0,0 +1,466 @@
+package Database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-user inverted index from description words to transaction IDs.
+ *
+ * Descriptions are split into words of letters and digits, lower-cased and
+ * stripped of accents. Every word of a search must match, each one as a
+ * prefix, so "amaz prime" finds "AMAZON Prime Video". Indexes are built from
+ * the Transactions table on first search, cached per user, and kept current
+ * by the {@link TransactionDAO} write methods once their changes commit.
+ */
+public class DescriptionIndex {
+    private static final ExpiringCache<Integer, DescriptionIndex> CACHE = new ExpiringCache<>(
+            "descriptionIndexes",
+            Integer.getInteger("pfinance.search.maxUsers", 1000),
+            Long.getLong("pfinance.search.ttlMillis", 1_800_000L));
+
+    // Builds in progress, at most one per user; other users' builds run in parallel
+    private static final ConcurrentHashMap<Integer, CompletableFuture<DescriptionIndex>> BUILDS =
+            new ConcurrentHashMap<>();
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Integer, String[]> documentTerms = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    DescriptionIndex() {
+    }
+
+    /**
+     * Gets the index for a user, building it if it is not cached. If another
+     * thread is already building the user's index, waits for that build
+     * instead of starting a second one.
+     *
+     * Builds read the primary (or the open {@link UnitOfWork}'s connection),
+     * never a replica: writes only add to a cached index, so rows a lagging
+     * replica had not applied yet would stay missing until the index expires.
+     *
+     * @param userId the user ID
+     * @return DescriptionIndex object
+     * @throws SQLException if a database access error occurs
+     */
+    public static DescriptionIndex forUser(int userId) throws SQLException {
+        while (true) {
+            DescriptionIndex cached = CACHE.get(userId);
+            if (cached != null) {
+                return cached;
+            }
+            CompletableFuture<DescriptionIndex> running = BUILDS.get(userId);
+            if (running == null) {
+                CompletableFuture<DescriptionIndex> mine = new CompletableFuture<>();
+                running = BUILDS.putIfAbsent(userId, mine);
+                if (running == null) {
+                    return buildOnPrimary(userId, mine);
+                }
+            }
+            DescriptionIndex built = await(running);
+            if (built != null) {
+                return built;
+            }
+            // The other build failed; try again on this thread
+        }
+    }
+
+    private static DescriptionIndex buildOnPrimary(int userId, CompletableFuture<DescriptionIndex> registration)
+            throws SQLException {
+        Connection conn;
+        try {
+            conn = DBConnection.getConnection();
+        } catch (SQLException | RuntimeException e) {
+            registration.completeExceptionally(e);
+            BUILDS.remove(userId, registration);
+            throw e;
+        }
+        try {
+            return build(conn, userId, registration);
+        } finally {
+            DBConnection.closeConnection(conn);
+        }
+    }
+
+    /**
+     * Builds a user's index from the Transactions table and caches it,
+     * replacing any cached index. Waits for a build already in progress for
+     * the user first.
+     *
+     * @param conn the connection to build with
+     * @param userId the user ID
+     * @return the new index
+     * @throws SQLException if a database access error occurs
+     */
+    static DescriptionIndex rebuild(Connection conn, int userId) throws SQLException {
+        CompletableFuture<DescriptionIndex> mine = new CompletableFuture<>();
+        CompletableFuture<DescriptionIndex> running;
+        while ((running = BUILDS.putIfAbsent(userId, mine)) != null) {
+            await(running);
+        }
+        CACHE.invalidate(userId);
+        return build(conn, userId, mine);
+    }
+
+    private static DescriptionIndex await(CompletableFuture<DescriptionIndex> build) {
+        try {
+            return build.join();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Builds and caches a user's index. The caller must have registered the
+     * build in BUILDS; the registration is removed when the build ends.
+     */
+    private static DescriptionIndex build(Connection conn, int userId, CompletableFuture<DescriptionIndex> registration)
+            throws SQLException {
+        try {
+            DescriptionIndex index = build(conn, userId);
+            registration.complete(index);
+            return index;
+        } catch (SQLException | RuntimeException e) {
+            registration.completeExceptionally(e);
+            throw e;
+        } finally {
+            BUILDS.remove(userId, registration);
+        }
+    }
+
+    private static DescriptionIndex build(Connection conn, int userId) throws SQLException {
+        long cacheToken = CACHE.loadToken(userId);
+        DescriptionIndex index = new DescriptionIndex();
+        String sql = "SELECT id, description FROM Transactions WHERE userId = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    index.put(rs.getInt(1), rs.getString(2));
+                }
+            }
+        }
+        CACHE.put(userId, index, cacheToken);
+        return index;
+    }
+
+    /**
+     * Records a transaction's description once the current work commits. If
+     * the user's index is not cached but is being built, that build is not
+     * cached, as it may have missed this write.
+     *
+     * @param userId the user ID
+     * @param transactionId the transaction ID
+     * @param description the new description, may be null
+     */
+    static void indexAfterCommit(int userId, int transactionId, String description) {
+        UnitOfWork.afterCommit(() -> {
+            DescriptionIndex index = CACHE.get(userId);
+            if (index != null) {
+                index.put(transactionId, description);
+            } else {
+                discardBuild(userId);
+            }
+        });
+    }
+
+    /**
+     * Removes a transaction from the index once the current work commits. If
+     * the user's index is being built, that build is not cached.
+     *
+     * @param userId the user ID
+     * @param transactionId the transaction ID
+     */
+    static void removeAfterCommit(int userId, int transactionId) {
+        UnitOfWork.afterCommit(() -> {
+            DescriptionIndex index = CACHE.get(userId);
+            if (index != null) {
+                index.remove(transactionId);
+            } else {
+                discardBuild(userId);
+            }
+        });
+    }
+
+    /**
+     * Stops a build in progress for the user from being cached. Called after
+     * a cache miss: a build is deregistered only after it caches its index, so
+     * any build that missed the write is still registered here.
+     */
+    private static void discardBuild(int userId) {
+        if (BUILDS.containsKey(userId)) {
+            CACHE.invalidate(userId);
+        }
+    }
+
+    /**
+     * Drops a user's index after transactions were removed in bulk, e.g. by an
+     * account deletion cascading to its transactions.
+     *
+     * @param userId the user ID
+     */
+    static void invalidate(int userId) {
+        CACHE.invalidateOnCommit(userId);
+    }
+
+    /**
+     * Gets statistics for the index cache.
+     *
+     * @return CacheStats snapshot
+     */
+    public static CacheStats getCacheStats() {
+        return CACHE.getStats();
+    }
+
+    /**
+     * Finds the transactions whose descriptions contain every word of the
+     * query, each as a word prefix.
+     *
+     * @param query the words to look for
+     * @return matching transaction IDs, highest (newest) first; empty if the
+     *         query has no words
+     */
+    public int[] search(String query) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return NO_IDS;
+        }
+
+        int[] result = null;
+        lock.readLock().lock();
+        try {
+            for (String word : words) {
+                int[] matches = prefixMatches(word);
+                result = result == null ? matches : intersect(result, matches);
+                if (result.length == 0) {
+                    return NO_IDS;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+            int swap = result[i];
+            result[i] = result[j];
+            result[j] = swap;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of transactions in the index.
+     *
+     * @return the transaction count
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentTerms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of distinct words in the index.
+     *
+     * @return the word count
+     */
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a transaction, or replaces its words if it is already indexed.
+     */
+    void put(int transactionId, String description) {
+        List<String> words = tokenize(description);
+        lock.writeLock().lock();
+        try {
+            removeLocked(transactionId);
+            String[] keys = new String[words.size()];
+            int count = 0;
+            for (String word : words) {
+                Map.Entry<String, Postings> entry = terms.ceilingEntry(word);
+                Postings postings;
+                if (entry != null && entry.getKey().equals(word)) {
+                    // Reuse the key instance so each word is stored once
+                    word = entry.getKey();
+                    postings = entry.getValue();
+                } else {
+                    postings = new Postings();
+                    terms.put(word, postings);
+                }
+                if (postings.add(transactionId)) {
+                    keys[count++] = word;
+                }
+            }
+            if (count > 0) {
+                documentTerms.put(transactionId, count == keys.length ? keys : Arrays.copyOf(keys, count));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(int transactionId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(transactionId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(int transactionId) {
+        String[] keys = documentTerms.remove(transactionId);
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            Postings postings = terms.get(key);
+            if (postings != null && postings.remove(transactionId) && postings.size == 0) {
+                terms.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Gets the sorted IDs of every transaction containing a word with the given prefix.
+     */
+    private int[] prefixMatches(String prefix) {
+        NavigableMap<String, Postings> range = terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (range.isEmpty()) {
+            return NO_IDS;
+        }
+        if (range.size() == 1) {
+            Postings postings = range.firstEntry().getValue();
+            return Arrays.copyOf(postings.ids, postings.size);
+        }
+
+        int total = 0;
+        for (Postings postings : range.values()) {
+            total += postings.size;
+        }
+        int[] ids = new int[total];
+        int length = 0;
+        for (Postings postings : range.values()) {
+            System.arraycopy(postings.ids, 0, ids, length, postings.size);
+            length += postings.size;
+        }
+        Arrays.sort(ids);
+        int distinct = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, distinct);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int length = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[length++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, length);
+    }
+
+    /**
+     * Splits text into distinct lower-case words of letters and digits, with
+     * accents removed.
+     *
+     * @param text the text, may be null
+     * @return the words, in order of first appearance
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return words;
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD).toLowerCase(Locale.ROOT);
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= folded.length(); i++) {
+            char c = i < folded.length() ? folded.charAt(i) : ' ';
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                String token = word.toString();
+                if (!words.contains(token)) {
+                    words.add(token);
+                }
+                word.setLength(0);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Sorted, growable list of transaction IDs for one word. IDs usually
+     * arrive in increasing order, so adding is normally an append.
+     */
+    private static final class Postings {
+        private int[] ids = new int[2];
+        private int size;
+
+        private boolean add(int id) {
+            int position = size > 0 && ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0 && position < size) {
+                return false;
+            }
+            int insertAt = position >= 0 ? position : -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+            return true;
+        }
+
+        private boolean remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package Database;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+/**
+ * Small bounded in-process cache with least-recently-used eviction and a
+ * time-to-live per entry. Thread safe; all operations lock the cache briefly.
+ *
+ * Loads race with invalidations: a value read from the database before a
+ * concurrent write may arrive after that write has invalidated the entry.
+ * To keep such stale values out, callers take a token with
+ * {@link #loadToken(Object)} before reading the database and pass it to
+ * {@link #put(Object, Object, long)}, which discards the value if its key was
+ * invalidated in between. Versions are kept per stripe of keys, so writes to
+ * other keys rarely discard a load.
+ *
+ * Writers that may run inside a {@link UnitOfWork} use
+ * {@link #invalidateOnCommit(Object)}, and loads made inside an open unit of
+ * work are not stored, so uncommitted data never reaches the cache.
+ *
+ * @param <K> the key type
+ * @param <V> the value type; values are shared, so they should not be mutated
+ */
+public class ExpiringCache<K, V> {
+    // Number of invalidation versions; keys share a version when their hashes collide
+    private static final int VERSION_STRIPES = 256;
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final long[] versions = new long[VERSION_STRIPES];
+
+    private long invalidations;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * @param name the cache name, used in statistics
+     * @param maxSize the maximum number of entries
+     * @param ttlMillis how long an entry stays valid after it is stored
+     */
+    public ExpiringCache(String name, int maxSize, long ttlMillis) {
+        if (maxSize < 1 || ttlMillis < 1) {
+            throw new IllegalArgumentException("Invalid cache bounds: maxSize=" + maxSize + ", ttlMillis=" + ttlMillis);
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Gets a cached value.
+     *
+     * @param key the key
+     * @return the value, or null if absent or expired
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (System.currentTimeMillis() >= entry.expiresAt) {
+            entries.remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Gets a token to pass to {@link #put(Object, Object, long)} after loading a value.
+     *
+     * @param key the key about to be loaded
+     * @return the current invalidation version of the key
+     */
+    public synchronized long loadToken(K key) {
+        return versions[stripe(key)];
+    }
+
+    /**
+     * Stores a value loaded from the database, unless the key has been
+     * invalidated since the token was taken or the value was loaded inside a
+     * unit of work, where it may include writes that are later rolled back.
+     *
+     * @param key the key
+     * @param value the value
+     * @param token the token taken before the value was loaded
+     */
+    public synchronized void put(K key, V value, long token) {
+        if (token != versions[stripe(key)] || UnitOfWork.isActive()) {
+            return;
+        }
+        put(key, value);
+    }
+
+    /**
+     * Stores a value unconditionally, evicting the least recently used entry if full.
+     *
+     * @param key the key
+     * @param value the value
+     */
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+        if (entries.size() > maxSize) {
+            Iterator<K> eldest = entries.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes a key, e.g. after the data behind it was written.
+     *
+     * @param key the key
+     */
+    public synchronized void invalidate(K key) {
+        invalidations++;
+        versions[stripe(key)]++;
+        entries.remove(key);
+    }
+
+    /**
+     * Removes a key after a write that may belong to a unit of work: now, and
+     * again once the unit commits, which also discards any load of the old
+     * data that was in progress meanwhile. Without an open unit of work the
+     * key is removed once.
+     *
+     * @param key the key
+     */
+    public void invalidateOnCommit(K key) {
+        invalidate(key);
+        if (UnitOfWork.isActive()) {
+            UnitOfWork.afterCommit(() -> invalidate(key));
+        }
+    }
+
+    /**
+     * Removes every entry matching the predicate.
+     *
+     * @param predicate test applied to each key and value
+     */
+    public synchronized void invalidateIf(BiPredicate<? super K, ? super V> predicate) {
+        invalidations++;
+        bumpAllVersions();
+        entries.entrySet().removeIf(e -> predicate.test(e.getKey(), e.getValue().value));
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public synchronized void clear() {
+        invalidations++;
+        bumpAllVersions();
+        entries.clear();
+    }
+
+    /**
+     * Returns a snapshot of the cache counters.
+     *
+     * @return CacheStats object
+     */
+    public synchronized CacheStats getStats() {
+        return new CacheStats(name, entries.size(), maxSize, hits, misses, evictions, expirations, invalidations);
+    }
+
+    private void bumpAllVersions() {
+        for (int i = 0; i < versions.length; i++) {
+            versions[i]++;
+        }
+    }
+
+    private static int stripe(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (VERSION_STRIPES - 1);
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
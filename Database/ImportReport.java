@@ -0,0 +1,93 @@
+package Database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a {@link TransactionImporter} run: row counts, throughput and the
+ * rows that could not be imported.
+ */
+public class ImportReport {
+    private final long rowsRead;
+    private final long rowsImported;
+    private final long rowsFailed;
+    private final List<RowError> errors;
+    private final long elapsedNanos;
+
+    public ImportReport(long rowsRead, long rowsImported, long rowsFailed, List<RowError> errors, long elapsedNanos) {
+        this.rowsRead = rowsRead;
+        this.rowsImported = rowsImported;
+        this.rowsFailed = rowsFailed;
+        this.errors = Collections.unmodifiableList(new ArrayList<>(errors));
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // Getters
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getRowsImported() {
+        return rowsImported;
+    }
+
+    public long getRowsFailed() {
+        return rowsFailed;
+    }
+
+    /**
+     * Gets the failed rows. At most pfinance.import.maxReportedErrors are kept;
+     * getRowsFailed() counts all of them.
+     *
+     * @return the row errors, in file order
+     */
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gets the import throughput over the whole run, parsing included.
+     *
+     * @return rows read per second
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : rowsRead * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportReport [read=" + rowsRead + ", imported=" + rowsImported + ", failed=" + rowsFailed +
+                ", elapsedMs=" + elapsedNanos / 1_000_000 + ", rowsPerSec=" + Math.round(getRowsPerSecond()) + "]";
+    }
+
+    /**
+     * A statement row that was skipped, and why.
+     */
+    public static class RowError {
+        private final long lineNumber;
+        private final String message;
+
+        public RowError(long lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + lineNumber + ": " + message;
+        }
+    }
+}
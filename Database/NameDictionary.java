@@ -0,0 +1,108 @@
+package Database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-user lookup of account and category names by ID.
+ *
+ * Lets transaction reads select from Transactions alone instead of joining
+ * Accounts and Categories for every row. Each name is held once, so every
+ * Transaction resolved through the same dictionary shares the same String
+ * instance. Dictionaries are cached per user and invalidated by the account
+ * and category write methods.
+ */
+public class NameDictionary {
+    private static final ExpiringCache<Integer, NameDictionary> CACHE = new ExpiringCache<>(
+            "nameDictionaries",
+            Integer.getInteger("pfinance.cache.maxUsers", 10_000),
+            Long.getLong("pfinance.cache.ttlMillis", 300_000L));
+
+    private final Map<Integer, String> accountNames;
+    private final Map<Integer, String> categoryNames;
+
+    private NameDictionary(Map<Integer, String> accountNames, Map<Integer, String> categoryNames) {
+        this.accountNames = Collections.unmodifiableMap(accountNames);
+        this.categoryNames = Collections.unmodifiableMap(categoryNames);
+    }
+
+    /**
+     * Gets the dictionary for a user, loading it on the given connection if
+     * it is not cached.
+     *
+     * @param conn the connection to load with
+     * @param userId the user ID
+     * @return NameDictionary object
+     * @throws SQLException if a database access error occurs
+     */
+    public static NameDictionary forUser(Connection conn, int userId) throws SQLException {
+        NameDictionary cached = CACHE.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long cacheToken = CACHE.loadToken(userId);
+        NameDictionary dictionary = new NameDictionary(
+                loadNames(conn, "SELECT id, accountName FROM Accounts WHERE userId = ?", userId),
+                loadNames(conn, "SELECT id, name FROM Categories WHERE userId = ?", userId));
+        CACHE.put(userId, dictionary, cacheToken);
+        return dictionary;
+    }
+
+    /**
+     * Drops a user's cached dictionary after one of their accounts or
+     * categories changed, and again once the current unit of work commits.
+     *
+     * @param userId the user ID
+     */
+    public static void invalidate(int userId) {
+        CACHE.invalidateOnCommit(userId);
+    }
+
+    /**
+     * Gets statistics for the dictionary cache.
+     *
+     * @return CacheStats snapshot
+     */
+    public static CacheStats getCacheStats() {
+        return CACHE.getStats();
+    }
+
+    /**
+     * Gets an account name.
+     *
+     * @param accountId the account ID
+     * @return the shared name instance, or null if unknown
+     */
+    public String getAccountName(int accountId) {
+        return accountNames.get(accountId);
+    }
+
+    /**
+     * Gets a category name.
+     *
+     * @param categoryId the category ID
+     * @return the shared name instance, or null if unknown
+     */
+    public String getCategoryName(int categoryId) {
+        return categoryNames.get(categoryId);
+    }
+
+    private static Map<Integer, String> loadNames(Connection conn, String sql, int userId) throws SQLException {
+        Map<Integer, String> names = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    names.put(rs.getInt(1), rs.getString(2));
+                }
+            }
+        }
+        return names;
+    }
+}
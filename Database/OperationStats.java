@@ -0,0 +1,92 @@
+package Database;
+
+/**
+ * Point-in-time snapshot of the metrics recorded for one DAO operation by
+ * {@link DAOMetrics}. Latencies are in microseconds.
+ */
+public class OperationStats {
+    private final String operation;
+    private final long calls;
+    private final long errors;
+    private final long rows;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p99Micros;
+    private final double p999Micros;
+    private final double maxMicros;
+    private final double meanConnectionAcquireMicros;
+
+    public OperationStats(String operation, long calls, long errors, long rows, double meanMicros,
+                          double p50Micros, double p99Micros, double p999Micros, double maxMicros,
+                          double meanConnectionAcquireMicros) {
+        this.operation = operation;
+        this.calls = calls;
+        this.errors = errors;
+        this.rows = rows;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+        this.meanConnectionAcquireMicros = meanConnectionAcquireMicros;
+    }
+
+    // Getters
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Gets the total rows returned or written, for operations that report them.
+     *
+     * @return the row count
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    public double getP999Micros() {
+        return p999Micros;
+    }
+
+    public double getMaxMicros() {
+        return maxMicros;
+    }
+
+    /**
+     * Gets the mean time spent waiting for pooled connections per call.
+     *
+     * @return the mean acquire time in microseconds
+     */
+    public double getMeanConnectionAcquireMicros() {
+        return meanConnectionAcquireMicros;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-45s calls=%d errors=%d rows=%d mean=%.1fus p50=%.1fus p99=%.1fus p999=%.1fus " +
+                        "max=%.1fus acquire=%.1fus",
+                operation, calls, errors, rows, meanMicros, p50Micros, p99Micros, p999Micros, maxMicros,
+                meanConnectionAcquireMicros);
+    }
+}
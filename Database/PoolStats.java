@@ -0,0 +1,109 @@
+package Database;
+
+/**
+ * Point-in-time snapshot of {@link ConnectionPool} statistics, used to size the pool.
+ */
+public class PoolStats {
+    private final int totalConnections;
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int waitingThreads;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowCount;
+    private final long createdCount;
+    private final long destroyedCount;
+    private final long timeoutCount;
+    private final long validationFailureCount;
+    private final long leakCount;
+    private final double averageWaitMillis;
+    private final double maxWaitMillis;
+
+    public PoolStats(int totalConnections, int activeConnections, int idleConnections, int waitingThreads,
+                     int minSize, int maxSize, long borrowCount, long createdCount, long destroyedCount,
+                     long timeoutCount, long validationFailureCount, long leakCount,
+                     double averageWaitMillis, double maxWaitMillis) {
+        this.totalConnections = totalConnections;
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.waitingThreads = waitingThreads;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowCount = borrowCount;
+        this.createdCount = createdCount;
+        this.destroyedCount = destroyedCount;
+        this.timeoutCount = timeoutCount;
+        this.validationFailureCount = validationFailureCount;
+        this.leakCount = leakCount;
+        this.averageWaitMillis = averageWaitMillis;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    // Getters
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getWaitingThreads() {
+        return waitingThreads;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    public long getCreatedCount() {
+        return createdCount;
+    }
+
+    public long getDestroyedCount() {
+        return destroyedCount;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    public long getValidationFailureCount() {
+        return validationFailureCount;
+    }
+
+    public long getLeakCount() {
+        return leakCount;
+    }
+
+    public double getAverageWaitMillis() {
+        return averageWaitMillis;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStats [total=" + totalConnections + ", active=" + activeConnections +
+                ", idle=" + idleConnections + ", waiting=" + waitingThreads +
+                ", min=" + minSize + ", max=" + maxSize + ", borrows=" + borrowCount +
+                ", created=" + createdCount + ", destroyed=" + destroyedCount +
+                ", timeouts=" + timeoutCount + ", validationFailures=" + validationFailureCount +
+                ", leaks=" + leakCount + ", avgWaitMs=" + averageWaitMillis +
+                ", maxWaitMs=" + maxWaitMillis + "]";
+    }
+}
@@ -0,0 +1,328 @@
+package Database;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import Backend.Account;
+import Backend.Category;
+import Backend.Transaction;
+import Backend.TransactionType;
+import Backend.User;
+
+/**
+ * Runs EXPLAIN on the statements issued by the DAOs and reports any that read
+ * a table without an index or need a filesort.
+ *
+ * The statements are not copies: the checker seeds a throwaway user, calls
+ * every DAO method (in both read modes, and every {@link TransactionQuery}
+ * filter shape with and without a cursor) and captures what they execute,
+ * then explains each distinct statement with the parameters it ran with. The
+ * seeded data is removed afterwards. Intended to be run against a migrated
+ * database after schema or query changes:
+ * <pre>
+ * java Database.QueryPlanChecker --transactions 5000
+ * </pre>
+ * Exits with status 1 if any statement has a problem.
+ */
+public class QueryPlanChecker {
+
+    /**
+     * A distinct statement, the parameters of its first execution and the operations issuing it.
+     */
+    private static final class CapturedStatement {
+        private final String sql;
+        private final Object[] parameters;
+        private final Set<String> operations = new TreeSet<>();
+
+        private CapturedStatement(String sql, Object[] parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+    }
+
+    private final Map<String, CapturedStatement> statements = new ConcurrentHashMap<>();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final Random random = new Random(42);
+    private final List<Integer> userIds = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        int transactions = 5000;
+        for (int i = 0; i < args.length - 1; i += 2) {
+            switch (args[i]) {
+                case "--transactions": transactions = Integer.parseInt(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        QueryPlanChecker checker = new QueryPlanChecker();
+        List<String> problems;
+        try {
+            checker.capture(transactions);
+            problems = checker.check();
+        } finally {
+            checker.cleanUp();
+            DBConnection.shutdown();
+        }
+        for (String problem : problems) {
+            System.out.println(problem);
+        }
+        System.out.println(checker.statements.size() + " statements checked, " + problems.size() + " problems found.");
+        if (!problems.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Seeds a user and calls every DAO method, capturing the statements they execute.
+     *
+     * @param transactions the number of transactions to seed
+     * @throws Exception if a call cannot be made
+     */
+    private void capture(int transactions) throws Exception {
+        DAOMetrics.observeStatements((operation, execution) -> {
+            // Inserts have no access path worth checking
+            if (execution.sql != null && !execution.sql.trim().regionMatches(true, 0, "INSERT", 0, 6)) {
+                statements.computeIfAbsent(execution.sql, sql -> new CapturedStatement(sql, execution.parameters))
+                        .operations.add(operation);
+            }
+        });
+        try {
+            exercise(transactions);
+        } finally {
+            DAOMetrics.observeStatements(null);
+        }
+    }
+
+    private void exercise(int transactions) throws Exception {
+        UserDAO userDAO = new UserDAO();
+        AccountDAO accountDAO = new AccountDAO();
+        CategoryDAO categoryDAO = new CategoryDAO();
+
+        String password = "plan-password";
+        User user = new User(0, "plan_" + runId, password, "plan_" + runId + "@example.com", "Plan", "Check");
+        int userId = userDAO.createUser(user);
+        if (userId < 0) {
+            throw new IllegalStateException("Could not create plan check user");
+        }
+        userIds.add(userId);
+        user.setId(userId);
+
+        List<Integer> accountIds = new ArrayList<>();
+        List<Integer> categoryIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            accountIds.add(accountDAO.createAccount(new Account(0, userId, "Account " + i)));
+            categoryIds.add(categoryDAO.createCategory(new Category(0, userId, "Category " + i)).getId());
+        }
+        int accountId = accountIds.get(0);
+        int categoryId = categoryIds.get(0);
+
+        TransactionDAO seeder = new TransactionDAO();
+        List<Transaction> batch = new ArrayList<>();
+        long day = 24L * 60 * 60 * 1000;
+        long today = System.currentTimeMillis() / day * day;
+        for (int i = 0; i < transactions; i++) {
+            batch.add(new Transaction(0, userId, accountIds.get(random.nextInt(accountIds.size())),
+                    categoryIds.get(random.nextInt(categoryIds.size())),
+                    BigDecimal.valueOf(100 + random.nextInt(100_000), 2),
+                    i % 5 == 0 ? "INCOME" : "EXPENSE", "Plan check coffee " + (i % 50),
+                    new Date(today - random.nextInt(1000) * day)));
+        }
+        seeder.createTransactions(batch);
+        int transactionId = batch.get(0).getId();
+
+        // UserDAO and the components built on it
+        // warmUp is not a measured DAO call, so give its statements an operation name;
+        // it runs before usernameExists would build the filter itself
+        DAOMetrics.measureSQL("UsernameFilter.warmUp", () -> {
+            UsernameFilter.warmUp();
+            return null;
+        });
+        userDAO.authenticate(user.getUsername(), password);
+        userDAO.getUser(userId);
+        userDAO.updateUser(new User(userId, user.getUsername(), null, user.getEmail(), "Plan", "Checked"));
+        userDAO.updateUser(new User(userId, user.getUsername(), password, user.getEmail(), "Plan", "Checked"));
+        userDAO.usernameExists(user.getUsername());
+        userDAO.usernameExists("plan_missing_" + runId);
+        SessionManager sessions = new SessionManager();
+        sessions.logout(sessions.login(user.getUsername(), password));
+
+        // AccountDAO and CategoryDAO
+        accountDAO.getAccount(accountId);
+        accountDAO.getUserAccounts(userId);
+        accountDAO.updateAccount(new Account(accountId, userId, "Account 0"));
+        accountDAO.deleteAccount(accountDAO.createAccount(new Account(0, userId, "Temporary")), userId);
+        categoryDAO.getCategoryById(categoryId);
+        categoryDAO.getCategoriesByUserId(userId);
+        categoryDAO.updateCategory(new Category(categoryId, userId, "Category 0"));
+        categoryDAO.deleteCategory(categoryDAO.createCategory(new Category(0, userId, "Temporary")).getId(), userId);
+
+        // TransactionDAO, in both read modes
+        TransactionCursor cursor = new TransactionCursor(new Date(today + day), Integer.MAX_VALUE);
+        for (boolean joinFree : new boolean[] {false, true}) {
+            TransactionDAO dao = new TransactionDAO(joinFree);
+            dao.getTransaction(transactionId, userId);
+            dao.getUserTransactions(userId);
+            dao.getAccountTransactions(accountId, userId);
+            dao.getCategoryTransactions(categoryId, userId);
+            for (TransactionCursor after : new TransactionCursor[] {null, cursor}) {
+                dao.getUserTransactionsPage(userId, after, 50);
+                dao.getAccountTransactionsPage(accountId, userId, after, 50);
+                dao.getCategoryTransactionsPage(categoryId, userId, after, 50);
+            }
+            for (TransactionQuery query : queryShapes(userId, accountIds, categoryIds)) {
+                dao.queryTransactions(query, null, 50);
+                dao.queryTransactions(query, cursor, 50);
+                consume(dao.streamTransactions(query, true));
+            }
+            consume(dao.streamUserTransactions(userId, true));
+            consume(dao.streamAccountTransactions(accountId, userId, true));
+            consume(dao.streamCategoryTransactions(categoryId, userId, true));
+            dao.forEachUserTransaction(userId, true, transaction -> { });
+            dao.loadLedger(userId);
+        }
+
+        TransactionDAO transactionDAO = new TransactionDAO();
+        transactionDAO.getUserTransactionsCompact(userId);
+        transactionDAO.getAccountTransactionsCompact(accountId, userId);
+        transactionDAO.getCategoryTransactionsCompact(categoryId, userId);
+        transactionDAO.rebuildDescriptionIndex(userId);
+        transactionDAO.searchDescriptions(userId, "coffee");
+        transactionDAO.createTransaction(new Transaction(0, userId, accountId, categoryId,
+                BigDecimal.ONE, "EXPENSE", "Plan check single", new Date(today)));
+        transactionDAO.transferFunds(userId, accountId, accountIds.get(1), categoryId,
+                BigDecimal.ONE, "Plan check transfer", new Date(today));
+        Transaction updated = new Transaction(transactionId, userId, accountId, categoryId,
+                BigDecimal.TEN, "EXPENSE", "Plan check updated", new Date(today));
+        transactionDAO.updateTransaction(updated);
+        transactionDAO.deleteTransaction(batch.get(1).getId(), userId);
+        transactionDAO.getAccountBalance(accountId, userId);
+        transactionDAO.getAccountBalances(userId);
+        transactionDAO.verifyAccountBalances(userId);
+        transactionDAO.rebuildAccountBalances(userId);
+
+        // Components composed of DAO reads
+        new DashboardDAO().getDashboardSnapshot(userId);
+        new TransactionExporter().export(userId, TransactionExporter.Format.CSV, false,
+                new ByteArrayOutputStream());
+    }
+
+    /**
+     * Builds one query per combination of filters, so that every WHERE clause
+     * {@link TransactionDAO#queryTransactions} can generate is exercised.
+     */
+    private static List<TransactionQuery> queryShapes(int userId, List<Integer> accountIds, List<Integer> categoryIds) {
+        List<TransactionQuery> queries = new ArrayList<>();
+        long day = 24L * 60 * 60 * 1000;
+        Date to = new Date();
+        Date from = new Date(to.getTime() - 90 * day);
+        int filters = 8;
+        for (int mask = 0; mask < 1 << filters; mask++) {
+            TransactionQuery query = new TransactionQuery(userId);
+            if ((mask & 1) != 0) query.setFromDate(from);
+            if ((mask & 2) != 0) query.setToDate(to);
+            if ((mask & 4) != 0) query.setAccountIds(accountIds.subList(0, 2));
+            if ((mask & 8) != 0) query.setCategoryIds(Arrays.asList(categoryIds.get(0)));
+            if ((mask & 16) != 0) query.setType(TransactionType.EXPENSE);
+            if ((mask & 32) != 0) query.setMinAmount(BigDecimal.ONE);
+            if ((mask & 64) != 0) query.setMaxAmount(BigDecimal.valueOf(500));
+            if ((mask & 128) != 0) query.setDescriptionContains("coffee");
+            queries.add(query);
+        }
+        return queries;
+    }
+
+    private static void consume(Stream<Transaction> transactions) {
+        try (Stream<Transaction> rows = transactions) {
+            rows.forEach(row -> { });
+        }
+    }
+
+    /**
+     * Explains every captured statement.
+     *
+     * @return one message per table access without an index or with a filesort
+     * @throws SQLException if a statement cannot be explained
+     */
+    private List<String> check() throws SQLException {
+        List<String> problems = new ArrayList<>();
+
+        try (Connection conn = DBConnection.getConnection()) {
+            for (CapturedStatement statement : new TreeMap<>(statements).values()) {
+                try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + statement.sql)) {
+                    for (int i = 0; i < statement.parameters.length; i++) {
+                        stmt.setObject(i + 1, statement.parameters[i]);
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            String problem = checkPlanRow(rs);
+                            if (problem != null) {
+                                problems.add(statement.operations + ": " + problem + "\n    " + statement.sql);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return problems;
+    }
+
+    /**
+     * Checks one row of MySQL's tabular EXPLAIN output.
+     *
+     * @param rs the EXPLAIN result positioned on a row
+     * @return a description of the problem, or null if the access is indexed
+     * @throws SQLException if a database access error occurs
+     */
+    private static String checkPlanRow(ResultSet rs) throws SQLException {
+        String table = rs.getString("table");
+        String type = rs.getString("type");
+        String key = rs.getString("key");
+        String extra = rs.getString("Extra");
+
+        if (extra != null && extra.contains("Using filesort")) {
+            return "filesort on " + table + " (" + extra + ")";
+        }
+        if (table == null || "system".equals(type) || "const".equals(type)) {
+            return null;
+        }
+        if ("ALL".equals(type) || key == null) {
+            return "no index used on " + table + " (type=" + type + ")";
+        }
+        return null;
+    }
+
+    private void cleanUp() throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            for (String table : new String[] {"Transactions", "Accounts", "Categories"}) {
+                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + table + " WHERE userId = ?")) {
+                    for (int userId : userIds) {
+                        stmt.setInt(1, userId);
+                        stmt.executeUpdate();
+                    }
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM Users WHERE id = ?")) {
+                for (int userId : userIds) {
+                    stmt.setInt(1, userId);
+                    stmt.executeUpdate();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package Database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Point-in-time snapshot of how {@link DBConnection} routed read connections
+ * between the primary and the read replicas.
+ */
+public class RoutingStats {
+    private final long replicaReads;
+    private final long primaryReads;
+    private final long stickyReads;
+    private final long failovers;
+    private final List<PoolStats> replicaPools;
+
+    public RoutingStats(long replicaReads, long primaryReads, long stickyReads, long failovers,
+                        List<PoolStats> replicaPools) {
+        this.replicaReads = replicaReads;
+        this.primaryReads = primaryReads;
+        this.stickyReads = stickyReads;
+        this.failovers = failovers;
+        this.replicaPools = Collections.unmodifiableList(new ArrayList<>(replicaPools));
+    }
+
+    // Getters
+    public long getReplicaReads() {
+        return replicaReads;
+    }
+
+    /**
+     * Gets the read connections served by the primary, for any reason: no
+     * replicas configured, an open {@link UnitOfWork}, a recent write by the
+     * user, or a replica failing.
+     *
+     * @return the number of reads sent to the primary
+     */
+    public long getPrimaryReads() {
+        return primaryReads;
+    }
+
+    /**
+     * Gets the reads sent to the primary because the user wrote within
+     * pfinance.replica.stickyMillis.
+     *
+     * @return the number of sticky reads
+     */
+    public long getStickyReads() {
+        return stickyReads;
+    }
+
+    /**
+     * Gets the reads sent to the primary because no replica connection could
+     * be obtained.
+     *
+     * @return the number of failovers
+     */
+    public long getFailovers() {
+        return failovers;
+    }
+
+    /**
+     * Gets the pool statistics of each replica, in configuration order.
+     *
+     * @return one PoolStats per replica
+     */
+    public List<PoolStats> getReplicaPools() {
+        return replicaPools;
+    }
+
+    @Override
+    public String toString() {
+        return "RoutingStats [replicaReads=" + replicaReads + ", primaryReads=" + primaryReads +
+                ", stickyReads=" + stickyReads + ", failovers=" + failovers +
+                ", replicaPools=" + replicaPools + "]";
+    }
+}
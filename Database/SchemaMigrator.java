@@ -0,0 +1,202 @@
+package Database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Versioned schema migrations, applied in order at startup by {@link DBConnection}.
+ *
+ * Applied versions are recorded in the schema_version table, so each migration
+ * runs exactly once per database. New schema changes are added as a new
+ * migration at the end of the list; released migrations are never edited.
+ * These migrations are the source of truth for the schema: schema.sql creates
+ * the same baseline tables (migration 1) for loading its sample data, and the
+ * remaining migrations are applied on the first connection.
+ */
+public class SchemaMigrator {
+
+    private static final List<Migration> MIGRATIONS = Collections.unmodifiableList(Arrays.asList(
+            new Migration(1, "Baseline tables",
+                    sql("CREATE TABLE IF NOT EXISTS Users (" +
+                            "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                            "username VARCHAR(50) NOT NULL UNIQUE, " +
+                            "password VARCHAR(255) NOT NULL, " +
+                            "email VARCHAR(100) NOT NULL UNIQUE, " +
+                            "firstName VARCHAR(50), " +
+                            "lastName VARCHAR(50))"),
+                    sql("CREATE TABLE IF NOT EXISTS Accounts (" +
+                            "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                            "userId INT NOT NULL, " +
+                            "accountName VARCHAR(100), " +
+                            "FOREIGN KEY (userId) REFERENCES Users(id) ON DELETE CASCADE)"),
+                    sql("CREATE TABLE IF NOT EXISTS Categories (" +
+                            "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                            "userId INT NOT NULL, " +
+                            "name VARCHAR(100), " +
+                            "FOREIGN KEY (userId) REFERENCES Users(id) ON DELETE CASCADE)"),
+                    // categoryId is nullable: CategoryDAO.deleteCategory detaches transactions first
+                    sql("CREATE TABLE IF NOT EXISTS Transactions (" +
+                            "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                            "userId INT NOT NULL, " +
+                            "accountId INT NOT NULL, " +
+                            "categoryId INT NULL, " +
+                            "amount DECIMAL(10, 2) NOT NULL, " +
+                            "type ENUM('income', 'expense') NOT NULL, " +
+                            "description VARCHAR(255), " +
+                            "date DATE NOT NULL, " +
+                            "FOREIGN KEY (userId) REFERENCES Users(id) ON DELETE CASCADE, " +
+                            "FOREIGN KEY (accountId) REFERENCES Accounts(id) ON DELETE CASCADE, " +
+                            "FOREIGN KEY (categoryId) REFERENCES Categories(id) ON DELETE SET NULL)")),
+
+            // Tolerates a balance column that already exists, as in databases created
+            // from schema.sql before it was aligned with these migrations
+            new Migration(2, "Running account balances",
+                    addColumnIfMissing("Accounts", "balance", "DECIMAL(12, 2) NOT NULL DEFAULT 0"),
+                    sql("UPDATE Accounts a SET balance = (" +
+                            "SELECT COALESCE(SUM(CASE WHEN t.type = 'income' THEN t.amount ELSE -t.amount END), 0) " +
+                            "FROM Transactions t WHERE t.accountId = a.id AND t.userId = a.userId)")),
+
+            // Each listing index matches a TransactionDAO WHERE clause followed by its
+            // ORDER BY date DESC, id DESC, so listings and keyset pages need no filesort.
+            new Migration(3, "Indexes for DAO query shapes",
+                    sql("CREATE INDEX idx_transactions_user_date ON Transactions (userId, date, id)"),
+                    sql("CREATE INDEX idx_transactions_account_date ON Transactions (accountId, userId, date, id)"),
+                    sql("CREATE INDEX idx_transactions_category_date ON Transactions (categoryId, userId, date, id)"),
+                    // Covers the balance recomputation without touching table rows
+                    sql("CREATE INDEX idx_transactions_account_amounts ON Transactions (accountId, userId, type, amount)"),
+                    // Cover getUserAccounts' name lookups, getCategoriesByUserId and the name dictionaries
+                    sql("CREATE INDEX idx_accounts_user ON Accounts (userId, id, accountName)"),
+                    sql("CREATE INDEX idx_categories_user_name ON Categories (userId, name, id)")),
+
+            // Marks the two legs TransactionDAO.transferFunds writes, so spending
+            // aggregates can leave money moved between a user's own accounts out
+            new Migration(4, "Transfer flag",
+                    addColumnIfMissing("Transactions", "transfer", "BOOLEAN NOT NULL DEFAULT FALSE"))
+    ));
+
+    /**
+     * Applies every migration newer than the database's current version.
+     *
+     * @param conn a connection in auto-commit mode
+     * @return the number of migrations applied
+     * @throws SQLException if a migration fails; later migrations are not attempted
+     */
+    public static int migrate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT PRIMARY KEY, " +
+                    "description VARCHAR(200) NOT NULL, " +
+                    "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        }
+
+        int current = getCurrentVersion(conn);
+        int applied = 0;
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version <= current) {
+                continue;
+            }
+            try {
+                for (Step step : migration.steps) {
+                    step.apply(conn);
+                }
+            } catch (SQLException e) {
+                throw new SQLException("Schema migration " + migration.version + " (" +
+                        migration.description + ") failed: " + e.getMessage(), e.getSQLState(), e);
+            }
+
+            String sql = "INSERT INTO schema_version (version, description) VALUES (?, ?)";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, migration.version);
+                stmt.setString(2, migration.description);
+                stmt.executeUpdate();
+            }
+            applied++;
+        }
+        return applied;
+    }
+
+    /**
+     * Gets the highest migration version applied to the database.
+     *
+     * @param conn the connection
+     * @return the current version, or 0 if none has been applied
+     * @throws SQLException if a database access error occurs
+     */
+    public static int getCurrentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Gets the version the database will be at once all migrations are applied.
+     *
+     * @return the latest migration version
+     */
+    public static int getLatestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    /**
+     * Step running one DDL or DML statement.
+     */
+    private static Step sql(String sql) {
+        return conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(sql);
+            }
+        };
+    }
+
+    /**
+     * Step adding a column unless the table already has it.
+     */
+    private static Step addColumnIfMissing(String table, String column, String definition) {
+        return conn -> {
+            if (!hasColumn(conn, table, column)) {
+                sql("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition).apply(conn);
+            }
+        };
+    }
+
+    private static boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        // Result metadata avoids the identifier case rules of DatabaseMetaData lookups
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM " + table + " WHERE 1 = 0")) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                if (column.equalsIgnoreCase(metaData.getColumnName(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * One part of a migration.
+     */
+    private interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final Step[] steps;
+
+        private Migration(int version, String description, Step... steps) {
+            this.version = version;
+            this.description = description;
+            this.steps = steps;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package Database;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import Backend.User;
+
+/**
+ * Issues session tokens at login and resolves them to the logged-in user.
+ *
+ * Sessions live in a bounded in-process cache mapping each token to a user
+ * ID; the least recently used session is dropped when it is full, and every
+ * session expires a fixed time after login (pfinance.session.ttlMillis). The
+ * users themselves are cached by ID, without password, and loaded on a miss.
+ * {@link UserDAO#updateUser} drops the cached user, and ends the user's
+ * sessions only when the password changes.
+ */
+public class SessionManager {
+    private static final int TOKEN_BYTES = 32;
+
+    private static final ExpiringCache<String, Integer> SESSIONS = new ExpiringCache<>(
+            "sessions",
+            Integer.getInteger("pfinance.session.maxSessions", 100_000),
+            Long.getLong("pfinance.session.ttlMillis", 1_800_000L));
+
+    private static final ExpiringCache<Integer, User> USERS = new ExpiringCache<>(
+            "sessionUsers",
+            Integer.getInteger("pfinance.session.maxSessions", 100_000),
+            Long.getLong("pfinance.session.ttlMillis", 1_800_000L));
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final UserDAO userDAO = new UserDAO();
+
+    /**
+     * Authenticates a user and opens a session.
+     *
+     * @param username the username
+     * @param password the password
+     * @return the session token, or null if authentication fails
+     */
+    public String login(String username, String password) {
+        User user = userDAO.authenticate(username, password);
+        if (user == null) {
+            return null;
+        }
+
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        SESSIONS.put(token, user.getId());
+        return token;
+    }
+
+    /**
+     * Gets the user a session belongs to, loading the user if it is not cached.
+     *
+     * @param token the session token
+     * @return a copy of the user without password, or null if the session is
+     *         unknown or expired, or the user no longer exists
+     */
+    public User getSessionUser(String token) {
+        if (token == null) {
+            return null;
+        }
+        Integer userId = SESSIONS.get(token);
+        if (userId == null) {
+            return null;
+        }
+        User user = USERS.get(userId);
+        if (user == null) {
+            long cacheToken = USERS.loadToken(userId);
+            User loaded = userDAO.getUser(userId);
+            if (loaded == null) {
+                return null;
+            }
+            user = withoutPassword(loaded);
+            USERS.put(userId, user, cacheToken);
+        }
+        return withoutPassword(user);
+    }
+
+    /**
+     * Ends a session.
+     *
+     * @param token the session token
+     */
+    public void logout(String token) {
+        if (token != null) {
+            SESSIONS.invalidate(token);
+        }
+    }
+
+    /**
+     * Drops a user's cached profile, e.g. after it changed, so sessions load
+     * it again.
+     *
+     * @param userId the user ID
+     */
+    static void invalidateUser(int userId) {
+        USERS.invalidateOnCommit(userId);
+    }
+
+    /**
+     * Ends every session of a user, e.g. after their password changed. This
+     * scans all sessions, so it is meant for rare events only.
+     *
+     * @param userId the user ID
+     */
+    static void endSessions(int userId) {
+        SESSIONS.invalidateIf((token, sessionUserId) -> sessionUserId == userId);
+        USERS.invalidateOnCommit(userId);
+    }
+
+    /**
+     * Gets statistics for the session cache.
+     *
+     * @return CacheStats snapshot
+     */
+    public static CacheStats getCacheStats() {
+        return SESSIONS.getStats();
+    }
+
+    private static User withoutPassword(User user) {
+        return new User(user.getId(), user.getUsername(), null, user.getEmail(),
+                user.getFirstName(), user.getLastName());
+    }
+}
@@ -0,0 +1,193 @@
+package Database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * One DAO call recorded by the {@link SlowQueryLog}: what ran, how long it
+ * took and, for each statement it executed, the SQL, parameters and plan.
+ */
+public class SlowQueryEntry {
+    private final Date timestamp;
+    private final String operation;
+    private final String threadName;
+    private final double elapsedMillis;
+    private final long rows;
+    private final boolean failed;
+    private final List<Statement> statements;
+    private final int omittedStatements;
+
+    public SlowQueryEntry(Date timestamp, String operation, String threadName, double elapsedMillis, long rows,
+                          boolean failed, List<Statement> statements, int omittedStatements) {
+        this.timestamp = new Date(timestamp.getTime());
+        this.operation = operation;
+        this.threadName = threadName;
+        this.elapsedMillis = elapsedMillis;
+        this.rows = rows;
+        this.failed = failed;
+        this.statements = Collections.unmodifiableList(new ArrayList<>(statements));
+        this.omittedStatements = omittedStatements;
+    }
+
+    // Getters
+    public Date getTimestamp() {
+        return new Date(timestamp.getTime());
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public double getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Gets the rows the DAO call returned, counted as in {@link DAOMetrics}.
+     *
+     * @return the row count
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Gets the statements the call executed, in order.
+     *
+     * @return the statements; at most pfinance.slowlog.maxStatements are kept
+     */
+    public List<Statement> getStatements() {
+        return statements;
+    }
+
+    /**
+     * Gets the number of statements executed beyond pfinance.slowlog.maxStatements.
+     *
+     * @return the number of statements not recorded
+     */
+    public int getOmittedStatements() {
+        return omittedStatements;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(timestamp.toInstant()).append(' ').append(operation)
+                .append(String.format(" took %.1f ms, rows=%d", elapsedMillis, rows))
+                .append(failed ? ", failed" : "")
+                .append(" [").append(threadName).append("]\n");
+        for (int i = 0; i < statements.size(); i++) {
+            statements.get(i).appendTo(text.append("  #").append(i + 1).append(' '));
+        }
+        if (omittedStatements > 0) {
+            text.append("  ... ").append(omittedStatements).append(" more statements\n");
+        }
+        return text.toString();
+    }
+
+    /**
+     * One statement executed by the call.
+     */
+    public static class Statement {
+        private final String sql;
+        private final List<String> parameters;
+        private final double elapsedMillis;
+        private final long rows;
+        private final int batchSize;
+        private final boolean failed;
+        private final String plan;
+
+        public Statement(String sql, List<String> parameters, double elapsedMillis, long rows, int batchSize,
+                         boolean failed, String plan) {
+            this.sql = sql;
+            this.parameters = Collections.unmodifiableList(new ArrayList<>(parameters));
+            this.elapsedMillis = elapsedMillis;
+            this.rows = rows;
+            this.batchSize = batchSize;
+            this.failed = failed;
+            this.plan = plan;
+        }
+
+        // Getters
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * Gets the bound parameters as SQL literals, with sensitive values
+         * replaced by {@code <redacted>}. For a batch, these are the
+         * parameters of its last row.
+         *
+         * @return the parameters, in order
+         */
+        public List<String> getParameters() {
+            return parameters;
+        }
+
+        public double getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * Gets the rows affected.
+         *
+         * @return the update count, or -1 for queries
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+
+        /**
+         * Gets the database's EXPLAIN output for this statement.
+         *
+         * @return one line per plan row, or null if the statement was not explained
+         */
+        public String getPlan() {
+            return plan;
+        }
+
+        private void appendTo(StringBuilder text) {
+            text.append(String.format("%.1f ms", elapsedMillis));
+            if (rows >= 0) {
+                text.append(", rows=").append(rows);
+            }
+            if (batchSize > 0) {
+                text.append(", batch=").append(batchSize);
+            }
+            text.append(failed ? ", failed" : "").append(": ").append(sql).append('\n');
+            if (!parameters.isEmpty()) {
+                text.append("     parameters: ").append(String.join(", ", parameters)).append('\n');
+            }
+            if (plan != null) {
+                for (String line : plan.split("\n")) {
+                    text.append("     plan: ").append(line).append('\n');
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            appendTo(text);
+            return text.toString();
+        }
+    }
+}
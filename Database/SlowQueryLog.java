@@ -0,0 +1,481 @@
+package Database;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Records DAO calls that take longer than pfinance.slowlog.thresholdMillis.
+ * The log is off unless that property is set to zero or more, as recording
+ * statements adds a proxy to every connection and statement.
+ *
+ * While the log is on, {@link DBConnection} hands out connections that record
+ * every statement a DAO call executes. When a call is slow, its statements
+ * are written to the log with their SQL, bound parameters, time and update
+ * count, plus the database's EXPLAIN output for the slowest queries and
+ * updates. Parameters bound to sensitive columns (pfinance.slowlog.redactColumns,
+ * default "password") are written as {@code <redacted>}.
+ *
+ * Entries are explained and written on a background thread, so the slow
+ * call does not wait for them. EXPLAIN runs on a connection of the log's
+ * own, opened outside the pool, so it does not take pooled connections
+ * while the database is already slow. Entries are appended to pfinance.slowlog.file
+ * (default pfinance-slow-queries.log; empty to keep entries in memory only),
+ * which is rolled over to .1, .2, ... once it reaches pfinance.slowlog.maxBytes,
+ * keeping pfinance.slowlog.maxFiles old files. The most recent entries are
+ * also available from {@link #getRecentEntries()}.
+ */
+public class SlowQueryLog {
+    private static final long THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            Long.getLong("pfinance.slowlog.thresholdMillis", -1L));
+    private static final String FILE = System.getProperty("pfinance.slowlog.file", "pfinance-slow-queries.log");
+    private static final long MAX_BYTES = Long.getLong("pfinance.slowlog.maxBytes", 10L * 1024 * 1024);
+    private static final int MAX_FILES = Integer.getInteger("pfinance.slowlog.maxFiles", 5);
+    private static final int MAX_RECENT = Integer.getInteger("pfinance.slowlog.recentEntries", 100);
+    static final int MAX_STATEMENTS = Integer.getInteger("pfinance.slowlog.maxStatements", 50);
+    private static final int MAX_EXPLAINED = 3;
+    private static final int MAX_PARAMETER_LENGTH = 100;
+    private static final int EXPLAIN_TIMEOUT_SECONDS = 10;
+    private static final String REDACTED = "<redacted>";
+
+    private static final Set<String> REDACTED_COLUMNS = new HashSet<>();
+
+    static {
+        for (String column : System.getProperty("pfinance.slowlog.redactColumns", "password").split(",")) {
+            if (!column.trim().isEmpty()) {
+                REDACTED_COLUMNS.add(column.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    private static final Pattern INSERT = Pattern.compile(
+            "^\\s*(?:INSERT|REPLACE)\\s+(?:INTO\\s+)?\\S+\\s*\\(([^)]*)\\)\\s*VALUES\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern EXPLAINABLE = Pattern.compile(
+            "^\\s*(?:SELECT|UPDATE|DELETE|WITH)\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final ThreadPoolExecutor WRITER = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Integer.getInteger("pfinance.slowlog.queueSize", 100)), r -> {
+                Thread thread = new Thread(r, "pfinance-slow-query-log");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private static final ArrayDeque<SlowQueryEntry> RECENT = new ArrayDeque<>();
+    private static final AtomicLong LOGGED = new AtomicLong();
+    private static final AtomicLong DROPPED = new AtomicLong();
+
+    // Sensitive parameter positions per SQL text; only used on the writer thread
+    private static final Map<String, boolean[]> REDACTIONS = new HashMap<>();
+
+    // Connection for EXPLAIN, opened on first use; only used on the writer thread
+    private static Connection explainConnection;
+
+    private SlowQueryLog() {
+    }
+
+    /**
+     * Checks whether the log is on, i.e. whether statements need to be recorded.
+     *
+     * @return true if pfinance.slowlog.thresholdMillis is set and not negative
+     */
+    public static boolean isEnabled() {
+        return THRESHOLD_NANOS >= 0;
+    }
+
+    static boolean isSlow(long elapsedNanos) {
+        return THRESHOLD_NANOS >= 0 && elapsedNanos >= THRESHOLD_NANOS;
+    }
+
+    /**
+     * Queues a slow DAO call to be explained and logged.
+     *
+     * @param operation the DAO operation name
+     * @param elapsedNanos how long the call took
+     * @param rows the rows the call returned
+     * @param failed whether the call failed
+     * @param executions the statements it executed, may be null
+     * @param omitted the number of statements executed but not recorded
+     */
+    static void submit(String operation, long elapsedNanos, long rows, boolean failed,
+                       List<StatementCapture.Execution> executions, int omitted) {
+        Date timestamp = new Date();
+        String threadName = Thread.currentThread().getName();
+        List<StatementCapture.Execution> statements =
+                executions != null ? executions : Collections.<StatementCapture.Execution>emptyList();
+        try {
+            WRITER.execute(() -> write(new SlowQueryEntry(timestamp, operation, threadName,
+                    elapsedNanos / 1_000_000.0, rows, failed, describe(statements), omitted)));
+        } catch (RejectedExecutionException e) {
+            DROPPED.incrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the most recently logged calls.
+     *
+     * @return at most pfinance.slowlog.recentEntries entries, oldest first
+     */
+    public static List<SlowQueryEntry> getRecentEntries() {
+        synchronized (RECENT) {
+            return new ArrayList<>(RECENT);
+        }
+    }
+
+    /**
+     * Gets the number of slow calls logged.
+     *
+     * @return the number of entries written
+     */
+    public static long getLoggedCount() {
+        return LOGGED.get();
+    }
+
+    /**
+     * Gets the number of slow calls not logged because the writer fell too
+     * far behind.
+     *
+     * @return the number of entries dropped
+     */
+    public static long getDroppedCount() {
+        return DROPPED.get();
+    }
+
+    private static void write(SlowQueryEntry entry) {
+        synchronized (RECENT) {
+            if (MAX_RECENT > 0) {
+                if (RECENT.size() >= MAX_RECENT) {
+                    RECENT.pollFirst();
+                }
+                RECENT.addLast(entry);
+            }
+        }
+        LOGGED.incrementAndGet();
+
+        if (FILE.isEmpty()) {
+            return;
+        }
+        try {
+            Path path = Paths.get(FILE);
+            byte[] bytes = entry.toString().getBytes(StandardCharsets.UTF_8);
+            if (Files.exists(path) && Files.size(path) > 0 && Files.size(path) + bytes.length > MAX_BYTES) {
+                roll(path);
+            }
+            Files.write(path, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Renames log to log.1, log.1 to log.2 and so on, dropping the oldest.
+     */
+    private static void roll(Path path) throws IOException {
+        if (MAX_FILES < 1) {
+            Files.delete(path);
+            return;
+        }
+        Files.deleteIfExists(rolled(path, MAX_FILES));
+        for (int i = MAX_FILES - 1; i >= 1; i--) {
+            Path from = rolled(path, i);
+            if (Files.exists(from)) {
+                Files.move(from, rolled(path, i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(path, rolled(path, 1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static Path rolled(Path path, int index) {
+        return path.resolveSibling(path.getFileName() + "." + index);
+    }
+
+    /**
+     * Formats the executions, explaining the slowest explainable ones.
+     */
+    private static List<SlowQueryEntry.Statement> describe(List<StatementCapture.Execution> executions) {
+        Set<StatementCapture.Execution> toExplain = new HashSet<>();
+        List<StatementCapture.Execution> bySlowest = new ArrayList<>(executions);
+        bySlowest.sort(Comparator.comparingLong((StatementCapture.Execution e) -> e.elapsedNanos).reversed());
+        Set<String> explainedSql = new HashSet<>();
+        for (StatementCapture.Execution execution : bySlowest) {
+            if (toExplain.size() == MAX_EXPLAINED) {
+                break;
+            }
+            if (execution.sql != null && EXPLAINABLE.matcher(execution.sql).find() && explainedSql.add(execution.sql)) {
+                toExplain.add(execution);
+            }
+        }
+
+        Map<StatementCapture.Execution, String> plans = new HashMap<>();
+        if (!toExplain.isEmpty()) {
+            try {
+                Connection conn = explainConnection();
+                for (StatementCapture.Execution execution : toExplain) {
+                    plans.put(execution, explain(conn, execution));
+                }
+            } catch (SQLException e) {
+                for (StatementCapture.Execution execution : toExplain) {
+                    plans.putIfAbsent(execution, "EXPLAIN failed: " + e.getMessage());
+                }
+            }
+        }
+
+        List<SlowQueryEntry.Statement> statements = new ArrayList<>();
+        for (StatementCapture.Execution execution : executions) {
+            statements.add(new SlowQueryEntry.Statement(execution.sql, formatParameters(execution),
+                    execution.elapsedNanos / 1_000_000.0, execution.rows, execution.batchSize,
+                    execution.failed, plans.get(execution)));
+        }
+        return statements;
+    }
+
+    /**
+     * Gets the log's own connection, reopening it if it was closed or broke.
+     */
+    private static Connection explainConnection() throws SQLException {
+        if (explainConnection != null && !explainConnection.isValid(EXPLAIN_TIMEOUT_SECONDS)) {
+            closeExplainConnection();
+        }
+        if (explainConnection == null) {
+            explainConnection = DBConnection.openUnpooledConnection();
+        }
+        return explainConnection;
+    }
+
+    private static void closeExplainConnection() {
+        if (explainConnection == null) {
+            return;
+        }
+        try {
+            explainConnection.close();
+        } catch (SQLException e) {
+            // Closing a broken connection may fail; it is discarded either way
+        }
+        explainConnection = null;
+    }
+
+    /**
+     * Closes the log's connection once the entries already queued are written.
+     */
+    static void shutdown() {
+        try {
+            WRITER.execute(SlowQueryLog::closeExplainConnection);
+        } catch (RejectedExecutionException e) {
+            // The queue is full; the connection goes when the JVM exits
+        }
+    }
+
+    private static String explain(Connection conn, StatementCapture.Execution execution) {
+        try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + execution.sql)) {
+            stmt.setQueryTimeout(EXPLAIN_TIMEOUT_SECONDS);
+            for (int i = 0; i < execution.parameters.length; i++) {
+                stmt.setObject(i + 1, execution.parameters[i]);
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = stmt.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int columns = meta.getColumnCount();
+                while (rs.next()) {
+                    if (plan.length() > 0) {
+                        plan.append('\n');
+                    }
+                    for (int column = 1; column <= columns; column++) {
+                        // Tabular plans (MySQL) are written as name=value pairs, single-column plans as is
+                        if (columns > 1) {
+                            plan.append(column > 1 ? ", " : "").append(meta.getColumnLabel(column)).append('=');
+                        }
+                        plan.append(rs.getString(column));
+                    }
+                }
+            }
+            return plan.toString();
+        } catch (SQLException e) {
+            return "EXPLAIN failed: " + e.getMessage();
+        }
+    }
+
+    private static List<String> formatParameters(StatementCapture.Execution execution) {
+        if (execution.parameters.length == 0) {
+            return Collections.emptyList();
+        }
+        boolean[] redacted = REDACTIONS.computeIfAbsent(execution.sql, SlowQueryLog::sensitiveParameters);
+        List<String> parameters = new ArrayList<>(execution.parameters.length);
+        for (int i = 0; i < execution.parameters.length; i++) {
+            // A parameter without a matching placeholder cannot be attributed to a column, so it is hidden
+            boolean sensitive = i < redacted.length ? redacted[i] : !REDACTED_COLUMNS.isEmpty();
+            parameters.add(sensitive ? REDACTED : literal(execution.parameters[i]));
+        }
+        return parameters;
+    }
+
+    private static String literal(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        if (value instanceof byte[]) {
+            return "<" + ((byte[]) value).length + " bytes>";
+        }
+        if (value instanceof InputStream || value instanceof Reader) {
+            return "<stream>";
+        }
+        String text = value.toString();
+        if (text.length() > MAX_PARAMETER_LENGTH) {
+            text = text.substring(0, MAX_PARAMETER_LENGTH) + "...";
+        }
+        return "'" + text.replace("'", "''") + "'";
+    }
+
+    /**
+     * Finds the parameters bound to a sensitive column. The column of each
+     * placeholder is taken from an INSERT column list, or from the identifier
+     * compared with or assigned to it ({@code password = ?}).
+     *
+     * @param sql the SQL text
+     * @return one flag per placeholder, true where the value must be redacted
+     */
+    static boolean[] sensitiveParameters(String sql) {
+        List<Integer> placeholders = placeholders(sql);
+        boolean[] sensitive = new boolean[placeholders.size()];
+        if (REDACTED_COLUMNS.isEmpty()) {
+            return sensitive;
+        }
+
+        Matcher insert = INSERT.matcher(sql);
+        List<String> insertColumns = null;
+        if (insert.find()) {
+            insertColumns = new ArrayList<>();
+            for (String column : insert.group(1).split(",")) {
+                insertColumns.add(unquote(column.trim()));
+            }
+        }
+
+        for (int i = 0; i < placeholders.size(); i++) {
+            int position = placeholders.get(i);
+            String column;
+            if (insertColumns != null && position > insert.end()) {
+                int index = valuesIndex(sql, insert.end(), position);
+                column = index >= 0 && index < insertColumns.size() ? insertColumns.get(index) : null;
+            } else {
+                column = comparedColumn(sql, position);
+            }
+            sensitive[i] = column != null && REDACTED_COLUMNS.contains(column.toLowerCase(Locale.ROOT));
+        }
+        return sensitive;
+    }
+
+    /**
+     * Gets the positions of the ? placeholders outside string literals and
+     * quoted identifiers.
+     */
+    private static List<Integer> placeholders(String sql) {
+        List<Integer> positions = new ArrayList<>();
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '?') {
+                positions.add(i);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Gets the index within its row of a placeholder in a VALUES list.
+     */
+    private static int valuesIndex(String sql, int valuesStart, int position) {
+        int depth = 0;
+        int index = 0;
+        for (int i = valuesStart; i < position; i++) {
+            char c = sql.charAt(i);
+            if (c == '(') {
+                if (++depth == 1) {
+                    index = 0;
+                }
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 1) {
+                index++;
+            }
+        }
+        return depth == 1 ? index : -1;
+    }
+
+    /**
+     * Gets the column on the other side of the operator before a placeholder,
+     * e.g. "password" for {@code u.password = ?}.
+     */
+    private static String comparedColumn(String sql, int position) {
+        int i = skipSpaces(sql, position - 1);
+        int operatorEnd = i;
+        while (i >= 0 && "=<>!".indexOf(sql.charAt(i)) >= 0) {
+            i--;
+        }
+        if (i == operatorEnd) {
+            if (i >= 3 && sql.regionMatches(true, i - 3, "LIKE", 0, 4)) {
+                i -= 4;
+            } else {
+                return null;
+            }
+        }
+        i = skipSpaces(sql, i);
+        int end = i + 1;
+        while (i >= 0 && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_' || sql.charAt(i) == '`')) {
+            i--;
+        }
+        return end > i + 1 ? unquote(sql.substring(i + 1, end)) : null;
+    }
+
+    private static int skipSpaces(String sql, int i) {
+        while (i >= 0 && Character.isWhitespace(sql.charAt(i))) {
+            i--;
+        }
+        return i;
+    }
+
+    private static String unquote(String identifier) {
+        String name = identifier.substring(identifier.lastIndexOf('.') + 1);
+        return name.replace("`", "");
+    }
+}
@@ -0,0 +1,201 @@
+package Database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Connection wrapper that records the SQL, bound parameters, time and update
+ * count of every statement executed during a measured DAO call, for the
+ * {@link SlowQueryLog} and the {@link QueryPlanChecker}. Statements executed
+ * outside a DAO call are not recorded.
+ */
+final class StatementCapture {
+    private static final Object[] NO_PARAMETERS = new Object[0];
+
+    private StatementCapture() {
+    }
+
+    /**
+     * Wraps a connection so that its statements are recorded.
+     *
+     * @param connection the connection to wrap
+     * @return the wrapping Connection; closing it closes the wrapped one
+     */
+    static Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                new ConnectionHandler(connection));
+    }
+
+    /**
+     * One statement execution.
+     */
+    static final class Execution {
+        final String sql;
+        final Object[] parameters;
+        final long elapsedNanos;
+        final long rows;
+        final int batchSize;
+        final boolean failed;
+
+        private Execution(String sql, Object[] parameters, long elapsedNanos, long rows, int batchSize, boolean failed) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.elapsedNanos = elapsedNanos;
+            this.rows = rows;
+            this.batchSize = batchSize;
+            this.failed = failed;
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        private ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "prepareStatement":
+                    return wrapStatement(PreparedStatement.class,
+                            (Statement) StatementCapture.invoke(connection, method, args), (String) args[0]);
+                case "createStatement":
+                    return wrapStatement(Statement.class,
+                            (Statement) StatementCapture.invoke(connection, method, args), null);
+                default:
+                    return StatementCapture.invoke(connection, method, args);
+            }
+        }
+
+        private static Object wrapStatement(Class<? extends Statement> type, Statement statement, String sql) {
+            return Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] {type},
+                    new StatementHandler(statement, sql));
+        }
+    }
+
+    /**
+     * Tracks the parameters bound to one statement and records its executions.
+     * For a batch, the parameters of the last row added are recorded.
+     */
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String sql;
+        private Object[] parameters = NO_PARAMETERS;
+        private int parameterCount;
+        private int batchSize;
+
+        private StatementHandler(Statement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "addBatch":
+                    batchSize++;
+                    break;
+                case "clearBatch":
+                    batchSize = 0;
+                    break;
+                case "clearParameters":
+                    Arrays.fill(parameters, null);
+                    parameterCount = 0;
+                    break;
+                default:
+                    if (sql != null && name.startsWith("set") && args != null && args.length >= 2
+                            && args[0] instanceof Integer) {
+                        bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                    }
+                    break;
+            }
+            return StatementCapture.invoke(statement, method, args);
+        }
+
+        private void bind(int index, Object value) {
+            if (index < 1) {
+                return;
+            }
+            if (index > parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+            }
+            parameters[index - 1] = value;
+            parameterCount = Math.max(parameterCount, index);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            if (!DAOMetrics.isMeasuring()) {
+                return StatementCapture.invoke(statement, method, args);
+            }
+
+            Object result = null;
+            boolean failed = true;
+            long start = System.nanoTime();
+            try {
+                result = StatementCapture.invoke(statement, method, args);
+                failed = false;
+                return result;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                boolean plain = args != null && args.length > 0 && args[0] instanceof String;
+                DAOMetrics.recordStatement(new Execution(plain ? (String) args[0] : sql,
+                        plain || parameterCount == 0 ? NO_PARAMETERS : Arrays.copyOf(parameters, parameterCount),
+                        elapsed, rowsOf(result), batchSize, failed));
+                if (method.getName().contains("Batch")) {
+                    batchSize = 0;
+                }
+            }
+        }
+
+        /**
+         * Gets the rows affected from an execute result, or -1 for queries.
+         */
+        private static long rowsOf(Object result) {
+            if (result instanceof Number) {
+                return ((Number) result).longValue();
+            }
+            long total = -1;
+            if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    total = Math.max(total, 0) + Math.max(count, 0);
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    total = Math.max(total, 0) + Math.max(count, 0);
+                }
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package Database;
+
+import java.util.Date;
+
+/**
+ * Keyset position within a transaction listing ordered by date and ID, newest first.
+ * A page request resumes strictly after the (date, id) pair held here.
+ */
+public class TransactionCursor {
+    private final Date date;
+    private final int id;
+
+    public TransactionCursor(Date date, int id) {
+        this.date = new Date(date.getTime());
+        this.id = id;
+    }
+
+    // Getters
+    public Date getDate() {
+        return new Date(date.getTime());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionCursor [date=" + date + ", id=" + id + "]";
+    }
+}
@@ -8,10 +8,22 @@ import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.math.BigDecimal;
 
+import Backend.CompactTransaction;
 import Backend.Transaction;
+import Backend.TransactionLedger;
+import Backend.TransactionType;
 import Database.DBConnection;
 
 /**
@@ -20,51 +32,301 @@ import Database.DBConnection;
 public class TransactionDAO {
 
     /**
-     * Creates a new transaction in the database.
+     * Fetch size used by the streaming queries. Integer.MIN_VALUE makes MySQL
+     * Connector/J stream rows one at a time instead of buffering the whole
+     * result; drivers that fetch in chunks should be given a positive size.
+     */
+    private static final int STREAM_FETCH_SIZE = Integer.getInteger("pfinance.stream.fetchSize", Integer.MIN_VALUE);
+
+    /**
+     * Number of rows sent per JDBC batch and committed per database transaction
+     * by {@link #createTransactions(List)}.
+     */
+    public static final int DEFAULT_BATCH_SIZE = Integer.getInteger("pfinance.batch.size", 1000);
+
+    /**
+     * WHERE clauses for {@link #queryTransactions}, keyed by filter shape.
+     */
+    private static final ConcurrentHashMap<Integer, String> QUERY_FILTERS = new ConcurrentHashMap<>();
+
+    /**
+     * When true, reads select from Transactions alone and fill accountName and
+     * categoryName from the user's {@link NameDictionary} instead of joining.
+     */
+    private final boolean joinFreeReads;
+
+    /**
+     * Creates a DAO using the read mode set by the pfinance.reads.joinFree
+     * system property (joined reads by default).
+     */
+    public TransactionDAO() {
+        this(Boolean.getBoolean("pfinance.reads.joinFree"));
+    }
+
+    /**
+     * Creates a DAO with an explicit read mode.
+     *
+     * @param joinFreeReads true to resolve names from dictionaries rather than joins
+     */
+    public TransactionDAO(boolean joinFreeReads) {
+        this.joinFreeReads = joinFreeReads;
+    }
+
+    /**
+     * Creates a new transaction in the database and applies its amount to the
+     * account's stored balance in the same database transaction.
      *
      * @param transaction the Transaction object to insert
      * @return the generated transaction ID, or -1 if operation fails
      */
     public int createTransaction(Transaction transaction) {
+        return DAOMetrics.measure("TransactionDAO.createTransaction", () -> {
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            ResultSet rs = null;
+            int transactionId = -1;
+
+            try {
+                conn = DBConnection.getConnection();
+                conn.setAutoCommit(false);
+                // The account row is locked before the insert's foreign key check takes a shared lock on it
+                applyBalanceDelta(conn, transaction.getAccountId(), transaction.getUserId(),
+                        signedAmount(transaction.getType(), transaction.getAmount()));
+                String sql = "INSERT INTO Transactions (userId, accountId, categoryId, amount, type, description, date, transfer) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+                stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+                stmt.setInt(1, transaction.getUserId());
+                stmt.setInt(2, transaction.getAccountId());
+                stmt.setInt(3, transaction.getCategoryId());
+                stmt.setBigDecimal(4, transaction.getAmount());
+                stmt.setString(5, transaction.getType());
+                stmt.setString(6, transaction.getDescription());
+                stmt.setTimestamp(7, new Timestamp(transaction.getDate().getTime()));
+                stmt.setBoolean(8, transaction.isTransfer());
+
+                int affectedRows = stmt.executeUpdate();
+                if (affectedRows > 0) {
+                    rs = stmt.getGeneratedKeys();
+                    if (rs.next()) {
+                        transactionId = rs.getInt(1);
+                    }
+                }
+                conn.commit();
+                if (transactionId != -1) {
+                    transaction.setId(transactionId);
+                    DescriptionIndex.indexAfterCommit(transaction.getUserId(), transactionId, transaction.getDescription());
+                    DBConnection.recordWrite(transaction.getUserId());
+                }
+            } catch (SQLException e) {
+                transactionId = -1;
+                rollback(conn);
+                DAOMetrics.failed(e);
+            } finally {
+                try {
+                    if (rs != null) rs.close();
+                    if (stmt != null) stmt.close();
+                    if (conn != null) {
+                        conn.setAutoCommit(true);
+                        DBConnection.closeConnection(conn);
+                    }
+                } catch (SQLException e) {
+                    DAOMetrics.failed(e);
+                }
+            }
+
+            return transactionId;
+        });
+    }
+
+    /**
+     * Inserts many transactions using JDBC batching, with the default batch size.
+     *
+     * @param transactions the Transaction objects to insert
+     * @return the number of transactions inserted
+     */
+    public int createTransactions(List<Transaction> transactions) {
+        return createTransactions(transactions, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Inserts many transactions using JDBC batching. Rows are sent in chunks of
+     * batchSize, each chunk committed as one database transaction, and the
+     * generated IDs are written back onto the Transaction objects. Account
+     * balances are adjusted once per account within each chunk. If a chunk
+     * fails it is rolled back and the remaining chunks are skipped; chunks
+     * committed before the failure stay in place. The reason is reported
+     * through the DAO error handling; use
+     * {@link #insertTransactions(List, int)} to receive it as an exception.
+     *
+     * @param transactions the Transaction objects to insert
+     * @param batchSize the number of rows per batch and per commit
+     * @return the number of transactions inserted
+     */
+    public int createTransactions(List<Transaction> transactions, int batchSize) {
+        return DAOMetrics.measure("TransactionDAO.createTransactions", () -> {
+            try {
+                return insertChunks(transactions, batchSize);
+            } catch (BatchInsertException e) {
+                DAOMetrics.failed(e);
+                return e.getInsertedCount();
+            }
+        });
+    }
+
+    /**
+     * Inserts many transactions in chunks like {@link #createTransactions(List, int)},
+     * but reports a failed chunk by throwing.
+     *
+     * @param transactions the Transaction objects to insert
+     * @param batchSize the number of rows per batch and per commit
+     * @return the number of transactions inserted, always transactions.size()
+     * @throws BatchInsertException if a chunk fails; it tells how many
+     *         transactions were committed before the failure and how many were skipped
+     */
+    public int insertTransactions(List<Transaction> transactions, int batchSize) throws BatchInsertException {
+        try {
+            return DAOMetrics.measureSQL("TransactionDAO.insertTransactions",
+                    () -> insertChunks(transactions, batchSize));
+        } catch (BatchInsertException e) {
+            throw e;
+        } catch (SQLException e) {
+            throw new BatchInsertException(e.getMessage(), e, 0, transactions.size());
+        }
+    }
+
+    private int insertChunks(List<Transaction> transactions, int batchSize) throws BatchInsertException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+
         Connection conn = null;
         PreparedStatement stmt = null;
-        ResultSet rs = null;
-        int transactionId = -1;
+        int inserted = 0;
 
         try {
             conn = DBConnection.getConnection();
-            String sql = "INSERT INTO Transactions (userId, accountId, categoryId, amount, type, description, date) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?)";
+            conn.setAutoCommit(false);
+            String sql = "INSERT INTO Transactions (userId, accountId, categoryId, amount, type, description, date, transfer) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
             stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            stmt.setInt(1, transaction.getUserId());
-            stmt.setInt(2, transaction.getAccountId());
-            stmt.setInt(3, transaction.getCategoryId());
-            stmt.setBigDecimal(4, transaction.getAmount());
-            stmt.setString(5, transaction.getType());
-            stmt.setString(6, transaction.getDescription());
-            stmt.setTimestamp(7, new Timestamp(transaction.getDate().getTime()));
-
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows > 0) {
-                rs = stmt.getGeneratedKeys();
-                if (rs.next()) {
-                    transactionId = rs.getInt(1);
-                    transaction.setId(transactionId);
+
+            for (int from = 0; from < transactions.size(); from += batchSize) {
+                List<Transaction> chunk = transactions.subList(from, Math.min(from + batchSize, transactions.size()));
+                try {
+                    // One balance update per account touched by the chunk, made first and in account order,
+                    // so the account rows are locked before the inserts' foreign key checks
+                    Map<Long, BigDecimal> deltas = new TreeMap<>();
+                    for (Transaction transaction : chunk) {
+                        long key = ((long) transaction.getAccountId() << 32) | (transaction.getUserId() & 0xFFFFFFFFL);
+                        deltas.merge(key, signedAmount(transaction.getType(), transaction.getAmount()), BigDecimal::add);
+                    }
+                    for (Map.Entry<Long, BigDecimal> delta : deltas.entrySet()) {
+                        applyBalanceDelta(conn, (int) (delta.getKey() >>> 32), (int) delta.getKey().longValue(), delta.getValue());
+                    }
+
+                    for (Transaction transaction : chunk) {
+                        stmt.setInt(1, transaction.getUserId());
+                        stmt.setInt(2, transaction.getAccountId());
+                        stmt.setInt(3, transaction.getCategoryId());
+                        stmt.setBigDecimal(4, transaction.getAmount());
+                        stmt.setString(5, transaction.getType());
+                        stmt.setString(6, transaction.getDescription());
+                        stmt.setTimestamp(7, new Timestamp(transaction.getDate().getTime()));
+                        stmt.setBoolean(8, transaction.isTransfer());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+
+                    int[] ids = new int[chunk.size()];
+                    int keyCount = 0;
+                    try (ResultSet keys = stmt.getGeneratedKeys()) {
+                        while (keys.next()) {
+                            if (keyCount < ids.length) {
+                                ids[keyCount] = keys.getInt(1);
+                            }
+                            keyCount++;
+                        }
+                    }
+                    // Without one key per row the IDs cannot be matched to the transactions
+                    if (keyCount != ids.length) {
+                        throw new SQLException("Driver returned " + keyCount + " generated keys for " +
+                                ids.length + " inserted rows.");
+                    }
+                    conn.commit();
+                    for (int i = 0; i < ids.length; i++) {
+                        Transaction transaction = chunk.get(i);
+                        transaction.setId(ids[i]);
+                        DescriptionIndex.indexAfterCommit(transaction.getUserId(), ids[i], transaction.getDescription());
+                    }
+                    for (Long key : deltas.keySet()) {
+                        DBConnection.recordWrite((int) key.longValue());
+                    }
+                    inserted += chunk.size();
+                } catch (SQLException e) {
+                    rollback(conn);
+                    throw new BatchInsertException("Chunk of rows " + from + "-" + (from + chunk.size() - 1) +
+                            " failed and was rolled back; " + (transactions.size() - from) +
+                            " of " + transactions.size() + " transactions were not inserted: " + e.getMessage(),
+                            e, inserted, transactions.size() - inserted);
                 }
             }
+        } catch (BatchInsertException e) {
+            throw e;
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new BatchInsertException("No transactions were inserted: " + e.getMessage(),
+                    e, 0, transactions.size());
         } finally {
             try {
-                if (rs != null) rs.close();
                 if (stmt != null) stmt.close();
-                if (conn != null) DBConnection.closeConnection(conn);
+                if (conn != null) {
+                    conn.setAutoCommit(true);
+                    DBConnection.closeConnection(conn);
+                }
             } catch (SQLException e) {
-                e.printStackTrace();
+                DAOMetrics.failed(e);
             }
         }
 
-        return transactionId;
+        return inserted;
+    }
+
+    /**
+     * Moves money between two of a user's accounts by recording an expense on
+     * the source account and income on the destination account. Both rows and
+     * both balance changes commit together or not at all. Both rows are marked
+     * as transfers, so spending aggregates count them as neither spending nor income.
+     *
+     * @param userId the user ID
+     * @param fromAccountId the account to take the money from
+     * @param toAccountId the account to put the money in
+     * @param categoryId the category to record both transactions under
+     * @param amount the amount to move
+     * @param description the description for both transactions
+     * @param date the transfer date
+     * @return true if the transfer was committed, false otherwise
+     */
+    public boolean transferFunds(int userId, int fromAccountId, int toAccountId, int categoryId,
+                                 BigDecimal amount, String description, Date date) {
+        return DAOMetrics.measure("TransactionDAO.transferFunds", () -> {
+            try (UnitOfWork work = UnitOfWork.begin()) {
+                // Lock both accounts in ID order, so opposite transfers between them cannot deadlock
+                Connection conn = DBConnection.getConnection();
+                applyBalanceDelta(conn, Math.min(fromAccountId, toAccountId), userId, BigDecimal.ZERO);
+                applyBalanceDelta(conn, Math.max(fromAccountId, toAccountId), userId, BigDecimal.ZERO);
+                Transaction withdrawal = new Transaction(0, userId, fromAccountId, categoryId, amount, "EXPENSE", description, date);
+                Transaction deposit = new Transaction(0, userId, toAccountId, categoryId, amount, "INCOME", description, date);
+                withdrawal.setTransfer(true);
+                deposit.setTransfer(true);
+                if (createTransaction(withdrawal) == -1 || createTransaction(deposit) == -1) {
+                    return false;
+                }
+                work.commit();
+                return true;
+            } catch (SQLException e) {
+                DAOMetrics.failed(e);
+                return false;
+            }
+        });
     }
 
     /**
@@ -75,39 +337,39 @@ public class TransactionDAO {
      * @return Transaction object if found, null otherwise
      */
     public Transaction getTransaction(int transactionId, int userId) {
-        Transaction transaction = null;
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
+        return DAOMetrics.measure("TransactionDAO.getTransaction", () -> {
+            Transaction transaction = null;
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            ResultSet rs = null;
 
-        try {
-            conn = DBConnection.getConnection();
-            String sql = "SELECT t.*, a.accountName, c.name as categoryName " +
-                    "FROM Transactions t " +
-                    "JOIN Accounts a ON t.accountId = a.id " +
-                    "JOIN Categories c ON t.categoryId = c.id " +
-                    "WHERE t.id = ? AND t.userId = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, transactionId);
-            stmt.setInt(2, userId);
-
-            rs = stmt.executeQuery();
-            if (rs.next()) {
-                transaction = mapTransaction(rs);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
             try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                if (conn != null) DBConnection.closeConnection(conn);
+                conn = DBConnection.getReadConnection(userId);
+                NameDictionary names = dictionaryFor(conn, userId);
+                String sql = selectTransactions() +
+                        "WHERE t.id = ? AND t.userId = ?";
+                stmt = conn.prepareStatement(sql);
+                stmt.setInt(1, transactionId);
+                stmt.setInt(2, userId);
+
+                rs = stmt.executeQuery();
+                if (rs.next()) {
+                    transaction = mapTransaction(rs, names);
+                }
             } catch (SQLException e) {
-                e.printStackTrace();
+                DAOMetrics.failed(e);
+            } finally {
+                try {
+                    if (rs != null) rs.close();
+                    if (stmt != null) stmt.close();
+                    if (conn != null) DBConnection.closeConnection(conn);
+                } catch (SQLException e) {
+                    DAOMetrics.failed(e);
+                }
             }
-        }
 
-        return transaction;
+            return transaction;
+        });
     }
 
     /**
@@ -117,123 +379,649 @@ public class TransactionDAO {
      * @return List of Transaction objects
      */
     public List<Transaction> getUserTransactions(int userId) {
+        return DAOMetrics.measure("TransactionDAO.getUserTransactions", () -> {
+            List<Transaction> transactions = new ArrayList<>();
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            ResultSet rs = null;
+
+            try {
+                conn = DBConnection.getReadConnection(userId);
+                NameDictionary names = dictionaryFor(conn, userId);
+                String sql = selectTransactions() +
+                        "WHERE t.userId = ? " +
+                        "ORDER BY t.date DESC";
+                stmt = conn.prepareStatement(sql);
+                stmt.setInt(1, userId);
+
+                rs = stmt.executeQuery();
+                while (rs.next()) {
+                    transactions.add(mapTransaction(rs, names));
+                }
+            } catch (SQLException e) {
+                DAOMetrics.failed(e);
+            } finally {
+                try {
+                    if (rs != null) rs.close();
+                    if (stmt != null) stmt.close();
+                    if (conn != null) DBConnection.closeConnection(conn);
+                } catch (SQLException e) {
+                    DAOMetrics.failed(e);
+                }
+            }
+
+            return transactions;
+        });
+    }
+
+    /**
+     * Gets transactions for a specific account.
+     *
+     * @param accountId the account ID
+     * @param userId the user ID (for security check)
+     * @return List of Transaction objects
+     */
+    public List<Transaction> getAccountTransactions(int accountId, int userId) {
+        return DAOMetrics.measure("TransactionDAO.getAccountTransactions", () -> {
+            List<Transaction> transactions = new ArrayList<>();
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            ResultSet rs = null;
+
+            try {
+                conn = DBConnection.getReadConnection(userId);
+                NameDictionary names = dictionaryFor(conn, userId);
+                String sql = selectTransactions() +
+                        "WHERE t.accountId = ? AND t.userId = ? " +
+                        "ORDER BY t.date DESC";
+                stmt = conn.prepareStatement(sql);
+                stmt.setInt(1, accountId);
+                stmt.setInt(2, userId);
+
+                rs = stmt.executeQuery();
+                while (rs.next()) {
+                    transactions.add(mapTransaction(rs, names));
+                }
+            } catch (SQLException e) {
+                DAOMetrics.failed(e);
+            } finally {
+                try {
+                    if (rs != null) rs.close();
+                    if (stmt != null) stmt.close();
+                    if (conn != null) DBConnection.closeConnection(conn);
+                } catch (SQLException e) {
+                    DAOMetrics.failed(e);
+                }
+            }
+
+            return transactions;
+        });
+    }
+
+    /**
+     * Gets transactions for a specific category.
+     *
+     * @param categoryId the category ID
+     * @param userId the user ID (for security check)
+     * @return List of Transaction objects
+     */
+    public List<Transaction> getCategoryTransactions(int categoryId, int userId) {
+        return DAOMetrics.measure("TransactionDAO.getCategoryTransactions", () -> {
+            List<Transaction> transactions = new ArrayList<>();
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            ResultSet rs = null;
+
+            try {
+                conn = DBConnection.getReadConnection(userId);
+                NameDictionary names = dictionaryFor(conn, userId);
+                String sql = selectTransactions() +
+                        "WHERE t.categoryId = ? AND t.userId = ? " +
+                        "ORDER BY t.date DESC";
+                stmt = conn.prepareStatement(sql);
+                stmt.setInt(1, categoryId);
+                stmt.setInt(2, userId);
+
+                rs = stmt.executeQuery();
+                while (rs.next()) {
+                    transactions.add(mapTransaction(rs, names));
+                }
+            } catch (SQLException e) {
+                DAOMetrics.failed(e);
+            } finally {
+                try {
+                    if (rs != null) rs.close();
+                    if (stmt != null) stmt.close();
+                    if (conn != null) DBConnection.closeConnection(conn);
+                } catch (SQLException e) {
+                    DAOMetrics.failed(e);
+                }
+            }
+
+            return transactions;
+        });
+    }
+
+    /**
+     * Gets one page of a user's transactions, newest first.
+     *
+     * @param userId the user ID
+     * @param after the cursor returned with the previous page, or null for the first page
+     * @param pageSize the maximum number of transactions to return
+     * @return TransactionPage with the transactions and the cursor for the next page
+     */
+    public TransactionPage getUserTransactionsPage(int userId, TransactionCursor after, int pageSize) {
+        return DAOMetrics.measure("TransactionDAO.getUserTransactionsPage", () -> {
+            return getTransactionPage("t.userId = ?", intParams(userId), userId, after, pageSize);
+        });
+    }
+
+    /**
+     * Gets one page of an account's transactions, newest first.
+     *
+     * @param accountId the account ID
+     * @param userId the user ID (for security check)
+     * @param after the cursor returned with the previous page, or null for the first page
+     * @param pageSize the maximum number of transactions to return
+     * @return TransactionPage with the transactions and the cursor for the next page
+     */
+    public TransactionPage getAccountTransactionsPage(int accountId, int userId, TransactionCursor after, int pageSize) {
+        return DAOMetrics.measure("TransactionDAO.getAccountTransactionsPage", () -> {
+            return getTransactionPage("t.accountId = ? AND t.userId = ?", intParams(accountId, userId), userId, after, pageSize);
+        });
+    }
+
+    /**
+     * Gets one page of a category's transactions, newest first.
+     *
+     * @param categoryId the category ID
+     * @param userId the user ID (for security check)
+     * @param after the cursor returned with the previous page, or null for the first page
+     * @param pageSize the maximum number of transactions to return
+     * @return TransactionPage with the transactions and the cursor for the next page
+     */
+    public TransactionPage getCategoryTransactionsPage(int categoryId, int userId, TransactionCursor after, int pageSize) {
+        return DAOMetrics.measure("TransactionDAO.getCategoryTransactionsPage", () -> {
+            return getTransactionPage("t.categoryId = ? AND t.userId = ?", intParams(categoryId, userId), userId, after, pageSize);
+        });
+    }
+
+    /**
+     * Gets one page of the transactions matching a query, newest first.
+     *
+     * @param query the filters to apply
+     * @param after the cursor returned with the previous page, or null for the first page
+     * @param pageSize the maximum number of transactions to return
+     * @return TransactionPage with the transactions and the cursor for the next page
+     */
+    public TransactionPage queryTransactions(TransactionQuery query, TransactionCursor after, int pageSize) {
+        return DAOMetrics.measure("TransactionDAO.queryTransactions", () -> {
+            return getTransactionPage(queryFilter(query), (stmt, index) -> bindQuery(stmt, index, query),
+                    query.getUserId(), after, pageSize);
+        });
+    }
+
+    /**
+     * Runs a keyset-paginated listing query. Instead of OFFSET, the query seeks
+     * past the cursor's (date, id) pair, so every page costs the same to fetch.
+     * One extra row is read to tell whether another page follows.
+     *
+     * @param filter the WHERE conditions selecting the listing
+     * @param filterParams binds the filter's parameters
+     * @param userId the user the listing belongs to
+     * @param after the cursor to resume after, or null for the first page
+     * @param pageSize the maximum number of transactions to return
+     * @return TransactionPage object
+     */
+    private TransactionPage getTransactionPage(String filter, FilterBinder filterParams, int userId,
+                                               TransactionCursor after, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        }
+
         List<Transaction> transactions = new ArrayList<>();
+        TransactionCursor nextCursor = null;
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
 
         try {
-            conn = DBConnection.getConnection();
-            String sql = "SELECT t.*, a.accountName, c.name as categoryName " +
-                    "FROM Transactions t " +
-                    "JOIN Accounts a ON t.accountId = a.id " +
-                    "JOIN Categories c ON t.categoryId = c.id " +
-                    "WHERE t.userId = ? " +
-                    "ORDER BY t.date DESC";
+            conn = DBConnection.getReadConnection(userId);
+            NameDictionary names = dictionaryFor(conn, userId);
+            String sql = selectTransactions() +
+                    "WHERE " + filter + " " +
+                    (after != null ? "AND (t.date < ? OR (t.date = ? AND t.id < ?)) " : "") +
+                    "ORDER BY t.date DESC, t.id DESC " +
+                    "LIMIT ?";
             stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, userId);
+            int index = filterParams.bind(stmt, 1);
+            if (after != null) {
+                Timestamp afterDate = new Timestamp(after.getDate().getTime());
+                stmt.setTimestamp(index++, afterDate);
+                stmt.setTimestamp(index++, afterDate);
+                stmt.setInt(index++, after.getId());
+            }
+            stmt.setInt(index, pageSize + 1);
 
             rs = stmt.executeQuery();
             while (rs.next()) {
-                transactions.add(mapTransaction(rs));
+                if (transactions.size() == pageSize) {
+                    Transaction last = transactions.get(pageSize - 1);
+                    nextCursor = new TransactionCursor(last.getDate(), last.getId());
+                    break;
+                }
+                transactions.add(mapTransaction(rs, names));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            DAOMetrics.failed(e);
         } finally {
             try {
                 if (rs != null) rs.close();
                 if (stmt != null) stmt.close();
                 if (conn != null) DBConnection.closeConnection(conn);
             } catch (SQLException e) {
-                e.printStackTrace();
+                DAOMetrics.failed(e);
             }
         }
 
-        return transactions;
+        return new TransactionPage(transactions, nextCursor);
     }
 
     /**
-     * Gets transactions for a specific account.
+     * Streams all transactions for a user, newest first, without loading them
+     * into memory. The stream holds a connection until it is exhausted or closed,
+     * so it must be used in a try-with-resources block. Its DAOMetrics timing
+     * covers starting the query only, not consuming the stream; see
+     * {@link #forEachUserTransaction} for a measured full read.
+     *
+     * @param userId the user ID
+     * @param reuseRow if true, every element is the same Transaction instance,
+     *                 refilled for each row; it must not be retained past the callback
+     * @return Stream of Transaction objects
+     * @throws SQLException if the query cannot be started
+     */
+    public Stream<Transaction> streamUserTransactions(int userId, boolean reuseRow) throws SQLException {
+        return DAOMetrics.measureSQL("TransactionDAO.streamUserTransactions", () -> {
+            return streamTransactions("t.userId = ?", intParams(userId), userId, reuseRow);
+        });
+    }
+
+    /**
+     * Streams all transactions for an account, newest first. See
+     * {@link #streamUserTransactions(int, boolean)}.
      *
      * @param accountId the account ID
      * @param userId the user ID (for security check)
-     * @return List of Transaction objects
+     * @param reuseRow if true, every element is the same Transaction instance
+     * @return Stream of Transaction objects
+     * @throws SQLException if the query cannot be started
      */
-    public List<Transaction> getAccountTransactions(int accountId, int userId) {
-        List<Transaction> transactions = new ArrayList<>();
-        Connection conn = null;
+    public Stream<Transaction> streamAccountTransactions(int accountId, int userId, boolean reuseRow) throws SQLException {
+        return DAOMetrics.measureSQL("TransactionDAO.streamAccountTransactions", () -> {
+            return streamTransactions("t.accountId = ? AND t.userId = ?", intParams(accountId, userId), userId, reuseRow);
+        });
+    }
+
+    /**
+     * Streams all transactions for a category, newest first. See
+     * {@link #streamUserTransactions(int, boolean)}.
+     *
+     * @param categoryId the category ID
+     * @param userId the user ID (for security check)
+     * @param reuseRow if true, every element is the same Transaction instance
+     * @return Stream of Transaction objects
+     * @throws SQLException if the query cannot be started
+     */
+    public Stream<Transaction> streamCategoryTransactions(int categoryId, int userId, boolean reuseRow) throws SQLException {
+        return DAOMetrics.measureSQL("TransactionDAO.streamCategoryTransactions", () -> {
+            return streamTransactions("t.categoryId = ? AND t.userId = ?", intParams(categoryId, userId), userId, reuseRow);
+        });
+    }
+
+    /**
+     * Streams all transactions matching a query, newest first. See
+     * {@link #streamUserTransactions(int, boolean)}.
+     *
+     * @param query the filters to apply
+     * @param reuseRow if true, every element is the same Transaction instance
+     * @return Stream of Transaction objects
+     * @throws SQLException if the query cannot be started
+     */
+    public Stream<Transaction> streamTransactions(TransactionQuery query, boolean reuseRow) throws SQLException {
+        return DAOMetrics.measureSQL("TransactionDAO.streamTransactions", () -> {
+            return streamTransactions(queryFilter(query), (stmt, index) -> bindQuery(stmt, index, query),
+                    query.getUserId(), reuseRow);
+        });
+    }
+
+    /**
+     * Visits every transaction for a user, newest first, closing all database
+     * resources before returning.
+     *
+     * @param userId the user ID
+     * @param reuseRow if true, the visitor receives the same Transaction instance for every row
+     * @param visitor callback invoked once per transaction
+     * @return the number of transactions visited
+     * @throws SQLException if a database access error occurs
+     */
+    public long forEachUserTransaction(int userId, boolean reuseRow, Consumer<Transaction> visitor) throws SQLException {
+        return DAOMetrics.measureSQL("TransactionDAO.forEachUserTransaction", () -> {
+            long count = 0;
+            try (Stream<Transaction> transactions = streamUserTransactions(userId, reuseRow)) {
+                Spliterator<Transaction> rows = transactions.spliterator();
+                while (rows.tryAdvance(visitor)) {
+                    count++;
+                }
+            } catch (UncheckedSQLException e) {
+                throw e.getCause();
+            }
+            return count;
+        });
+    }
+
+    /**
+     * Loads all of a user's transactions into a columnar ledger, streaming the
+     * rows through a single reused Transaction.
+     *
+     * @param userId the user ID
+     * @return TransactionLedger with one row per transaction, newest first
+     * @throws SQLException if a database access error occurs
+     */
+    public TransactionLedger loadLedger(int userId) throws SQLException {
+        return DAOMetrics.measureSQL("TransactionDAO.loadLedger", () -> {
+            TransactionLedger ledger = new TransactionLedger();
+            forEachUserTransaction(userId, true, ledger::append);
+            ledger.trimToSize();
+            return ledger;
+        });
+    }
+
+    /**
+     * Opens a forward-only, read-only query and exposes its rows as a lazy Stream.
+     * Resources are released as soon as the last row has been read, or when the
+     * stream is closed, whichever happens first.
+     *
+     * @param filter the WHERE conditions selecting the rows
+     * @param filterParams binds the filter's parameters
+     * @param userId the user the rows belong to
+     * @param reuseRow whether to refill a single Transaction for every row
+     * @return Stream of Transaction objects
+     * @throws SQLException if the query cannot be started
+     */
+    private Stream<Transaction> streamTransactions(String filter, FilterBinder filterParams, int userId, boolean reuseRow)
+            throws SQLException {
+        String sql = selectTransactions() +
+                "WHERE " + filter + " " +
+                "ORDER BY t.date DESC, t.id DESC";
+
+        Connection conn = DBConnection.getReadConnection(userId);
         PreparedStatement stmt = null;
         ResultSet rs = null;
-
+        NameDictionary names;
         try {
-            conn = DBConnection.getConnection();
-            String sql = "SELECT t.*, a.accountName, c.name as categoryName " +
-                    "FROM Transactions t " +
-                    "JOIN Accounts a ON t.accountId = a.id " +
-                    "JOIN Categories c ON t.categoryId = c.id " +
-                    "WHERE t.accountId = ? AND t.userId = ? " +
-                    "ORDER BY t.date DESC";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, accountId);
-            stmt.setInt(2, userId);
-
+            names = dictionaryFor(conn, userId);
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(STREAM_FETCH_SIZE);
+            filterParams.bind(stmt, 1);
             rs = stmt.executeQuery();
-            while (rs.next()) {
-                transactions.add(mapTransaction(rs));
-            }
         } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
+            new StreamResources(conn, stmt, rs).run();
+            throw e;
+        }
+
+        StreamResources resources = new StreamResources(conn, stmt, rs);
+        Transaction row = reuseRow ? new Transaction() : null;
+        Spliterator<Transaction> spliterator = new Spliterators.AbstractSpliterator<Transaction>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Transaction> action) {
+                if (resources.closed) {
+                    return false;
+                }
+                try {
+                    if (!resources.rs.next()) {
+                        resources.run();
+                        return false;
+                    }
+                    action.accept(mapTransaction(resources.rs, reuseRow ? row : new Transaction(), names));
+                    return true;
+                } catch (SQLException e) {
+                    resources.run();
+                    throw new UncheckedSQLException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(resources);
+    }
+
+    /**
+     * Binds the parameters of a WHERE filter.
+     */
+    private interface FilterBinder {
+        /**
+         * @param stmt the statement to bind
+         * @param index the index of the filter's first parameter
+         * @return the index after the filter's last parameter
+         * @throws SQLException if a parameter cannot be set
+         */
+        int bind(PreparedStatement stmt, int index) throws SQLException;
+    }
+
+    private static FilterBinder intParams(int... params) {
+        return (stmt, index) -> {
+            for (int param : params) {
+                stmt.setInt(index++, param);
+            }
+            return index;
+        };
+    }
+
+    /**
+     * Gets the WHERE conditions for a query. The text depends only on which
+     * filters are set and on the size bucket of each ID list, so it is built
+     * once per shape and the driver sees a small, stable set of statements.
+     * The user and date conditions lead so the (userId, date, id) index is used.
+     *
+     * @param query the query
+     * @return the filter SQL, for {@link #bindQuery}
+     */
+    private static String queryFilter(TransactionQuery query) {
+        int accounts = inListSize(query.getAccountIds().size());
+        int categories = inListSize(query.getCategoryIds().size());
+        int shape = (query.getFromDate() != null ? 1 : 0)
+                | (query.getToDate() != null ? 2 : 0)
+                | (query.getType() != null ? 4 : 0)
+                | (query.getMinAmount() != null ? 8 : 0)
+                | (query.getMaxAmount() != null ? 16 : 0)
+                | (query.getDescriptionContains() != null ? 32 : 0)
+                | (accounts > 0 ? Integer.numberOfTrailingZeros(accounts) + 1 : 0) << 8
+                | (categories > 0 ? Integer.numberOfTrailingZeros(categories) + 1 : 0) << 16;
+
+        return QUERY_FILTERS.computeIfAbsent(shape, key -> {
+            StringBuilder sql = new StringBuilder("t.userId = ?");
+            if ((key & 1) != 0) sql.append(" AND t.date >= ?");
+            if ((key & 2) != 0) sql.append(" AND t.date < ?");
+            appendInList(sql, "t.accountId", accounts);
+            appendInList(sql, "t.categoryId", categories);
+            if ((key & 4) != 0) sql.append(" AND t.type = ?");
+            if ((key & 8) != 0) sql.append(" AND t.amount >= ?");
+            if ((key & 16) != 0) sql.append(" AND t.amount <= ?");
+            if ((key & 32) != 0) sql.append(" AND t.description LIKE ? ESCAPE '!'");
+            return sql.toString();
+        });
+    }
+
+    /**
+     * Rounds an ID list size up to a power of two, so that lists of similar
+     * length share a statement.
+     */
+    private static int inListSize(int size) {
+        return size <= 1 ? size : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private static void appendInList(StringBuilder sql, String column, int size) {
+        if (size == 1) {
+            sql.append(" AND ").append(column).append(" = ?");
+        } else if (size > 1) {
+            sql.append(" AND ").append(column).append(" IN (?");
+            for (int i = 1; i < size; i++) {
+                sql.append(", ?");
+            }
+            sql.append(')');
+        }
+    }
+
+    /**
+     * Binds a query's parameters in the order {@link #queryFilter} lists them.
+     */
+    private static int bindQuery(PreparedStatement stmt, int index, TransactionQuery query) throws SQLException {
+        stmt.setInt(index++, query.getUserId());
+        if (query.getFromDate() != null) stmt.setTimestamp(index++, new Timestamp(query.getFromDate().getTime()));
+        if (query.getToDate() != null) stmt.setTimestamp(index++, new Timestamp(query.getToDate().getTime()));
+        index = bindInList(stmt, index, query.getAccountIds());
+        index = bindInList(stmt, index, query.getCategoryIds());
+        if (query.getType() != null) stmt.setString(index++, query.getType().name());
+        if (query.getMinAmount() != null) stmt.setBigDecimal(index++, query.getMinAmount());
+        if (query.getMaxAmount() != null) stmt.setBigDecimal(index++, query.getMaxAmount());
+        if (query.getDescriptionContains() != null) {
+            String escaped = query.getDescriptionContains()
+                    .replace("!", "!!").replace("%", "!%").replace("_", "!_");
+            stmt.setString(index++, "%" + escaped + "%");
+        }
+        return index;
+    }
+
+    /**
+     * Binds an ID list, repeating the last ID to fill the padded IN list.
+     */
+    private static int bindInList(PreparedStatement stmt, int index, List<Integer> ids) throws SQLException {
+        int size = inListSize(ids.size());
+        for (int i = 0; i < size; i++) {
+            stmt.setInt(index++, ids.get(Math.min(i, ids.size() - 1)));
+        }
+        return index;
+    }
+
+    /**
+     * Idempotent close action for the resources behind a transaction stream.
+     */
+    private static final class StreamResources implements Runnable {
+        private final Connection conn;
+        private final PreparedStatement stmt;
+        private final ResultSet rs;
+        private boolean closed;
+
+        private StreamResources(Connection conn, PreparedStatement stmt, ResultSet rs) {
+            this.conn = conn;
+            this.stmt = stmt;
+            this.rs = rs;
+        }
+
+        @Override
+        public void run() {
+            if (closed) {
+                return;
+            }
+            closed = true;
             try {
                 if (rs != null) rs.close();
                 if (stmt != null) stmt.close();
-                if (conn != null) DBConnection.closeConnection(conn);
             } catch (SQLException e) {
-                e.printStackTrace();
+                DAOMetrics.failed(e);
+            } finally {
+                DBConnection.closeConnection(conn);
             }
         }
+    }
 
-        return transactions;
+    /**
+     * Gets all transactions for a user in the compact representation, newest
+     * first. Rows are read from Transactions alone and names resolved from the
+     * user's {@link NameDictionary}, so they are shared, not copied per row.
+     *
+     * @param userId the user ID
+     * @return List of CompactTransaction objects
+     */
+    public List<CompactTransaction> getUserTransactionsCompact(int userId) {
+        return DAOMetrics.measure("TransactionDAO.getUserTransactionsCompact", () -> {
+            return getCompactTransactions("userId = ?", new int[] {userId}, userId);
+        });
     }
 
     /**
-     * Gets transactions for a specific category.
+     * Gets transactions for a specific account in the compact representation.
+     *
+     * @param accountId the account ID
+     * @param userId the user ID (for security check)
+     * @return List of CompactTransaction objects
+     */
+    public List<CompactTransaction> getAccountTransactionsCompact(int accountId, int userId) {
+        return DAOMetrics.measure("TransactionDAO.getAccountTransactionsCompact", () -> {
+            return getCompactTransactions("accountId = ? AND userId = ?", new int[] {accountId, userId}, userId);
+        });
+    }
+
+    /**
+     * Gets transactions for a specific category in the compact representation.
      *
      * @param categoryId the category ID
      * @param userId the user ID (for security check)
-     * @return List of Transaction objects
+     * @return List of CompactTransaction objects
      */
-    public List<Transaction> getCategoryTransactions(int categoryId, int userId) {
-        List<Transaction> transactions = new ArrayList<>();
+    public List<CompactTransaction> getCategoryTransactionsCompact(int categoryId, int userId) {
+        return DAOMetrics.measure("TransactionDAO.getCategoryTransactionsCompact", () -> {
+            return getCompactTransactions("categoryId = ? AND userId = ?", new int[] {categoryId, userId}, userId);
+        });
+    }
+
+    /**
+     * Runs a listing query and maps rows straight to CompactTransaction.
+     *
+     * @param filter the WHERE conditions selecting the rows
+     * @param filterParams the int parameters for the filter, in order
+     * @param userId the user the rows belong to
+     * @return List of CompactTransaction objects
+     */
+    private List<CompactTransaction> getCompactTransactions(String filter, int[] filterParams, int userId) {
+        List<CompactTransaction> transactions = new ArrayList<>();
         Connection conn = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
 
         try {
-            conn = DBConnection.getConnection();
-            String sql = "SELECT t.*, a.accountName, c.name as categoryName " +
-                    "FROM Transactions t " +
-                    "JOIN Accounts a ON t.accountId = a.id " +
-                    "JOIN Categories c ON t.categoryId = c.id " +
-                    "WHERE t.categoryId = ? AND t.userId = ? " +
-                    "ORDER BY t.date DESC";
+            conn = DBConnection.getReadConnection(userId);
+            NameDictionary names = NameDictionary.forUser(conn, userId);
+            String sql = "SELECT id, userId, accountId, categoryId, amount, type, description, date " +
+                    "FROM Transactions " +
+                    "WHERE " + filter + " " +
+                    "ORDER BY date DESC, id DESC";
             stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, categoryId);
-            stmt.setInt(2, userId);
+            for (int i = 0; i < filterParams.length; i++) {
+                stmt.setInt(i + 1, filterParams[i]);
+            }
 
             rs = stmt.executeQuery();
             while (rs.next()) {
-                transactions.add(mapTransaction(rs));
+                int accountId = rs.getInt(3);
+                int categoryId = rs.getInt(4);
+                transactions.add(new CompactTransaction(
+                        rs.getInt(1), rs.getInt(2), accountId, categoryId,
+                        TransactionLedger.toCents(rs.getBigDecimal(5)),
+                        TransactionType.fromString(rs.getString(6)),
+                        rs.getDate(8).toLocalDate(),
+                        rs.getString(7),
+                        names.getAccountName(accountId),
+                        names.getCategoryName(categoryId)));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            DAOMetrics.failed(e);
         } finally {
             try {
                 if (rs != null) rs.close();
                 if (stmt != null) stmt.close();
                 if (conn != null) DBConnection.closeConnection(conn);
             } catch (SQLException e) {
-                e.printStackTrace();
+                DAOMetrics.failed(e);
             }
         }
 
@@ -241,135 +1029,529 @@ public class TransactionDAO {
     }
 
     /**
-     * Updates a transaction in the database.
+     * Finds a user's transactions by description words, using the in-process
+     * {@link DescriptionIndex} instead of a LIKE scan. Every word must match,
+     * as a prefix of a word in the description.
+     *
+     * @param userId the user ID
+     * @param query the words to look for
+     * @return matching transaction IDs, newest first; empty on error
+     */
+    public int[] searchDescriptions(int userId, String query) {
+        return DAOMetrics.measure("TransactionDAO.searchDescriptions", () -> {
+            try {
+                return DescriptionIndex.forUser(userId).search(query);
+            } catch (SQLException e) {
+                DAOMetrics.failed(e);
+                return new int[0];
+            }
+        });
+    }
+
+    /**
+     * Rebuilds a user's description index from the Transactions table, e.g.
+     * after rows were changed outside this class.
+     *
+     * @param userId the user ID
+     * @return the number of transactions indexed, or -1 if the rebuild fails
+     */
+    public int rebuildDescriptionIndex(int userId) {
+        return DAOMetrics.measure("TransactionDAO.rebuildDescriptionIndex", () -> {
+            Connection conn = null;
+            try {
+                conn = DBConnection.getConnection();
+                return DescriptionIndex.rebuild(conn, userId).size();
+            } catch (SQLException e) {
+                DAOMetrics.failed(e);
+                return -1;
+            } finally {
+                DBConnection.closeConnection(conn);
+            }
+        });
+    }
+
+    /**
+     * Updates a transaction in the database. The old amount is reversed from
+     * the old account's stored balance and the new amount applied to the new
+     * account's, atomically with the row update. The transfer flag is not
+     * changed.
      *
      * @param transaction the Transaction object to update
      * @return true if update succeeds, false otherwise
      */
     public boolean updateTransaction(Transaction transaction) {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        boolean success = false;
+        return DAOMetrics.measure("TransactionDAO.updateTransaction", () -> {
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            boolean success = false;
 
-        try {
-            conn = DBConnection.getConnection();
-            String sql = "UPDATE Transactions SET accountId = ?, categoryId = ?, amount = ?, " +
-                    "type = ?, description = ?, date = ? WHERE id = ? AND userId = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, transaction.getAccountId());
-            stmt.setInt(2, transaction.getCategoryId());
-            stmt.setBigDecimal(3, transaction.getAmount());
-            stmt.setString(4, transaction.getType());
-            stmt.setString(5, transaction.getDescription());
-            stmt.setTimestamp(6, new Timestamp(transaction.getDate().getTime()));
-            stmt.setInt(7, transaction.getId());
-            stmt.setInt(8, transaction.getUserId());
-
-            int affectedRows = stmt.executeUpdate();
-            success = (affectedRows > 0);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
             try {
-                if (stmt != null) stmt.close();
-                if (conn != null) DBConnection.closeConnection(conn);
+                conn = DBConnection.getConnection();
+                conn.setAutoCommit(false);
+                Transaction previous = lockTransaction(conn, transaction.getId(), transaction.getUserId());
+
+                if (previous != null) {
+                    Map<Integer, BigDecimal> deltas = new TreeMap<>();
+                    deltas.merge(previous.getAccountId(),
+                            signedAmount(previous.getType(), previous.getAmount()).negate(), BigDecimal::add);
+                    deltas.merge(transaction.getAccountId(),
+                            signedAmount(transaction.getType(), transaction.getAmount()), BigDecimal::add);
+                    for (Map.Entry<Integer, BigDecimal> delta : deltas.entrySet()) {
+                        applyBalanceDelta(conn, delta.getKey(), transaction.getUserId(), delta.getValue());
+                    }
+
+                    String sql = "UPDATE Transactions SET accountId = ?, categoryId = ?, amount = ?, " +
+                            "type = ?, description = ?, date = ? WHERE id = ? AND userId = ?";
+                    stmt = conn.prepareStatement(sql);
+                    stmt.setInt(1, transaction.getAccountId());
+                    stmt.setInt(2, transaction.getCategoryId());
+                    stmt.setBigDecimal(3, transaction.getAmount());
+                    stmt.setString(4, transaction.getType());
+                    stmt.setString(5, transaction.getDescription());
+                    stmt.setTimestamp(6, new Timestamp(transaction.getDate().getTime()));
+                    stmt.setInt(7, transaction.getId());
+                    stmt.setInt(8, transaction.getUserId());
+
+                    int affectedRows = stmt.executeUpdate();
+                    success = (affectedRows > 0);
+                }
+                conn.commit();
+                if (success) {
+                    DescriptionIndex.indexAfterCommit(transaction.getUserId(), transaction.getId(), transaction.getDescription());
+                    DBConnection.recordWrite(transaction.getUserId());
+                }
             } catch (SQLException e) {
-                e.printStackTrace();
+                success = false;
+                rollback(conn);
+                DAOMetrics.failed(e);
+            } finally {
+                try {
+                    if (stmt != null) stmt.close();
+                    if (conn != null) {
+                        conn.setAutoCommit(true);
+                        DBConnection.closeConnection(conn);
+                    }
+                } catch (SQLException e) {
+                    DAOMetrics.failed(e);
+                }
             }
-        }
 
-        return success;
+            return success;
+        });
     }
 
     /**
-     * Deletes a transaction from the database.
+     * Deletes a transaction from the database and reverses its amount from
+     * the account's stored balance in the same database transaction.
      *
      * @param transactionId the transaction ID
      * @param userId the user ID (for security check)
      * @return true if deletion succeeds, false otherwise
      */
     public boolean deleteTransaction(int transactionId, int userId) {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        boolean success = false;
+        return DAOMetrics.measure("TransactionDAO.deleteTransaction", () -> {
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            boolean success = false;
 
-        try {
-            conn = DBConnection.getConnection();
-            String sql = "DELETE FROM Transactions WHERE id = ? AND userId = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, transactionId);
-            stmt.setInt(2, userId);
-
-            int affectedRows = stmt.executeUpdate();
-            success = (affectedRows > 0);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
             try {
-                if (stmt != null) stmt.close();
-                if (conn != null) DBConnection.closeConnection(conn);
+                conn = DBConnection.getConnection();
+                conn.setAutoCommit(false);
+                Transaction previous = lockTransaction(conn, transactionId, userId);
+
+                if (previous != null) {
+                    applyBalanceDelta(conn, previous.getAccountId(), userId,
+                            signedAmount(previous.getType(), previous.getAmount()).negate());
+                    String sql = "DELETE FROM Transactions WHERE id = ? AND userId = ?";
+                    stmt = conn.prepareStatement(sql);
+                    stmt.setInt(1, transactionId);
+                    stmt.setInt(2, userId);
+
+                    int affectedRows = stmt.executeUpdate();
+                    success = (affectedRows > 0);
+                }
+                conn.commit();
+                if (success) {
+                    DescriptionIndex.removeAfterCommit(userId, transactionId);
+                    DBConnection.recordWrite(userId);
+                }
             } catch (SQLException e) {
-                e.printStackTrace();
+                success = false;
+                rollback(conn);
+                DAOMetrics.failed(e);
+            } finally {
+                try {
+                    if (stmt != null) stmt.close();
+                    if (conn != null) {
+                        conn.setAutoCommit(true);
+                        DBConnection.closeConnection(conn);
+                    }
+                } catch (SQLException e) {
+                    DAOMetrics.failed(e);
+                }
             }
-        }
 
-        return success;
+            return success;
+        });
     }
 
     /**
-     * Gets account balance (sum of all transactions).
+     * Gets account balance. The balance is maintained incrementally by the
+     * write methods of this class, so this is a single-row lookup.
      *
      * @param accountId the account ID
      * @param userId the user ID (for security check)
      * @return the account balance as BigDecimal
      */
     public BigDecimal getAccountBalance(int accountId, int userId) {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        BigDecimal balance = BigDecimal.ZERO;
+        return DAOMetrics.measure("TransactionDAO.getAccountBalance", () -> {
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            ResultSet rs = null;
+            BigDecimal balance = BigDecimal.ZERO;
 
-        try {
-            conn = DBConnection.getConnection();
-            String sql = "SELECT " +
-                    "SUM(CASE WHEN type = 'INCOME' THEN amount ELSE -amount END) as balance " +
-                    "FROM Transactions " +
-                    "WHERE accountId = ? AND userId = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, accountId);
-            stmt.setInt(2, userId);
+            try {
+                conn = DBConnection.getReadConnection(userId);
+                String sql = "SELECT balance FROM Accounts WHERE id = ? AND userId = ?";
+                stmt = conn.prepareStatement(sql);
+                stmt.setInt(1, accountId);
+                stmt.setInt(2, userId);
 
-            rs = stmt.executeQuery();
-            if (rs.next()) {
-                BigDecimal result = rs.getBigDecimal("balance");
-                if (result != null) {
-                    balance = result;
+                rs = stmt.executeQuery();
+                if (rs.next()) {
+                    BigDecimal result = rs.getBigDecimal("balance");
+                    if (result != null) {
+                        balance = result;
+                    }
+                }
+            } catch (SQLException e) {
+                DAOMetrics.failed(e);
+            } finally {
+                try {
+                    if (rs != null) rs.close();
+                    if (stmt != null) stmt.close();
+                    if (conn != null) DBConnection.closeConnection(conn);
+                } catch (SQLException e) {
+                    DAOMetrics.failed(e);
                 }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
+
+            return balance;
+        });
+    }
+
+    /**
+     * Gets the balances of all of a user's accounts in one query, read from
+     * the maintained running balances.
+     *
+     * @param userId the user ID
+     * @return Map of account ID to balance, empty if the user has no accounts
+     */
+    public Map<Integer, BigDecimal> getAccountBalances(int userId) {
+        return DAOMetrics.measure("TransactionDAO.getAccountBalances", () -> {
+            Map<Integer, BigDecimal> balances = new LinkedHashMap<>();
+            Connection conn = null;
+
             try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
+                conn = DBConnection.getReadConnection(userId);
+                balances = loadAccountBalances(conn, userId);
+            } catch (SQLException e) {
+                DAOMetrics.failed(e);
+            } finally {
                 if (conn != null) DBConnection.closeConnection(conn);
+            }
+
+            return balances;
+        });
+    }
+
+    /**
+     * Loads the balances of all of a user's accounts on the given connection.
+     *
+     * @param conn the connection to query with
+     * @param userId the user ID
+     * @return Map of account ID to balance, in account ID order
+     * @throws SQLException if a database access error occurs
+     */
+    static Map<Integer, BigDecimal> loadAccountBalances(Connection conn, int userId) throws SQLException {
+        Map<Integer, BigDecimal> balances = new LinkedHashMap<>();
+        String sql = "SELECT id, balance FROM Accounts WHERE userId = ? ORDER BY id";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    balances.put(rs.getInt("id"), rs.getBigDecimal("balance"));
+                }
+            }
+        }
+        return balances;
+    }
+
+    /**
+     * Compares each of a user's stored account balances with the balance
+     * recomputed from scratch over all of the account's transactions.
+     *
+     * @param userId the user ID
+     * @return List of BalanceDrift objects, one per account whose stored balance is wrong
+     */
+    public List<BalanceDrift> verifyAccountBalances(int userId) {
+        return DAOMetrics.measure("TransactionDAO.verifyAccountBalances", () -> {
+            List<BalanceDrift> drifts = new ArrayList<>();
+            Connection conn = null;
+
+            try {
+                conn = DBConnection.getConnection();
+                drifts = findBalanceDrift(conn, userId, false);
+            } catch (SQLException e) {
+                DAOMetrics.failed(e);
+            } finally {
+                if (conn != null) DBConnection.closeConnection(conn);
+            }
+
+            return drifts;
+        });
+    }
+
+    /**
+     * Recomputes a user's account balances from scratch and overwrites any
+     * stored balance that has drifted. The affected account rows are locked
+     * while they are recomputed so concurrent writes cannot interleave.
+     *
+     * @param userId the user ID
+     * @return List of BalanceDrift objects describing the balances that were corrected
+     */
+    public List<BalanceDrift> rebuildAccountBalances(int userId) {
+        return DAOMetrics.measure("TransactionDAO.rebuildAccountBalances", () -> {
+            List<BalanceDrift> drifts = new ArrayList<>();
+            Connection conn = null;
+            PreparedStatement stmt = null;
+
+            try {
+                conn = DBConnection.getConnection();
+                conn.setAutoCommit(false);
+                drifts = findBalanceDrift(conn, userId, true);
+
+                if (!drifts.isEmpty()) {
+                    String sql = "UPDATE Accounts SET balance = ? WHERE id = ? AND userId = ?";
+                    stmt = conn.prepareStatement(sql);
+                    for (BalanceDrift drift : drifts) {
+                        stmt.setBigDecimal(1, drift.getComputedBalance());
+                        stmt.setInt(2, drift.getAccountId());
+                        stmt.setInt(3, userId);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+                conn.commit();
+                if (!drifts.isEmpty()) {
+                    DBConnection.recordWrite(userId);
+                }
+            } catch (SQLException e) {
+                drifts = new ArrayList<>();
+                rollback(conn);
+                DAOMetrics.failed(e);
+            } finally {
+                try {
+                    if (stmt != null) stmt.close();
+                    if (conn != null) {
+                        conn.setAutoCommit(true);
+                        DBConnection.closeConnection(conn);
+                    }
+                } catch (SQLException e) {
+                    DAOMetrics.failed(e);
+                }
+            }
+
+            return drifts;
+        });
+    }
+
+    /**
+     * Finds accounts whose stored balance differs from the sum of their transactions.
+     *
+     * @param conn the connection to use
+     * @param userId the user ID
+     * @param lock whether to lock the user's account rows for update
+     * @return List of BalanceDrift objects
+     * @throws SQLException if a database access error occurs
+     */
+    private List<BalanceDrift> findBalanceDrift(Connection conn, int userId, boolean lock) throws SQLException {
+        if (lock) {
+            try (PreparedStatement lockStmt = conn.prepareStatement(
+                    "SELECT id FROM Accounts WHERE userId = ? FOR UPDATE")) {
+                lockStmt.setInt(1, userId);
+                lockStmt.executeQuery().close();
+            }
+        }
+
+        String sql = "SELECT a.id, a.balance, " +
+                "COALESCE(SUM(CASE WHEN t.type = 'INCOME' THEN t.amount ELSE -t.amount END), 0) as computed " +
+                "FROM Accounts a " +
+                "LEFT JOIN Transactions t ON t.accountId = a.id AND t.userId = a.userId " +
+                "WHERE a.userId = ? " +
+                "GROUP BY a.id, a.balance";
+
+        List<BalanceDrift> drifts = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    BigDecimal stored = rs.getBigDecimal("balance");
+                    BigDecimal computed = rs.getBigDecimal("computed");
+                    if (stored.compareTo(computed) != 0) {
+                        drifts.add(new BalanceDrift(rs.getInt("id"), stored, computed));
+                    }
+                }
+            }
+        }
+        return drifts;
+    }
+
+    /**
+     * Reads and locks the fields of an existing transaction that affect balances.
+     *
+     * @param conn the connection, inside a database transaction
+     * @param transactionId the transaction ID
+     * @param userId the user ID (for security check)
+     * @return Transaction with accountId, amount and type set, or null if not found
+     * @throws SQLException if a database access error occurs
+     */
+    private Transaction lockTransaction(Connection conn, int transactionId, int userId) throws SQLException {
+        String sql = "SELECT accountId, amount, type FROM Transactions WHERE id = ? AND userId = ? FOR UPDATE";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, transactionId);
+            stmt.setInt(2, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Transaction transaction = new Transaction();
+                transaction.setAccountId(rs.getInt("accountId"));
+                transaction.setAmount(rs.getBigDecimal("amount"));
+                transaction.setType(rs.getString("type"));
+                return transaction;
+            }
+        }
+    }
+
+    /**
+     * Adds a signed amount to an account's stored balance, locking the
+     * account row until the database transaction ends. Write methods call
+     * this before they write the transaction row: the row's foreign key check
+     * takes a shared lock on the account, and two writers holding that shared
+     * lock would deadlock waiting to update the balance. A zero amount still
+     * locks the account.
+     *
+     * @param conn the connection, inside a database transaction
+     * @param accountId the account ID
+     * @param userId the user ID (for security check)
+     * @param delta the amount to add, negative for a decrease
+     * @throws SQLException if the account does not belong to the user, or a
+     *         database access error occurs
+     */
+    private void applyBalanceDelta(Connection conn, int accountId, int userId, BigDecimal delta) throws SQLException {
+        String sql = delta.signum() == 0
+                ? "SELECT id FROM Accounts WHERE id = ? AND userId = ? FOR UPDATE"
+                : "UPDATE Accounts SET balance = balance + ? WHERE id = ? AND userId = ?";
+        boolean found;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            if (delta.signum() != 0) {
+                stmt.setBigDecimal(index++, delta);
+            }
+            stmt.setInt(index++, accountId);
+            stmt.setInt(index, userId);
+            if (delta.signum() == 0) {
+                try (ResultSet rs = stmt.executeQuery()) {
+                    found = rs.next();
+                }
+            } else {
+                found = stmt.executeUpdate() > 0;
+            }
+        }
+        if (!found) {
+            throw new SQLException("Account " + accountId + " does not exist or does not belong to user " + userId + ".");
+        }
+    }
+
+    /**
+     * Gets the effect of a transaction on its account's balance: income is
+     * positive, anything else negative.
+     *
+     * @param type the transaction type
+     * @param amount the transaction amount
+     * @return the signed amount
+     */
+    private static BigDecimal signedAmount(String type, BigDecimal amount) {
+        return "INCOME".equalsIgnoreCase(type) ? amount : amount.negate();
+    }
+
+    /**
+     * Rolls back the current database transaction, if any, reporting failures.
+     *
+     * @param conn the connection, may be null
+     */
+    private static void rollback(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
             } catch (SQLException e) {
-                e.printStackTrace();
+                DAOMetrics.failed(e);
             }
         }
+    }
+
+    /**
+     * Gets the start of a transaction SELECT for the current read mode, up to
+     * and including the FROM clause.
+     *
+     * @return SQL prefix
+     */
+    private String selectTransactions() {
+        if (joinFreeReads) {
+            return "SELECT t.* FROM Transactions t ";
+        }
+        return "SELECT t.*, a.accountName, c.name as categoryName " +
+                "FROM Transactions t " +
+                "JOIN Accounts a ON t.accountId = a.id " +
+                "JOIN Categories c ON t.categoryId = c.id ";
+    }
 
-        return balance;
+    /**
+     * Gets the name dictionary used to resolve names in join-free mode.
+     *
+     * @param conn the connection to load with, if not cached
+     * @param userId the user ID
+     * @return NameDictionary object, or null when reads join for names
+     * @throws SQLException if a database access error occurs
+     */
+    private NameDictionary dictionaryFor(Connection conn, int userId) throws SQLException {
+        return joinFreeReads ? NameDictionary.forUser(conn, userId) : null;
     }
 
     /**
      * Helper method to map ResultSet row to Transaction object.
      *
      * @param rs the ResultSet
+     * @param names the dictionary to resolve names from, or null to read the joined columns
      * @return Transaction object
      * @throws SQLException if a database access error occurs
      */
-    private Transaction mapTransaction(ResultSet rs) throws SQLException {
-        Transaction transaction = new Transaction();
+    private Transaction mapTransaction(ResultSet rs, NameDictionary names) throws SQLException {
+        return mapTransaction(rs, new Transaction(), names);
+    }
+
+    /**
+     * Fills the given Transaction from the current ResultSet row. An existing
+     * date on the target is updated in place rather than replaced.
+     *
+     * @param rs the ResultSet
+     * @param transaction the Transaction to fill
+     * @param names the dictionary to resolve names from, or null to read the joined columns
+     * @return the filled Transaction
+     * @throws SQLException if a database access error occurs
+     */
+    private Transaction mapTransaction(ResultSet rs, Transaction transaction, NameDictionary names) throws SQLException {
         transaction.setId(rs.getInt("id"));
         transaction.setUserId(rs.getInt("userId"));
         transaction.setAccountId(rs.getInt("accountId"));
@@ -377,11 +1559,22 @@ public class TransactionDAO {
         transaction.setAmount(rs.getBigDecimal("amount"));
         transaction.setType(rs.getString("type"));
         transaction.setDescription(rs.getString("description"));
-        transaction.setDate(new Date(rs.getTimestamp("date").getTime()));
+        transaction.setTransfer(rs.getBoolean("transfer"));
+        long time = rs.getTimestamp("date").getTime();
+        if (transaction.getDate() != null) {
+            transaction.getDate().setTime(time);
+        } else {
+            transaction.setDate(new Date(time));
+        }
 
         // Additional joined fields
-        transaction.setAccountName(rs.getString("accountName"));
-        transaction.setCategoryName(rs.getString("categoryName"));
+        if (names != null) {
+            transaction.setAccountName(names.getAccountName(transaction.getAccountId()));
+            transaction.setCategoryName(names.getCategoryName(transaction.getCategoryId()));
+        } else {
+            transaction.setAccountName(rs.getString("accountName"));
+            transaction.setCategoryName(rs.getString("categoryName"));
+        }
 
         return transaction;
     }
@@ -0,0 +1,343 @@
+package Database;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.sql.SQLException;
+import java.util.Calendar;
+import java.util.zip.GZIPOutputStream;
+
+import Backend.Transaction;
+import Backend.TransactionLedger;
+
+/**
+ * Writes a user's full transaction history as CSV or JSON, newest first.
+ *
+ * Rows are streamed from the database through a single reused Transaction
+ * and encoded straight into a byte buffer, so memory use does not grow with
+ * the length of the history. Amounts are signed (expenses negative) and dates
+ * are written as yyyy-MM-dd, so a CSV export can be read back with
+ * {@link Backend.CsvStatementParser} and its default column mapping.
+ */
+public class TransactionExporter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] CSV_HEADER = ascii("Id,Date,Description,Amount,Type,Account,Category\r\n");
+    private static final byte[] JSON_ID = ascii("\n{\"id\":");
+    private static final byte[] JSON_DATE = ascii(",\"date\":\"");
+    private static final byte[] JSON_DESCRIPTION = ascii("\",\"description\":");
+    private static final byte[] JSON_AMOUNT = ascii(",\"amount\":");
+    private static final byte[] JSON_TYPE = ascii(",\"type\":");
+    private static final byte[] JSON_ACCOUNT_ID = ascii(",\"accountId\":");
+    private static final byte[] JSON_ACCOUNT = ascii(",\"account\":");
+    private static final byte[] JSON_CATEGORY_ID = ascii(",\"categoryId\":");
+    private static final byte[] JSON_CATEGORY = ascii(",\"category\":");
+    private static final byte[] LONG_MIN_DIGITS = ascii("9223372036854775808");
+    private static final byte[] JSON_NULL = ascii("null");
+
+    /**
+     * Output format of an export.
+     */
+    public enum Format {
+        CSV,
+        JSON
+    }
+
+    private final TransactionDAO transactionDAO = new TransactionDAO();
+
+    /**
+     * Exports all of a user's transactions to a stream. The stream is flushed
+     * but not closed.
+     *
+     * @param userId the user ID
+     * @param format CSV or JSON
+     * @param gzip true to gzip the output
+     * @param out where to write the export
+     * @return the number of transactions written
+     * @throws IOException if writing fails
+     * @throws SQLException if a database access error occurs
+     */
+    public long export(int userId, Format format, boolean gzip, OutputStream out) throws IOException, SQLException {
+        GZIPOutputStream zipped = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        ByteSink sink = new ByteSink(zipped != null ? zipped : out);
+        Calendar calendar = Calendar.getInstance();
+        long count;
+
+        if (format == Format.CSV) {
+            sink.write(CSV_HEADER);
+        } else {
+            sink.write('[');
+        }
+        try {
+            boolean[] first = {true};
+            count = transactionDAO.forEachUserTransaction(userId, true, transaction -> {
+                try {
+                    if (format == Format.CSV) {
+                        writeCsvRow(sink, calendar, transaction);
+                    } else {
+                        writeJsonRow(sink, calendar, transaction, first[0]);
+                    }
+                    first[0] = false;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (format == Format.JSON) {
+            sink.write(']');
+        }
+
+        sink.flush();
+        if (zipped != null) {
+            // finish() writes the gzip trailer without closing the caller's stream
+            zipped.finish();
+        }
+        out.flush();
+        return count;
+    }
+
+    /**
+     * Exports all of a user's transactions to a channel, which is left open.
+     *
+     * @param userId the user ID
+     * @param format CSV or JSON
+     * @param gzip true to gzip the output
+     * @param channel where to write the export
+     * @return the number of transactions written
+     * @throws IOException if writing fails
+     * @throws SQLException if a database access error occurs
+     */
+    public long export(int userId, Format format, boolean gzip, WritableByteChannel channel)
+            throws IOException, SQLException {
+        return export(userId, format, gzip, Channels.newOutputStream(channel));
+    }
+
+    private static void writeCsvRow(ByteSink sink, Calendar calendar, Transaction transaction) throws IOException {
+        sink.writeLong(transaction.getId());
+        sink.write(',');
+        writeDate(sink, calendar, transaction);
+        sink.write(',');
+        writeCsvField(sink, transaction.getDescription());
+        sink.write(',');
+        writeSignedAmount(sink, transaction);
+        sink.write(',');
+        writeCsvField(sink, transaction.getType());
+        sink.write(',');
+        writeCsvField(sink, transaction.getAccountName());
+        sink.write(',');
+        writeCsvField(sink, transaction.getCategoryName());
+        sink.write('\r');
+        sink.write('\n');
+    }
+
+    private static void writeJsonRow(ByteSink sink, Calendar calendar, Transaction transaction,
+                                     boolean first) throws IOException {
+        if (!first) {
+            sink.write(',');
+        }
+        sink.write(JSON_ID);
+        sink.writeLong(transaction.getId());
+        sink.write(JSON_DATE);
+        writeDate(sink, calendar, transaction);
+        sink.write(JSON_DESCRIPTION);
+        writeJsonString(sink, transaction.getDescription());
+        sink.write(JSON_AMOUNT);
+        writeSignedAmount(sink, transaction);
+        sink.write(JSON_TYPE);
+        writeJsonString(sink, transaction.getType());
+        sink.write(JSON_ACCOUNT_ID);
+        sink.writeLong(transaction.getAccountId());
+        sink.write(JSON_ACCOUNT);
+        writeJsonString(sink, transaction.getAccountName());
+        sink.write(JSON_CATEGORY_ID);
+        sink.writeLong(transaction.getCategoryId());
+        sink.write(JSON_CATEGORY);
+        writeJsonString(sink, transaction.getCategoryName());
+        sink.write('}');
+    }
+
+    private static void writeDate(ByteSink sink, Calendar calendar, Transaction transaction) throws IOException {
+        calendar.setTimeInMillis(transaction.getDate().getTime());
+        sink.writePadded(calendar.get(Calendar.YEAR), 4);
+        sink.write('-');
+        sink.writePadded(calendar.get(Calendar.MONTH) + 1, 2);
+        sink.write('-');
+        sink.writePadded(calendar.get(Calendar.DAY_OF_MONTH), 2);
+    }
+
+    private static void writeSignedAmount(ByteSink sink, Transaction transaction) throws IOException {
+        long cents = TransactionLedger.toCents(transaction.getAmount());
+        if (!"INCOME".equalsIgnoreCase(transaction.getType())) {
+            cents = -cents;
+        }
+        if (cents < 0) {
+            sink.write('-');
+            cents = -cents;
+        }
+        sink.writeLong(cents / 100);
+        sink.write('.');
+        sink.writePadded((int) (cents % 100), 2);
+    }
+
+    private static void writeCsvField(ByteSink sink, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            sink.writeUtf8(value, 0, value.length());
+            return;
+        }
+        sink.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                sink.writeUtf8(value, start, i + 1);
+                sink.write('"');
+                start = i + 1;
+            }
+        }
+        sink.writeUtf8(value, start, value.length());
+        sink.write('"');
+    }
+
+    private static void writeJsonString(ByteSink sink, String value) throws IOException {
+        if (value == null) {
+            sink.write(JSON_NULL);
+            return;
+        }
+        sink.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                sink.writeUtf8(value, start, i);
+                sink.write('\\');
+                switch (c) {
+                    case '"':
+                    case '\\':
+                        sink.write(c);
+                        break;
+                    case '\n':
+                        sink.write('n');
+                        break;
+                    case '\r':
+                        sink.write('r');
+                        break;
+                    case '\t':
+                        sink.write('t');
+                        break;
+                    default:
+                        sink.write('u');
+                        sink.write('0');
+                        sink.write('0');
+                        sink.write(Character.forDigit(c >> 4, 16));
+                        sink.write(Character.forDigit(c & 0xF, 16));
+                        break;
+                }
+                start = i + 1;
+            }
+        }
+        sink.writeUtf8(value, start, value.length());
+        sink.write('"');
+    }
+
+    private static byte[] ascii(String text) {
+        byte[] bytes = new byte[text.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) text.charAt(i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Fixed-size byte buffer that encodes text and numbers directly into its
+     * array, without building intermediate Strings.
+     */
+    private static final class ByteSink {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private final byte[] digits = new byte[20];
+        private int position;
+
+        private ByteSink(OutputStream out) {
+            this.out = out;
+        }
+
+        private void write(int b) throws IOException {
+            if (position == buffer.length) {
+                flush();
+            }
+            buffer[position++] = (byte) b;
+        }
+
+        private void write(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.length - position) {
+                flush();
+            }
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private void writeLong(long value) throws IOException {
+            if (value < 0) {
+                write('-');
+                if (value == Long.MIN_VALUE) {
+                    write(LONG_MIN_DIGITS);
+                    return;
+                }
+                value = -value;
+            }
+            int length = 0;
+            do {
+                digits[length++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            while (length > 0) {
+                write(digits[--length]);
+            }
+        }
+
+        private void writePadded(int value, int width) throws IOException {
+            for (int divisor = width == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+                write('0' + value / divisor % 10);
+            }
+        }
+
+        private void writeUtf8(String text, int from, int to) throws IOException {
+            for (int i = from; i < to; i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    write(c);
+                } else if (c < 0x800) {
+                    write(0xC0 | (c >> 6));
+                    write(0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    write(0xF0 | (codePoint >> 18));
+                    write(0x80 | ((codePoint >> 12) & 0x3F));
+                    write(0x80 | ((codePoint >> 6) & 0x3F));
+                    write(0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    write('?');
+                } else {
+                    write(0xE0 | (c >> 12));
+                    write(0x80 | ((c >> 6) & 0x3F));
+                    write(0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        private void flush() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package Database;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import Backend.Account;
+import Backend.Category;
+import Backend.StatementFormatException;
+import Backend.StatementParser;
+import Backend.StatementRow;
+import Backend.Transaction;
+
+/**
+ * Imports a bank statement into a user's transactions.
+ *
+ * Rows are pulled from a {@link StatementParser} and written with
+ * {@link TransactionDAO#createTransactions(List, int)} one chunk at a time, so
+ * only one chunk is held in memory whatever the file size. Account and
+ * category names in the file are matched case-insensitively against the
+ * user's existing ones; rows without a name use the defaults given to
+ * {@link #importStatement}. A bad row is recorded in the {@link ImportReport}
+ * and skipped; it does not stop the rest of the file.
+ */
+public class TransactionImporter {
+    private static final int MAX_REPORTED_ERRORS = Integer.getInteger("pfinance.import.maxReportedErrors", 1000);
+
+    private final TransactionDAO transactionDAO;
+    private final AccountDAO accountDAO = new AccountDAO();
+    private final CategoryDAO categoryDAO = new CategoryDAO();
+    private final int chunkSize;
+    private final boolean createMissing;
+
+    /**
+     * Creates an importer that writes in chunks of pfinance.batch.size rows and
+     * rejects rows naming an unknown account or category.
+     */
+    public TransactionImporter() {
+        this(TransactionDAO.DEFAULT_BATCH_SIZE, false);
+    }
+
+    /**
+     * @param chunkSize the number of rows written and committed together
+     * @param createMissing true to create accounts and categories named in the
+     *        file that the user does not have yet, false to reject those rows
+     */
+    public TransactionImporter(int chunkSize, boolean createMissing) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.transactionDAO = new TransactionDAO();
+        this.chunkSize = chunkSize;
+        this.createMissing = createMissing;
+    }
+
+    /**
+     * Reads every row from the parser and imports it for the user. The parser
+     * is not closed. Malformed rows are reported and skipped; a statement that
+     * cannot be read at all, such as a CSV file whose header lacks a required
+     * column, stops the import with its reason reported as the only error.
+     *
+     * @param parser the statement to import
+     * @param userId the user ID
+     * @param defaultAccountId the account for rows that do not name one
+     * @param defaultCategoryId the category for rows that do not name one
+     * @return the import report
+     * @throws IOException if the statement cannot be read; rows read before
+     *         the failure are still imported
+     * @throws SQLException if the user's accounts or categories cannot be loaded
+     */
+    public ImportReport importStatement(StatementParser parser, int userId,
+                                        int defaultAccountId, int defaultCategoryId) throws IOException, SQLException {
+        Run run = new Run(userId, defaultAccountId, defaultCategoryId);
+        try {
+            while (true) {
+                StatementRow row;
+                try {
+                    row = parser.next();
+                } catch (StatementFormatException e) {
+                    if (e.isFatal()) {
+                        // No row can be read, e.g. a header without a required column
+                        run.fail(e.getLineNumber(), e.getMessage());
+                        break;
+                    }
+                    run.rowsRead++;
+                    run.fail(e.getLineNumber(), e.getMessage());
+                    continue;
+                }
+                if (row == null) {
+                    break;
+                }
+                run.rowsRead++;
+                run.add(row);
+            }
+        } finally {
+            run.flush();
+        }
+        return new ImportReport(run.rowsRead, run.rowsImported, run.rowsFailed, run.errors,
+                System.nanoTime() - run.startNanos);
+    }
+
+    /**
+     * State of one import: the name lookups, the pending chunk and the counters.
+     */
+    private final class Run {
+        private final long startNanos = System.nanoTime();
+        private final int userId;
+        private final int defaultAccountId;
+        private final int defaultCategoryId;
+        private final Map<String, Integer> accountIds = new HashMap<>();
+        private final Map<String, Integer> categoryIds = new HashMap<>();
+        private final List<Transaction> chunk = new ArrayList<>();
+        private final List<Long> chunkLines = new ArrayList<>();
+        private final List<ImportReport.RowError> errors = new ArrayList<>();
+        private long rowsRead;
+        private long rowsImported;
+        private long rowsFailed;
+
+        private Run(int userId, int defaultAccountId, int defaultCategoryId) throws SQLException {
+            this.userId = userId;
+            this.defaultAccountId = defaultAccountId;
+            this.defaultCategoryId = defaultCategoryId;
+            for (Account account : accountDAO.getUserAccounts(userId)) {
+                accountIds.putIfAbsent(key(account.getAccountName()), account.getId());
+            }
+            for (Category category : categoryDAO.getCategoriesByUserId(userId)) {
+                categoryIds.putIfAbsent(key(category.getName()), category.getId());
+            }
+        }
+
+        private void add(StatementRow row) {
+            int accountId = row.getAccountName() == null ? defaultAccountId : resolveAccount(row.getAccountName());
+            if (accountId < 0) {
+                fail(row.getLineNumber(), "Unknown account \"" + row.getAccountName() + "\"");
+                return;
+            }
+            int categoryId = row.getCategoryName() == null ? defaultCategoryId : resolveCategory(row.getCategoryName());
+            if (categoryId < 0) {
+                fail(row.getLineNumber(), "Unknown category \"" + row.getCategoryName() + "\"");
+                return;
+            }
+
+            Date date = Date.from(row.getDate().atStartOfDay(ZoneId.systemDefault()).toInstant());
+            chunk.add(new Transaction(0, userId, accountId, categoryId, row.getAmount(),
+                    row.getType().name(), row.getDescription(), date));
+            chunkLines.add(row.getLineNumber());
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            // One call per chunk: createTransactions commits it as a unit
+            int inserted = transactionDAO.createTransactions(chunk, chunk.size());
+            rowsImported += inserted;
+            for (int i = inserted; i < chunk.size(); i++) {
+                fail(chunkLines.get(i), "Database insert failed for this chunk");
+            }
+            chunk.clear();
+            chunkLines.clear();
+        }
+
+        private void fail(long lineNumber, String message) {
+            rowsFailed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportReport.RowError(lineNumber, message));
+            }
+        }
+
+        private int resolveAccount(String name) {
+            Integer id = accountIds.get(key(name));
+            if (id == null && createMissing) {
+                // A failed create is remembered too, so later rows fail fast
+                id = accountDAO.createAccount(new Account(0, userId, name));
+                accountIds.put(key(name), id);
+            }
+            return id == null ? -1 : id;
+        }
+
+        private int resolveCategory(String name) {
+            Integer id = categoryIds.get(key(name));
+            if (id == null && createMissing) {
+                try {
+                    id = categoryDAO.createCategory(new Category(0, userId, name)).getId();
+                    categoryIds.put(key(name), id);
+                } catch (SQLException e) {
+                    DAOMetrics.failed(e);
+                    id = -1;
+                    categoryIds.put(key(name), id);
+                }
+            }
+            return id == null ? -1 : id;
+        }
+    }
+
+    private static String key(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+}
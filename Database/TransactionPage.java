@@ -0,0 +1,42 @@
+package Database;
+
+import java.util.Collections;
+import java.util.List;
+
+import Backend.Transaction;
+
+/**
+ * One page of a keyset-paginated transaction listing.
+ */
+public class TransactionPage {
+    private final List<Transaction> transactions;
+    private final TransactionCursor nextCursor;
+
+    public TransactionPage(List<Transaction> transactions, TransactionCursor nextCursor) {
+        this.transactions = Collections.unmodifiableList(transactions);
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * Gets the cursor to pass when requesting the following page.
+     *
+     * @return the next cursor, or null if this is the last page
+     */
+    public TransactionCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionPage [size=" + transactions.size() + ", nextCursor=" + nextCursor + "]";
+    }
+}
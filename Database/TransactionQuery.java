@@ -0,0 +1,149 @@
+package Database;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TreeSet;
+
+import Backend.TransactionType;
+
+/**
+ * Filters for {@link TransactionDAO#queryTransactions} and
+ * {@link TransactionDAO#streamTransactions(TransactionQuery, boolean)}. Only the
+ * user is required; every other filter is optional and filters left unset
+ * do not appear in the SQL at all.
+ */
+public class TransactionQuery {
+    private final int userId;
+    private Date fromDate;
+    private Date toDate;
+    private List<Integer> accountIds = Collections.emptyList();
+    private List<Integer> categoryIds = Collections.emptyList();
+    private TransactionType type;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    private String descriptionContains;
+
+    /**
+     * @param userId the user whose transactions are searched
+     */
+    public TransactionQuery(int userId) {
+        this.userId = userId;
+    }
+
+    // Getters and Setters
+    public int getUserId() {
+        return userId;
+    }
+
+    public Date getFromDate() {
+        return fromDate == null ? null : new Date(fromDate.getTime());
+    }
+
+    /**
+     * @param fromDate the earliest date to include, or null for no lower bound
+     */
+    public void setFromDate(Date fromDate) {
+        this.fromDate = fromDate == null ? null : new Date(fromDate.getTime());
+    }
+
+    public Date getToDate() {
+        return toDate == null ? null : new Date(toDate.getTime());
+    }
+
+    /**
+     * @param toDate the end of the range, exclusive, or null for no upper bound
+     */
+    public void setToDate(Date toDate) {
+        this.toDate = toDate == null ? null : new Date(toDate.getTime());
+    }
+
+    public List<Integer> getAccountIds() {
+        return accountIds;
+    }
+
+    /**
+     * @param accountIds the accounts to include, or null or empty for all accounts
+     */
+    public void setAccountIds(Collection<Integer> accountIds) {
+        this.accountIds = distinct(accountIds);
+    }
+
+    public List<Integer> getCategoryIds() {
+        return categoryIds;
+    }
+
+    /**
+     * @param categoryIds the categories to include, or null or empty for all categories
+     */
+    public void setCategoryIds(Collection<Integer> categoryIds) {
+        this.categoryIds = distinct(categoryIds);
+    }
+
+    public TransactionType getType() {
+        return type;
+    }
+
+    /**
+     * @param type INCOME or EXPENSE, or null for both
+     */
+    public void setType(TransactionType type) {
+        this.type = type;
+    }
+
+    public BigDecimal getMinAmount() {
+        return minAmount;
+    }
+
+    /**
+     * @param minAmount the smallest amount to include, or null for no lower bound
+     */
+    public void setMinAmount(BigDecimal minAmount) {
+        this.minAmount = minAmount;
+    }
+
+    public BigDecimal getMaxAmount() {
+        return maxAmount;
+    }
+
+    /**
+     * @param maxAmount the largest amount to include, or null for no upper bound
+     */
+    public void setMaxAmount(BigDecimal maxAmount) {
+        this.maxAmount = maxAmount;
+    }
+
+    public String getDescriptionContains() {
+        return descriptionContains;
+    }
+
+    /**
+     * Matches descriptions containing the text, using the column's collation
+     * (case-insensitive by default in MySQL). This filter cannot use an index;
+     * combine it with a date range on large histories.
+     *
+     * @param descriptionContains the text to look for, or null or empty for any description
+     */
+    public void setDescriptionContains(String descriptionContains) {
+        this.descriptionContains = descriptionContains == null || descriptionContains.isEmpty()
+                ? null : descriptionContains;
+    }
+
+    private static List<Integer> distinct(Collection<Integer> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(ids)));
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionQuery [userId=" + userId + ", fromDate=" + fromDate + ", toDate=" + toDate +
+                ", accountIds=" + accountIds + ", categoryIds=" + categoryIds + ", type=" + type +
+                ", minAmount=" + minAmount + ", maxAmount=" + maxAmount +
+                ", descriptionContains=" + descriptionContains + "]";
+    }
+}
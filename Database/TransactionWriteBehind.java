@@ -0,0 +1,327 @@
+package Database;
+
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import Backend.Transaction;
+
+/**
+ * Write-behind inserts for high-frequency ingestion, such as card feed
+ * webhooks that each deliver one transaction.
+ *
+ * {@link #submit} puts the transaction on a bounded queue and returns at
+ * once. A background writer takes queued transactions in groups and inserts
+ * each group with {@link TransactionDAO#insertTransactions(List, int)}, so a
+ * whole group costs one round trip and one commit. A group is written once
+ * it reaches the batch size, or once its oldest transaction has waited the
+ * maximum delay. Each caller's future completes with the new transaction ID
+ * after the group has committed.
+ *
+ * If a group is rejected because of a row's data (SQLState class 22 or 23,
+ * e.g. a bad value or a missing account), its transactions are retried one
+ * at a time, so only the ones that cannot be inserted fail. Any other error,
+ * such as a connection timeout or a lost connection, fails the whole group
+ * with that error instead: retrying row by row would wait out the same
+ * outage once per row, and after a commit with an unknown outcome it could
+ * insert rows twice. In that case the rows may or may not have been written.
+ *
+ * When the queue is full, submit waits up to the offer timeout for space and
+ * then fails the future with SQLTransientException, which slows producers
+ * down to the rate the database can take. {@link #close()} stops accepting
+ * transactions and waits until everything already queued has been written.
+ *
+ * Inserts commit on their own, so they cannot join a {@link UnitOfWork}.
+ * Transactions must not be changed after they are submitted; their ID is set
+ * when they are written.
+ */
+public class TransactionWriteBehind implements AutoCloseable {
+    // How often an idle writer checks whether it has been closed
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final TransactionDAO transactionDAO;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final long offerTimeoutMillis;
+    private final ArrayBlockingQueue<PendingInsert> queue;
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile boolean terminated;
+
+    // Statistics
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong committedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong groupCount = new AtomicLong();
+    private final AtomicLong groupedCount = new AtomicLong();
+    private final AtomicLong retriedGroupCount = new AtomicLong();
+    private final AtomicLong failedGroupCount = new AtomicLong();
+
+    /**
+     * Creates a write-behind writer configured from the pfinance.writeBehind.*
+     * system properties and starts its background thread.
+     */
+    public TransactionWriteBehind() {
+        this(new TransactionDAO(),
+                Integer.getInteger("pfinance.writeBehind.queueSize", 10_000),
+                Integer.getInteger("pfinance.writeBehind.batchSize", TransactionDAO.DEFAULT_BATCH_SIZE),
+                Long.getLong("pfinance.writeBehind.maxDelayMillis", 20L),
+                Long.getLong("pfinance.writeBehind.offerTimeoutMillis", 1000L));
+    }
+
+    /**
+     * Creates a write-behind writer and starts its background thread.
+     *
+     * @param transactionDAO the DAO to insert with
+     * @param queueSize the maximum number of transactions waiting to be written
+     * @param batchSize the maximum number of transactions per group commit
+     * @param maxDelayMillis how long a transaction may wait for its group to fill
+     * @param offerTimeoutMillis how long submit waits for space in a full queue, 0 to fail at once
+     */
+    public TransactionWriteBehind(TransactionDAO transactionDAO, int queueSize, int batchSize,
+                                  long maxDelayMillis, long offerTimeoutMillis) {
+        if (queueSize < 1 || batchSize < 1 || maxDelayMillis < 0 || offerTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Invalid write-behind settings: queueSize=" + queueSize +
+                    ", batchSize=" + batchSize + ", maxDelayMillis=" + maxDelayMillis +
+                    ", offerTimeoutMillis=" + offerTimeoutMillis);
+        }
+        this.transactionDAO = transactionDAO;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+
+        this.writer = new Thread(this::run, "pfinance-write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a transaction to be inserted.
+     *
+     * @param transaction the Transaction object to insert
+     * @return future completed with the generated transaction ID once the
+     *         insert has committed, or completed exceptionally if it cannot be
+     *         queued or inserted
+     * @throws IllegalStateException if a UnitOfWork is open on this thread
+     */
+    public CompletableFuture<Integer> submit(Transaction transaction) {
+        if (UnitOfWork.currentConnection() != null) {
+            throw new IllegalStateException("Write-behind inserts cannot join a UnitOfWork.");
+        }
+
+        PendingInsert pending = new PendingInsert(transaction);
+        if (closed) {
+            return reject(pending, "Write-behind writer has been closed.");
+        }
+        try {
+            if (!queue.offer(pending, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return reject(pending, "Write-behind queue is full (" + queue.size() + " transactions waiting).");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.future.completeExceptionally(e);
+            return pending.future;
+        }
+        submittedCount.incrementAndGet();
+
+        // The writer may have finished its final drain while this was being queued
+        if (terminated && queue.remove(pending)) {
+            submittedCount.decrementAndGet();
+            return reject(pending, "Write-behind writer has been closed.");
+        }
+        return pending.future;
+    }
+
+    /**
+     * Stops accepting transactions and waits until every queued transaction
+     * has been written.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops accepting transactions and waits a limited time for the queue to
+     * drain. Writing continues in the background if the time runs out.
+     *
+     * @param timeoutMillis how long to wait
+     * @return true if every queued transaction has been written
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean shutdown(long timeoutMillis) throws InterruptedException {
+        closed = true;
+        writer.join(Math.max(1, timeoutMillis));
+        return !writer.isAlive();
+    }
+
+    /**
+     * Gets a snapshot of the writer's counters.
+     *
+     * @return WriteBehindStats object
+     */
+    public WriteBehindStats getStats() {
+        return new WriteBehindStats(queue.size(), queue.remainingCapacity() + queue.size(),
+                submittedCount.get(), committedCount.get(), failedCount.get(), rejectedCount.get(),
+                groupCount.get(), groupedCount.get(), retriedGroupCount.get(), failedGroupCount.get());
+    }
+
+    private CompletableFuture<Integer> reject(PendingInsert pending, String message) {
+        rejectedCount.incrementAndGet();
+        pending.future.completeExceptionally(new SQLTransientException(message));
+        return pending.future;
+    }
+
+    /**
+     * Writer loop: collects a group, writes it, repeats until closed and empty.
+     */
+    private void run() {
+        List<PendingInsert> group = new ArrayList<>(Math.min(batchSize, 1024));
+        try {
+            while (!closed || !queue.isEmpty()) {
+                PendingInsert first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (group.size() < batchSize) {
+                    if (queue.drainTo(group, batchSize - group.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || closed) {
+                        break;
+                    }
+                    PendingInsert next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                write(group);
+                group.clear();
+            }
+        } catch (InterruptedException e) {
+            // Nothing interrupts the writer on purpose; finish what is queued below
+        } finally {
+            terminated = true;
+            while (queue.drainTo(group, batchSize) > 0) {
+                write(group);
+                group.clear();
+            }
+        }
+    }
+
+    /**
+     * Inserts a group in one commit and completes its futures, falling back
+     * to single inserts if a row's data made the group fail.
+     */
+    private void write(List<PendingInsert> group) {
+        List<Transaction> transactions = new ArrayList<>(group.size());
+        for (PendingInsert pending : group) {
+            transactions.add(pending.transaction);
+        }
+
+        try {
+            transactionDAO.insertTransactions(transactions, transactions.size());
+            groupCount.incrementAndGet();
+            groupedCount.addAndGet(transactions.size());
+            committedCount.addAndGet(transactions.size());
+            for (PendingInsert pending : group) {
+                pending.future.complete(pending.transaction.getId());
+            }
+            return;
+        } catch (BatchInsertException e) {
+            DAOMetrics.failed(e);
+            if (!isRowError(e.getCause())) {
+                failGroup(group, 0, e.getCause());
+                return;
+            }
+        } catch (RuntimeException e) {
+            DAOMetrics.failed(e);
+            failGroup(group, 0, e);
+            return;
+        }
+
+        // The group was rolled back as a whole; find out which transactions cannot be inserted
+        retriedGroupCount.incrementAndGet();
+        for (int i = 0; i < group.size(); i++) {
+            PendingInsert pending = group.get(i);
+            try {
+                transactionDAO.insertTransactions(Collections.singletonList(pending.transaction), 1);
+                committedCount.incrementAndGet();
+                pending.future.complete(pending.transaction.getId());
+            } catch (BatchInsertException e) {
+                DAOMetrics.failed(e);
+                if (!isRowError(e.getCause())) {
+                    failGroup(group, i, e.getCause());
+                    return;
+                }
+                failedCount.incrementAndGet();
+                pending.future.completeExceptionally(e.getCause());
+            } catch (RuntimeException e) {
+                DAOMetrics.failed(e);
+                failGroup(group, i, e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Fails the futures of a group from the given position on.
+     */
+    private void failGroup(List<PendingInsert> group, int from, Throwable cause) {
+        failedGroupCount.incrementAndGet();
+        for (int i = from; i < group.size(); i++) {
+            failedCount.incrementAndGet();
+            group.get(i).future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Checks whether an insert failed because of the data in a row, as opposed
+     * to the connection or the database, so that inserting the other rows on
+     * their own can succeed.
+     */
+    private static boolean isRowError(SQLException e) {
+        if (e instanceof SQLDataException || e instanceof SQLIntegrityConstraintViolationException) {
+            return true;
+        }
+        String state = e.getSQLState();
+        return state != null && (state.startsWith("22") || state.startsWith("23"));
+    }
+
+    /**
+     * A queued transaction and the future its caller is waiting on.
+     */
+    private static final class PendingInsert {
+        private final Transaction transaction;
+        private final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        private PendingInsert(Transaction transaction) {
+            this.transaction = transaction;
+        }
+    }
+}
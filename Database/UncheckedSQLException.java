@@ -0,0 +1,20 @@
+package Database;
+
+import java.sql.SQLException;
+
+/**
+ * Wraps an {@link SQLException} raised where a checked exception cannot be thrown,
+ * such as while advancing a {@link java.util.stream.Stream} backed by a ResultSet.
+ */
+public class UncheckedSQLException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedSQLException(SQLException cause) {
+        super(cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
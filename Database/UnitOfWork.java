@@ -0,0 +1,240 @@
+package Database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Groups several DAO calls into one database transaction on one connection.
+ *
+ * While a unit of work is open on a thread, {@link DBConnection#getConnection()}
+ * hands every DAO on that thread the unit's connection. DAO calls therefore
+ * join it without any change to their signatures:
+ * <pre>
+ * try (UnitOfWork work = UnitOfWork.begin()) {
+ *     int accountId = accountDAO.createAccount(account);
+ *     transaction.setAccountId(accountId);
+ *     transactionDAO.createTransaction(transaction);
+ *     work.commit();
+ * }
+ * </pre>
+ * Closing without committing rolls everything back. Participating DAO calls
+ * cannot commit, close or end the transaction themselves; a DAO call that rolls
+ * back after an error marks the unit rollback-only, so the final commit fails
+ * instead of persisting a partial result. DAO methods that report failure only
+ * through their return value (-1, false, null) should be checked by the caller.
+ *
+ * Beginning a unit of work while one is already open joins the outer one.
+ *
+ * In-process state that mirrors the database (such as {@link DescriptionIndex})
+ * is updated through {@link #afterCommit(Runnable)}, so that work rolled back
+ * never becomes visible there.
+ */
+public class UnitOfWork implements AutoCloseable {
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private final UnitOfWork outer;
+    private final Connection connection;
+    private final Connection participant;
+    private final List<Runnable> afterCommit = new ArrayList<>();
+    private boolean rollbackOnly;
+    private boolean completed;
+
+    private UnitOfWork(UnitOfWork outer, Connection connection) {
+        this.outer = outer;
+        this.connection = connection;
+        this.participant = outer != null ? outer.participant : (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                new ParticipantHandler());
+    }
+
+    /**
+     * Starts a unit of work on the current thread, or joins the one already open.
+     *
+     * @return UnitOfWork to commit and close
+     * @throws SQLException if no connection can be obtained
+     */
+    public static UnitOfWork begin() throws SQLException {
+        UnitOfWork current = CURRENT.get();
+        if (current != null) {
+            return new UnitOfWork(current, current.connection);
+        }
+
+        Connection connection = DBConnection.getConnection();
+        try {
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            DBConnection.closeConnection(connection);
+            throw e;
+        }
+        UnitOfWork work = new UnitOfWork(null, connection);
+        CURRENT.set(work);
+        return work;
+    }
+
+    /**
+     * Gets the connection of the unit of work open on the current thread.
+     *
+     * @return a connection whose close, commit and auto-commit changes are
+     *         ignored, or null if no unit of work is open
+     */
+    static Connection currentConnection() {
+        UnitOfWork current = CURRENT.get();
+        return current != null ? current.participant : null;
+    }
+
+    /**
+     * Checks whether a unit of work is open on the current thread.
+     *
+     * @return true if DAO calls on this thread join a unit of work
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Runs an action once the current thread's work is durable: after the
+     * outermost unit of work commits, or immediately if no unit of work is
+     * open. Actions of a unit that rolls back are discarded.
+     *
+     * @param action the action to run
+     */
+    static void afterCommit(Runnable action) {
+        UnitOfWork current = CURRENT.get();
+        if (current != null) {
+            current.root().afterCommit.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Marks the unit of work so that it can only roll back.
+     */
+    public void setRollbackOnly() {
+        root().rollbackOnly = true;
+    }
+
+    /**
+     * Commits all work done since begin. A joined unit of work commits nothing;
+     * the outermost one commits for all.
+     *
+     * @throws SQLException if the commit fails or the unit was marked rollback-only
+     */
+    public void commit() throws SQLException {
+        checkOpen();
+        completed = true;
+        if (outer != null) {
+            return;
+        }
+        if (rollbackOnly) {
+            afterCommit.clear();
+            connection.rollback();
+            throw new SQLException("Unit of work was rolled back because a participating call failed.");
+        }
+        connection.commit();
+        for (Runnable action : afterCommit) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        afterCommit.clear();
+    }
+
+    /**
+     * Rolls back all work done since begin. Rolling back a joined unit of work
+     * marks the outer one rollback-only.
+     *
+     * @throws SQLException if the rollback fails
+     */
+    public void rollback() throws SQLException {
+        checkOpen();
+        completed = true;
+        if (outer != null) {
+            outer.setRollbackOnly();
+            return;
+        }
+        afterCommit.clear();
+        connection.rollback();
+    }
+
+    /**
+     * Ends the unit of work, rolling back if it was not committed, and returns
+     * the connection to the pool.
+     */
+    @Override
+    public void close() {
+        try {
+            if (!completed) {
+                rollback();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            if (outer == null) {
+                CURRENT.remove();
+                try {
+                    connection.setAutoCommit(true);
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+                DBConnection.closeConnection(connection);
+            }
+        }
+    }
+
+    private UnitOfWork root() {
+        return outer != null ? outer.root() : this;
+    }
+
+    private void checkOpen() {
+        if (completed) {
+            throw new IllegalStateException("Unit of work has already been committed or rolled back.");
+        }
+    }
+
+    /**
+     * Connection seen by participating DAO calls. Transaction boundaries belong
+     * to the unit of work, so the participant's own attempts are intercepted.
+     */
+    private final class ParticipantHandler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                case "setAutoCommit":
+                case "commit":
+                    return null;
+                case "rollback":
+                    if (args == null) {
+                        rollbackOnly = true;
+                        return null;
+                    }
+                    break;
+                case "isClosed":
+                    return connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "UnitOfWorkConnection[" + connection + "]";
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
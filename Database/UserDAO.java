@@ -4,105 +4,178 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTransientException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import Backend.PasswordHasher;
 import Backend.User;
 import Database.DBConnection;
 
 /**
  * Data Access Object for User entity.
+ *
+ * Passwords are stored as salted PBKDF2 hashes (see {@link PasswordHasher}).
+ * Rows still holding a plain-text password are accepted at login and upgraded
+ * to a hash there.
  */
 public class UserDAO {
 
     /**
-     * Authenticates a user by username and password.
+     * Runs password hashing, which is deliberately slow, on a small dedicated
+     * pool with a bounded queue, so a burst of logins cannot occupy every
+     * thread. Work beyond the queue is rejected rather than queued without limit.
+     */
+    private static final ThreadPoolExecutor HASH_EXECUTOR = newHashExecutor(
+            Integer.getInteger("pfinance.password.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+            Integer.getInteger("pfinance.password.queueSize", 64));
+
+    /**
+     * Authenticates a user by username and password. A user whose password is
+     * still stored in plain text has it replaced with a hash.
      *
      * @param username the username
      * @param password the password
-     * @return User object if authentication succeeds, null otherwise
+     * @return User object (with the stored hash as password) if authentication succeeds, null otherwise
      */
     public User authenticate(String username, String password) {
-        User user = null;
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
-        try {
-            conn = DBConnection.getConnection();
-            String sql = "SELECT * FROM Users WHERE username = ? AND password = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setString(1, username);
-            stmt.setString(2, password); // In a real app, use password hashing!
-
-            rs = stmt.executeQuery();
-            if (rs.next()) {
-                user = new User();
-                user.setId(rs.getInt("id"));
-                user.setUsername(rs.getString("username"));
-                user.setPassword(rs.getString("password"));
-                user.setEmail(rs.getString("email"));
-                user.setFirstName(rs.getString("firstName"));
-                user.setLastName(rs.getString("lastName"));
+        return DAOMetrics.measure("UserDAO.authenticate", () -> {
+            User user;
+            try {
+                user = findByUsername(username);
+            } catch (SQLException e) {
+                DAOMetrics.failed(e);
+                return null;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
+
+            // Unknown usernames are checked against a dummy hash so they take as long as wrong passwords
+            String stored = user != null ? user.getPassword() : DummyHash.VALUE;
             try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                if (conn != null) DBConnection.closeConnection(conn);
+                boolean matches = onHashExecutor(() -> PasswordHasher.verify(password, stored));
+                if (!matches || user == null) {
+                    return null;
+                }
+                if (PasswordHasher.needsRehash(stored)) {
+                    String upgraded = onHashExecutor(() -> PasswordHasher.hash(password));
+                    if (replacePassword(user.getId(), stored, upgraded)) {
+                        user.setPassword(upgraded);
+                    }
+                }
             } catch (SQLException e) {
-                e.printStackTrace();
+                DAOMetrics.failed(e);
+                return null;
             }
-        }
 
+            return user;
+        });
+    }
+
+    /**
+     * Looks a user up by username on a read replica. The primary is asked
+     * instead if the replica does not know the user or the user wrote
+     * moments ago, as a replica may not yet have a new registration or
+     * password.
+     *
+     * @param username the username
+     * @return User object (with the stored password) if found, null otherwise
+     * @throws SQLException if a database access error occurs
+     */
+    private static User findByUsername(String username) throws SQLException {
+        User user;
+        try (Connection conn = DBConnection.getReadConnection()) {
+            user = loadUserByUsername(conn, username);
+        }
+        if (DBConnection.hasReplicas() && (user == null || DBConnection.wroteRecently(user.getId()))) {
+            try (Connection conn = DBConnection.getConnection()) {
+                user = loadUserByUsername(conn, username);
+            }
+        }
         return user;
     }
 
     /**
-     * Creates a new user in the database.
+     * Replaces a stored password, provided it has not changed in the meantime.
+     *
+     * @param userId the user ID
+     * @param expected the currently stored value
+     * @param replacement the new stored value
+     * @return true if the row was updated
+     */
+    private boolean replacePassword(int userId, String expected, String replacement) {
+        String sql = "UPDATE Users SET password = ? WHERE id = ? AND password = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, replacement);
+            stmt.setInt(2, userId);
+            stmt.setString(3, expected);
+            if (stmt.executeUpdate() == 0) {
+                return false;
+            }
+            DBConnection.recordWrite(userId);
+            return true;
+        } catch (SQLException e) {
+            DAOMetrics.failed(e);
+            return false;
+        }
+    }
+
+    /**
+     * Creates a new user in the database. The password is always hashed,
+     * whatever it looks like.
      *
      * @param user the User object to insert
      * @return the generated user ID, or -1 if operation fails
      */
     public int createUser(User user) {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        int userId = -1;
+        return DAOMetrics.measure("UserDAO.createUser", () -> {
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            ResultSet rs = null;
+            int userId = -1;
 
-        try {
-            conn = DBConnection.getConnection();
-            String sql = "INSERT INTO Users (username, password, email, firstName, lastName) VALUES (?, ?, ?, ?, ?)";
-            stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            stmt.setString(1, user.getUsername());
-            stmt.setString(2, user.getPassword()); // In a real app, use password hashing!
-            stmt.setString(3, user.getEmail());
-            stmt.setString(4, user.getFirstName());
-            stmt.setString(5, user.getLastName());
-
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows > 0) {
-                rs = stmt.getGeneratedKeys();
-                if (rs.next()) {
-                    userId = rs.getInt(1);
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
             try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                if (conn != null) DBConnection.closeConnection(conn);
+                String storedPassword = hashPassword(user.getPassword());
+                conn = DBConnection.getConnection();
+                String sql = "INSERT INTO Users (username, password, email, firstName, lastName) VALUES (?, ?, ?, ?, ?)";
+                stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+                stmt.setString(1, user.getUsername());
+                stmt.setString(2, storedPassword);
+                stmt.setString(3, user.getEmail());
+                stmt.setString(4, user.getFirstName());
+                stmt.setString(5, user.getLastName());
+
+                int affectedRows = stmt.executeUpdate();
+                if (affectedRows > 0) {
+                    rs = stmt.getGeneratedKeys();
+                    if (rs.next()) {
+                        userId = rs.getInt(1);
+                        DBConnection.recordWrite(userId);
+                    }
+                    UsernameFilter.add(user.getUsername());
+                }
             } catch (SQLException e) {
-                e.printStackTrace();
+                DAOMetrics.failed(e);
+            } finally {
+                try {
+                    if (rs != null) rs.close();
+                    if (stmt != null) stmt.close();
+                    if (conn != null) DBConnection.closeConnection(conn);
+                } catch (SQLException e) {
+                    DAOMetrics.failed(e);
+                }
             }
-        }
 
-        return userId;
+            return userId;
+        });
     }
 
     /**
@@ -112,114 +185,228 @@ public class UserDAO {
      * @return User object if found, null otherwise
      */
     public User getUser(int userId) {
-        User user = null;
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
-        try {
-            conn = DBConnection.getConnection();
-            String sql = "SELECT * FROM Users WHERE id = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, userId);
+        return DAOMetrics.measure("UserDAO.getUser", () -> {
+            User user = null;
+            Connection conn = null;
 
-            rs = stmt.executeQuery();
-            if (rs.next()) {
-                user = new User();
-                user.setId(rs.getInt("id"));
-                user.setUsername(rs.getString("username"));
-                user.setPassword(rs.getString("password"));
-                user.setEmail(rs.getString("email"));
-                user.setFirstName(rs.getString("firstName"));
-                user.setLastName(rs.getString("lastName"));
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
             try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                if (conn != null) DBConnection.closeConnection(conn);
+                conn = DBConnection.getReadConnection(userId);
+                user = loadUser(conn, userId);
             } catch (SQLException e) {
-                e.printStackTrace();
+                DAOMetrics.failed(e);
+            } finally {
+                if (conn != null) DBConnection.closeConnection(conn);
+            }
+
+            return user;
+        });
+    }
+
+    /**
+     * Loads a user by ID on the given connection.
+     *
+     * @param conn the connection to query with
+     * @param userId the user ID
+     * @return User object if found, null otherwise
+     * @throws SQLException if a database access error occurs
+     */
+    static User loadUser(Connection conn, int userId) throws SQLException {
+        String sql = "SELECT * FROM Users WHERE id = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapUser(rs) : null;
             }
         }
+    }
 
+    /**
+     * Loads a user by username on the given connection.
+     *
+     * @param conn the connection to query with
+     * @param username the username
+     * @return User object if found, null otherwise
+     * @throws SQLException if a database access error occurs
+     */
+    private static User loadUserByUsername(Connection conn, String username) throws SQLException {
+        String sql = "SELECT * FROM Users WHERE username = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, username);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapUser(rs) : null;
+            }
+        }
+    }
+
+    private static User mapUser(ResultSet rs) throws SQLException {
+        User user = new User();
+        user.setId(rs.getInt("id"));
+        user.setUsername(rs.getString("username"));
+        user.setPassword(rs.getString("password"));
+        user.setEmail(rs.getString("email"));
+        user.setFirstName(rs.getString("firstName"));
+        user.setLastName(rs.getString("lastName"));
         return user;
     }
 
     /**
-     * Updates a user in the database.
+     * Updates a user in the database. A new password is always hashed; a null
+     * password leaves the stored one unchanged, so a user taken from a session
+     * (which carries no password) can be saved back. A user returned by
+     * {@link #authenticate} carries the stored hash, so set its password to
+     * null before saving it unless the password is being changed.
+     * Sessions see the updated profile; a password change ends the user's
+     * sessions.
      *
      * @param user the User object to update
      * @return true if update succeeds, false otherwise
      */
     public boolean updateUser(User user) {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        boolean success = false;
+        return DAOMetrics.measure("UserDAO.updateUser", () -> {
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            boolean success = false;
 
-        try {
-            conn = DBConnection.getConnection();
-            String sql = "UPDATE Users SET username = ?, password = ?, email = ?, firstName = ?, lastName = ? WHERE id = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setString(1, user.getUsername());
-            stmt.setString(2, user.getPassword());
-            stmt.setString(3, user.getEmail());
-            stmt.setString(4, user.getFirstName());
-            stmt.setString(5, user.getLastName());
-            stmt.setInt(6, user.getId());
-
-            int affectedRows = stmt.executeUpdate();
-            success = (affectedRows > 0);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
             try {
-                if (stmt != null) stmt.close();
-                if (conn != null) DBConnection.closeConnection(conn);
+                String storedPassword = user.getPassword() != null ? hashPassword(user.getPassword()) : null;
+                conn = DBConnection.getConnection();
+                String sql = storedPassword != null
+                        ? "UPDATE Users SET username = ?, email = ?, firstName = ?, lastName = ?, password = ? WHERE id = ?"
+                        : "UPDATE Users SET username = ?, email = ?, firstName = ?, lastName = ? WHERE id = ?";
+                stmt = conn.prepareStatement(sql);
+                int index = 1;
+                stmt.setString(index++, user.getUsername());
+                stmt.setString(index++, user.getEmail());
+                stmt.setString(index++, user.getFirstName());
+                stmt.setString(index++, user.getLastName());
+                if (storedPassword != null) {
+                    stmt.setString(index++, storedPassword);
+                }
+                stmt.setInt(index, user.getId());
+
+                int affectedRows = stmt.executeUpdate();
+                success = (affectedRows > 0);
             } catch (SQLException e) {
-                e.printStackTrace();
+                DAOMetrics.failed(e);
+            } finally {
+                try {
+                    if (stmt != null) stmt.close();
+                    if (conn != null) DBConnection.closeConnection(conn);
+                } catch (SQLException e) {
+                    DAOMetrics.failed(e);
+                }
             }
-        }
 
-        return success;
+            if (success) {
+                UsernameFilter.add(user.getUsername());
+                DBConnection.recordWrite(user.getId());
+            }
+            if (success && user.getPassword() != null) {
+                SessionManager.endSessions(user.getId());
+            } else {
+                SessionManager.invalidateUser(user.getId());
+            }
+            return success;
+        });
     }
 
     /**
-     * Checks if a username already exists.
+     * Checks if a username already exists. Names that the {@link UsernameFilter}
+     * rules out are answered without a query.
      *
      * @param username the username to check
      * @return true if username exists, false otherwise
      */
     public boolean usernameExists(String username) {
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        boolean exists = false;
+        return DAOMetrics.measure("UserDAO.usernameExists", () -> {
+            if (UsernameFilter.isDefinitelyFree(username)) {
+                return false;
+            }
 
-        try {
-            conn = DBConnection.getConnection();
-            String sql = "SELECT COUNT(*) FROM Users WHERE username = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setString(1, username);
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            ResultSet rs = null;
+            boolean exists = false;
 
-            rs = stmt.executeQuery();
-            if (rs.next()) {
-                exists = rs.getInt(1) > 0;
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
             try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                if (conn != null) DBConnection.closeConnection(conn);
+                conn = DBConnection.getReadConnection();
+                String sql = "SELECT COUNT(*) FROM Users WHERE username = ?";
+                stmt = conn.prepareStatement(sql);
+                stmt.setString(1, username);
+
+                rs = stmt.executeQuery();
+                if (rs.next()) {
+                    exists = rs.getInt(1) > 0;
+                }
+                UsernameFilter.recordQueryResult(exists);
             } catch (SQLException e) {
-                e.printStackTrace();
+                DAOMetrics.failed(e);
+            } finally {
+                try {
+                    if (rs != null) rs.close();
+                    if (stmt != null) stmt.close();
+                    if (conn != null) DBConnection.closeConnection(conn);
+                } catch (SQLException e) {
+                    DAOMetrics.failed(e);
+                }
             }
+
+            return exists;
+        });
+    }
+
+    /**
+     * Hashes a password on the hashing pool.
+     *
+     * @param password the plain-text password
+     * @return the hash to store
+     * @throws SQLException if hashing is overloaded
+     */
+    private static String hashPassword(String password) throws SQLException {
+        return onHashExecutor(() -> PasswordHasher.hash(password));
+    }
+
+    /**
+     * Runs a hashing task on the hashing pool and waits for it.
+     *
+     * @param task the task
+     * @return the task's result
+     * @throws SQLException if the pool's queue is full or the task fails
+     */
+    private static <T> T onHashExecutor(Callable<T> task) throws SQLException {
+        Future<T> future;
+        try {
+            future = HASH_EXECUTOR.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new SQLTransientException("Too many password checks in progress; try again.", e);
         }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while hashing a password.", e);
+        } catch (ExecutionException e) {
+            throw new SQLException("Password hashing failed.", e.getCause());
+        }
+    }
+
+    private static ThreadPoolExecutor newHashExecutor(int threads, int queueSize) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread thread = new Thread(r, "pfinance-password-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
 
-        return exists;
+    /**
+     * Hash compared against when a username does not exist, created on first use.
+     */
+    private static final class DummyHash {
+        private static final String VALUE = PasswordHasher.hash("pfinance-dummy-password");
     }
 }
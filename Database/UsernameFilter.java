@@ -0,0 +1,193 @@
+package Database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.nio.charset.StandardCharsets;
+import java.text.Collator;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import Backend.BloomFilter;
+
+/**
+ * Bloom filter of every username in the Users table, consulted by
+ * {@link UserDAO#usernameExists} so that names which are definitely free are
+ * answered without a query.
+ *
+ * The filter is built from the table by {@link #warmUp()} at startup, or on
+ * the first check otherwise, and {@link UserDAO} adds every username it
+ * writes. Names are folded to their primary collation key, which ignores
+ * case, accents, spaces and punctuation and expands letters such as sharp s
+ * and the ae ligature, as MySQL's accent- and case-insensitive collations do.
+ * The JDK's collation rules are not identical to the Unicode Collation
+ * Algorithm MySQL uses, though: a few letters (o, d and l with stroke) are
+ * distinct here but equal to their base letter in MySQL, so a name differing
+ * from a taken one only in such letters can be reported free. The Users
+ * table's unique index still rejects it when the user is created. It is sized for
+ * pfinance.usernameFilter.expectedUsers names, or twice the current count if
+ * larger, at a false positive rate of pfinance.usernameFilter.falsePositiveRate;
+ * it is rebuilt larger once it holds more names than it was sized for.
+ */
+public class UsernameFilter {
+    private static final long EXPECTED_USERS = Long.getLong("pfinance.usernameFilter.expectedUsers", 100_000L);
+    private static final double FALSE_POSITIVE_RATE = Double.parseDouble(
+            System.getProperty("pfinance.usernameFilter.falsePositiveRate", "0.01"));
+
+    private static final Object BUILD_LOCK = new Object();
+
+    // Written under BUILD_LOCK. A filter is published only once fully
+    // loaded; while one loads, written names go to it as well.
+    private static volatile BloomFilter filter;
+    private static volatile BloomFilter loading;
+    private static volatile boolean ready;
+
+    private static final ThreadLocal<Collator> COLLATOR = ThreadLocal.withInitial(() -> {
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(Collator.PRIMARY);
+        collator.setDecomposition(Collator.FULL_DECOMPOSITION);
+        return collator;
+    });
+
+    private static final AtomicLong checks = new AtomicLong();
+    private static final AtomicLong answeredByFilter = new AtomicLong();
+    private static final AtomicLong falsePositives = new AtomicLong();
+
+    private UsernameFilter() {
+    }
+
+    /**
+     * Builds the filter from the Users table if it is not built yet.
+     *
+     * @throws SQLException if the usernames cannot be read
+     */
+    public static void warmUp() throws SQLException {
+        synchronized (BUILD_LOCK) {
+            if (ready) {
+                return;
+            }
+            try (Connection conn = DBConnection.getConnection()) {
+                long count;
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM Users")) {
+                    rs.next();
+                    count = rs.getLong(1);
+                }
+
+                // Registered before the names are read, so a user created meanwhile is not missed
+                BloomFilter next = new BloomFilter(Math.max(EXPECTED_USERS, count * 2), FALSE_POSITIVE_RATE);
+                loading = next;
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT username FROM Users");
+                     ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        next.put(fold(rs.getString(1)));
+                    }
+                }
+                filter = next;
+                ready = true;
+            } finally {
+                loading = null;
+            }
+        }
+    }
+
+    /**
+     * Checks whether a username is certainly not in use. Builds the filter
+     * first if needed.
+     *
+     * @param username the username
+     * @return true if no user has this name; false if one may have it
+     */
+    static boolean isDefinitelyFree(String username) {
+        checks.incrementAndGet();
+        if (username == null) {
+            return false;
+        }
+        if (!ready) {
+            try {
+                warmUp();
+            } catch (SQLException e) {
+                DAOMetrics.failed(e);
+                return false;
+            }
+        }
+        if (filter.mightContain(fold(username))) {
+            return false;
+        }
+        answeredByFilter.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Records the database's answer for a name the filter could not rule out.
+     *
+     * @param exists whether the query found the name
+     */
+    static void recordQueryResult(boolean exists) {
+        if (!exists && ready) {
+            falsePositives.incrementAndGet();
+        }
+    }
+
+    /**
+     * Adds a username that has been written to the Users table. Once the
+     * filter holds more names than it was sized for, it is rebuilt on the
+     * next check.
+     *
+     * @param username the username
+     */
+    static void add(String username) {
+        if (username == null) {
+            return;
+        }
+        // Read loading first: once it is cleared, the filter it became is already published
+        BloomFilter next = loading;
+        BloomFilter current = filter;
+        String folded = fold(username);
+        if (next != null) {
+            next.put(folded);
+        }
+        if (current == null) {
+            return;
+        }
+        current.put(folded);
+        if (current.getInsertions() > current.getExpectedInsertions()) {
+            synchronized (BUILD_LOCK) {
+                if (filter == current) {
+                    ready = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the filter's sizing and how well it is working.
+     *
+     * @return UsernameFilterStats snapshot
+     */
+    public static UsernameFilterStats getStats() {
+        BloomFilter current = filter;
+        return new UsernameFilterStats(
+                ready,
+                current != null ? current.getInsertions() : 0,
+                current != null ? current.getExpectedInsertions() : 0,
+                current != null ? current.getBitCount() : 0,
+                current != null ? current.getHashCount() : 0,
+                FALSE_POSITIVE_RATE,
+                current != null ? current.getExpectedFalsePositiveRate() : 0.0,
+                checks.get(),
+                answeredByFilter.get(),
+                falsePositives.get());
+    }
+
+    /**
+     * Folds a username to its primary collation key, so names the collation
+     * considers equal fold to the same string.
+     */
+    private static String fold(String username) {
+        byte[] key = COLLATOR.get().getCollationKey(username).toByteArray();
+        return new String(key, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,103 @@
+package Database;
+
+/**
+ * Point-in-time snapshot of {@link UsernameFilter} sizing and effectiveness.
+ */
+public class UsernameFilterStats {
+    private final boolean ready;
+    private final long usernames;
+    private final long expectedUsernames;
+    private final long bitCount;
+    private final int hashCount;
+    private final double targetFalsePositiveRate;
+    private final double estimatedFalsePositiveRate;
+    private final long checks;
+    private final long answeredByFilter;
+    private final long falsePositives;
+
+    public UsernameFilterStats(boolean ready, long usernames, long expectedUsernames, long bitCount, int hashCount,
+                               double targetFalsePositiveRate, double estimatedFalsePositiveRate,
+                               long checks, long answeredByFilter, long falsePositives) {
+        this.ready = ready;
+        this.usernames = usernames;
+        this.expectedUsernames = expectedUsernames;
+        this.bitCount = bitCount;
+        this.hashCount = hashCount;
+        this.targetFalsePositiveRate = targetFalsePositiveRate;
+        this.estimatedFalsePositiveRate = estimatedFalsePositiveRate;
+        this.checks = checks;
+        this.answeredByFilter = answeredByFilter;
+        this.falsePositives = falsePositives;
+    }
+
+    // Getters
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long getUsernames() {
+        return usernames;
+    }
+
+    public long getExpectedUsernames() {
+        return expectedUsernames;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public double getTargetFalsePositiveRate() {
+        return targetFalsePositiveRate;
+    }
+
+    public double getEstimatedFalsePositiveRate() {
+        return estimatedFalsePositiveRate;
+    }
+
+    public long getChecks() {
+        return checks;
+    }
+
+    /**
+     * Gets the number of checks answered "free" without a query.
+     *
+     * @return the filter answer count
+     */
+    public long getAnsweredByFilter() {
+        return answeredByFilter;
+    }
+
+    /**
+     * Gets the number of checks where the filter said "maybe taken" but the
+     * query found the name free.
+     *
+     * @return the observed false positive count
+     */
+    public long getFalsePositives() {
+        return falsePositives;
+    }
+
+    /**
+     * Gets the observed false positive rate among names that were free.
+     *
+     * @return false positives / (false positives + filter answers)
+     */
+    public double getObservedFalsePositiveRate() {
+        long free = falsePositives + answeredByFilter;
+        return free == 0 ? 0.0 : (double) falsePositives / free;
+    }
+
+    @Override
+    public String toString() {
+        return "UsernameFilterStats [ready=" + ready + ", usernames=" + usernames + ", expected=" + expectedUsernames +
+                ", bits=" + bitCount + ", hashes=" + hashCount + ", targetFpp=" + targetFalsePositiveRate +
+                ", estimatedFpp=" + estimatedFalsePositiveRate + ", checks=" + checks +
+                ", answeredByFilter=" + answeredByFilter + ", falsePositives=" + falsePositives +
+                ", observedFpp=" + getObservedFalsePositiveRate() + "]";
+    }
+}
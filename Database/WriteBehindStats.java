@@ -0,0 +1,105 @@
+package Database;
+
+/**
+ * Point-in-time snapshot of {@link TransactionWriteBehind} counters.
+ */
+public class WriteBehindStats {
+    private final int queued;
+    private final int queueCapacity;
+    private final long submitted;
+    private final long committed;
+    private final long failed;
+    private final long rejected;
+    private final long groupCommits;
+    private final long groupedTransactions;
+    private final long retriedGroups;
+    private final long failedGroups;
+
+    public WriteBehindStats(int queued, int queueCapacity, long submitted, long committed, long failed,
+                            long rejected, long groupCommits, long groupedTransactions, long retriedGroups,
+                            long failedGroups) {
+        this.queued = queued;
+        this.queueCapacity = queueCapacity;
+        this.submitted = submitted;
+        this.committed = committed;
+        this.failed = failed;
+        this.rejected = rejected;
+        this.groupCommits = groupCommits;
+        this.groupedTransactions = groupedTransactions;
+        this.retriedGroups = retriedGroups;
+        this.failedGroups = failedGroups;
+    }
+
+    // Getters
+    public int getQueued() {
+        return queued;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    public long getCommitted() {
+        return committed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Gets the transactions turned away because the queue was full or the
+     * writer closed.
+     *
+     * @return the number of rejected submissions
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getGroupCommits() {
+        return groupCommits;
+    }
+
+    /**
+     * Gets the groups that a row's data made fail, and that were retried one
+     * transaction at a time.
+     *
+     * @return the number of retried groups
+     */
+    public long getRetriedGroups() {
+        return retriedGroups;
+    }
+
+    /**
+     * Gets the groups failed as a whole, or from some row on, by a connection
+     * or database error, without retrying their transactions one at a time.
+     *
+     * @return the number of failed groups
+     */
+    public long getFailedGroups() {
+        return failedGroups;
+    }
+
+    /**
+     * Gets the average number of transactions written per group commit,
+     * not counting retried groups.
+     *
+     * @return the average group size, 0 if nothing was written
+     */
+    public double getAverageGroupSize() {
+        return groupCommits == 0 ? 0.0 : (double) groupedTransactions / groupCommits;
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBehindStats [queued=" + queued + ", capacity=" + queueCapacity + ", submitted=" + submitted +
+                ", committed=" + committed + ", failed=" + failed + ", rejected=" + rejected +
+                ", groupCommits=" + groupCommits + ", avgGroupSize=" + getAverageGroupSize() +
+                ", retriedGroups=" + retriedGroups + ", failedGroups=" + failedGroups + "]";
+    }
+}
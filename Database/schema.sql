@@ -1,46 +1,60 @@
 CREATE DATABASE pfinance_db;
 USE pfinance_db;
+-- Baseline tables, identical to migration 1 in SchemaMigrator. The account
+-- balance column and the indexes are added by the later migrations, which
+-- DBConnection applies on its first connection; they also compute the balances
+-- of the sample transactions below. Schema changes go into SchemaMigrator.
+
 -- Users Table
-CREATE TABLE Users (
+CREATE TABLE IF NOT EXISTS Users (
     id INT AUTO_INCREMENT PRIMARY KEY,
     username VARCHAR(50) NOT NULL UNIQUE,
     password VARCHAR(255) NOT NULL,
     email VARCHAR(100) NOT NULL UNIQUE,
-    first_name VARCHAR(50),
-    last_name VARCHAR(50)
+    firstName VARCHAR(50),
+    lastName VARCHAR(50)
 );
 
 -- Accounts Table
-CREATE TABLE Accounts (
+CREATE TABLE IF NOT EXISTS Accounts (
     id INT AUTO_INCREMENT PRIMARY KEY,
-    user_id INT NOT NULL,
-    account_name VARCHAR(100),
-    FOREIGN KEY (user_id) REFERENCES Users(id) ON DELETE CASCADE
+    userId INT NOT NULL,
+    accountName VARCHAR(100),
+    FOREIGN KEY (userId) REFERENCES Users(id) ON DELETE CASCADE
 );
 
 -- Categories Table
-CREATE TABLE Categories (
+CREATE TABLE IF NOT EXISTS Categories (
     id INT AUTO_INCREMENT PRIMARY KEY,
-    user_id INT NOT NULL,
+    userId INT NOT NULL,
     name VARCHAR(100),
-    FOREIGN KEY (user_id) REFERENCES Users(id) ON DELETE CASCADE
+    FOREIGN KEY (userId) REFERENCES Users(id) ON DELETE CASCADE
 );
 
 -- Transactions Table
-CREATE TABLE Transactions (
+CREATE TABLE IF NOT EXISTS Transactions (
     id INT AUTO_INCREMENT PRIMARY KEY,
-    user_id INT NOT NULL,
-    account_id INT NOT NULL,
-    category_id INT NOT NULL,
+    userId INT NOT NULL,
+    accountId INT NOT NULL,
+    categoryId INT NULL,
     amount DECIMAL(10, 2) NOT NULL,
     type ENUM('income', 'expense') NOT NULL,
     description VARCHAR(255),
     date DATE NOT NULL,
-    FOREIGN KEY (user_id) REFERENCES Users(id) ON DELETE CASCADE,
-    FOREIGN KEY (account_id) REFERENCES Accounts(id) ON DELETE CASCADE,
-    FOREIGN KEY (category_id) REFERENCES Categories(id) ON DELETE CASCADE
+    FOREIGN KEY (userId) REFERENCES Users(id) ON DELETE CASCADE,
+    FOREIGN KEY (accountId) REFERENCES Accounts(id) ON DELETE CASCADE,
+    FOREIGN KEY (categoryId) REFERENCES Categories(id) ON DELETE SET NULL
+);
+
+-- Mark the baseline as applied so the migrator continues from migration 2
+CREATE TABLE IF NOT EXISTS schema_version (
+    version INT PRIMARY KEY,
+    description VARCHAR(200) NOT NULL,
+    applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
 );
-INSERT INTO Users (username, password, email, first_name, last_name) VALUES
+INSERT INTO schema_version (version, description) VALUES (1, 'Baseline tables');
+
+INSERT INTO Users (username, password, email, firstName, lastName) VALUES
 ('Ahsan_Ali', 'lemon123', 'ahsanali@gmail.com', 'Ahsan', 'Ali'),
 ('Nishad_Arumugam', 'orange589', 'nishadarumugam@gmail.com', 'Nishad', 'arumugam'),
 ('Dalen_Martin', 'yellow125', 'dalenmartin@gmail.com', 'Dalen', 'Martin'),
@@ -58,7 +72,7 @@ INSERT INTO Users (username, password, email, first_name, last_name) VALUES
 ('Stephen_Curry', 'warriors30', 'stephencurry@gmail.com', 'Stephen', 'Curry');
 
 -- Insert Accounts
-INSERT INTO Accounts (user_id, account_name) VALUES
+INSERT INTO Accounts (userId, accountName) VALUES
 (1, 'Checking'),
 (1, 'Savings'),
 (2, 'Business'),
@@ -77,7 +91,7 @@ INSERT INTO Accounts (user_id, account_name) VALUES
 (15, 'Goldman Sachs');
 
 -- Insert Categories
-INSERT INTO Categories (user_id, name) VALUES
+INSERT INTO Categories (userId, name) VALUES
 (1, 'Groceries'),
 (1, 'Utilities'),
 (2, 'Salary'),
@@ -96,7 +110,7 @@ INSERT INTO Categories (user_id, name) VALUES
 (15, 'Pet Supplies');
 
 -- Insert Transactions
-INSERT INTO Transactions (user_id, account_id, category_id, amount, type, description, date) VALUES
+INSERT INTO Transactions (userId, accountId, categoryId, amount, type, description, date) VALUES
 (1, 1, 1, 150.0, 'expense', 'Grocery shopping at Target', '2024-04-01'),
 (1, 2, 2, 80.0, 'expense', 'Electric Bill', '2024-04-03'),
 (2, 3, 3, 4000.0, 'income', 'Monthly Salary', '2024-04-05'),
@@ -112,4 +126,5 @@ INSERT INTO Transactions (user_id, account_id, category_id, amount, type, descri
 (12, 13, 13, 90.0, 'expense', 'Uber Rides', '2024-04-20'),
 (13, 14, 14, 150.0, 'expense', 'DoorDash', '2024-04-21'),
 (14, 15, 15, 250.0, 'expense', 'Birthday Gift', '2024-04-23'),
-(15, 15, 3, 3000.0, 'income', 'Freelance project', '2024-04-25');
\ No newline at end of file
+(15, 15, 3, 3000.0, 'income', 'Freelance project', '2024-04-25');
+